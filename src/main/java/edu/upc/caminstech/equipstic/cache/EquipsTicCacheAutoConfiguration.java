@@ -0,0 +1,36 @@
+package edu.upc.caminstech.equipstic.cache;
+
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Autoconfiguració de Spring Boot que registra un
+ * {@link EquipsTicCacheManager} si la propietat {@code equipstic.cache.enabled}
+ * és {@code true}, Caffeine és al classpath i l'aplicació no ha definit cap
+ * altre {@link CacheManager}.
+ * <p>
+ * Cal igualment activar la cache a l'aplicació (per exemple, amb
+ * {@code @EnableCaching}).
+ */
+@Configuration
+@ConditionalOnClass(name = { "com.github.benmanes.caffeine.cache.Caffeine",
+        "org.springframework.cache.caffeine.CaffeineCacheManager" })
+@ConditionalOnProperty(prefix = "equipstic.cache", name = "enabled", havingValue = "true")
+@AutoConfigureBefore(CacheAutoConfiguration.class)
+@EnableConfigurationProperties(EquipsTicCacheProperties.class)
+public class EquipsTicCacheAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(CacheManager.class)
+    public EquipsTicCacheManager equipsTicCacheManager(EquipsTicCacheProperties properties) {
+        return new EquipsTicCacheManager(properties);
+    }
+
+}
@@ -0,0 +1,132 @@
+package edu.upc.caminstech.equipstic.cache;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.util.Assert;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import edu.upc.caminstech.equipstic.cache.EquipsTicCacheProperties.CacheSpec;
+
+/**
+ * {@link org.springframework.cache.CacheManager} basat en
+ * <a href="https://github.com/ben-manes/caffeine">Caffeine</a>, amb un temps
+ * d'expiració i una mida màxima per a cada cache del client.
+ * <p>
+ * Normalment no cal instanciar aquesta classe: es registra automàticament si
+ * la propietat {@code equipstic.cache.enabled} és {@code true} (vegeu
+ * {@link EquipsTicCacheAutoConfiguration}). Sense Spring Boot, es pot definir
+ * com a <em>Spring Bean</em>:
+ *
+ * <pre>
+ * &#64;Bean
+ * CacheManager cacheManager() {
+ *     return new EquipsTicCacheManager(new EquipsTicCacheProperties());
+ * }
+ * </pre>
+ *
+ * Les caches que no són del client (si n'hi ha) es creen amb la configuració
+ * de {@link EquipsTicCacheProperties#getDefaults()}.
+ * <p>
+ * Les caches amb {@link CacheSpec#getRefreshAfter()} recarreguen les entrades
+ * en segon pla abans que caduquin, a l'executor indicat amb
+ * {@link #setRefreshExecutor(Executor)}. Per defecte, es fa servir un pool
+ * propi de {@value #REFRESH_THREADS} fils (que es tanca amb
+ * {@link #destroy()}), amb una cua de com a màxim
+ * {@value #REFRESH_QUEUE_CAPACITY} recàrregues pendents; les que no hi caben
+ * es descarten, i l'entrada es torna a intentar recarregar a la consulta
+ * següent.
+ * <p>
+ * Els resultats buits (els {@link java.util.Optional} buits) es desen a part,
+ * amb el temps d'expiració i la mida màxima de
+ * {@link CacheSpec#getNegativeTtl()} i {@link CacheSpec#getNegativeMaximumSize()},
+ * de manera que no desplacen els resultats amb valor. Això també val per a les
+ * caches que es recarreguen en segon pla.
+ */
+public class EquipsTicCacheManager extends CaffeineCacheManager implements DisposableBean {
+
+    private static final int REFRESH_THREADS = 2;
+    private static final int REFRESH_QUEUE_CAPACITY = 1000;
+
+    private final EquipsTicCacheProperties properties;
+    private final ThreadPoolExecutor defaultRefreshExecutor;
+    private Executor refreshExecutor;
+
+    public EquipsTicCacheManager(EquipsTicCacheProperties properties) {
+        Assert.notNull(properties, "l'argument properties no pot ser null");
+        this.properties = properties;
+        this.defaultRefreshExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+                new BasicThreadFactory.Builder().namingPattern("equipstic-cache-refresh-%d").daemon(true).build());
+        this.defaultRefreshExecutor.allowCoreThreadTimeOut(true);
+        this.refreshExecutor = defaultRefreshExecutor;
+    }
+
+    public EquipsTicCacheProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Canvia l'executor de les recàrregues en segon pla. Només afecta les
+     * caches que encara no s'han creat.
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+        Assert.notNull(refreshExecutor, "l'argument refreshExecutor no pot ser null");
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * Tanca el pool propi de recàrregues. Si s'ha indicat un altre executor
+     * amb {@link #setRefreshExecutor(Executor)}, no es tanca.
+     */
+    @Override
+    public void destroy() {
+        defaultRefreshExecutor.shutdown();
+    }
+
+    @Override
+    protected org.springframework.cache.Cache createCaffeineCache(String name) {
+        CacheSpec spec = properties.getSpec(name);
+        org.springframework.cache.Cache cache = new NegativeCachingCache(super.createCaffeineCache(name),
+                createNegativeCache(spec));
+        if (spec.getRefreshAfter() != null) {
+            return new RefreshAheadCache(cache, spec.getRefreshAfter(), spec.getTtl(), refreshExecutor);
+        }
+        return cache;
+    }
+
+    private static Cache<Object, Boolean> createNegativeCache(CacheSpec spec) {
+        if (!spec.isNegativeCachingEnabled()) {
+            return null;
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (spec.getNegativeTtl() != null) {
+            builder.expireAfterWrite(spec.getNegativeTtl().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (spec.getNegativeMaximumSize() != null) {
+            builder.maximumSize(spec.getNegativeMaximumSize());
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected Cache<Object, Object> createNativeCaffeineCache(String name) {
+        CacheSpec spec = properties.getSpec(name);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (spec.getTtl() != null) {
+            builder.expireAfterWrite(spec.getTtl().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (spec.getMaximumSize() != null) {
+            builder.maximumSize(spec.getMaximumSize());
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,271 @@
+package edu.upc.caminstech.equipstic.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import edu.upc.caminstech.equipstic.client.dao.CacheUtils;
+
+/**
+ * Configuració de les caches del client (propietats {@code equipstic.cache.*}).
+ * <p>
+ * Cada cache es configura amb el nom del mètode del client que la fa servir
+ * (sense el prefix {@value CacheUtils#PREFIX}). Per exemple:
+ *
+ * <pre>
+ * equipstic.cache.enabled=true
+ * equipstic.cache.defaults.ttl=1h
+ * equipstic.cache.caches.getMarques.ttl=24h
+ * equipstic.cache.caches.getInfraestructuraById.maximum-size=50000
+ * equipstic.cache.caches.getUnitats.refresh-after=30m
+ * equipstic.cache.caches.getInfraestructuraByMarcaAndNumeroDeSerie.negative-ttl=30s
+ * </pre>
+ *
+ * Els valors que no s'indiquen per a una cache concreta són els valors per
+ * defecte de la llibreria per aquella cache (vegeu
+ * {@link #getDefaultSpecs()}) o, si no n'hi ha, els de {@link #getDefaults()}.
+ */
+@ConfigurationProperties(prefix = "equipstic.cache")
+public class EquipsTicCacheProperties {
+
+    /**
+     * Caches amb dades de catàleg, que canvien molt poc.
+     */
+    private static final List<String> CATALOGS = Arrays.asList("getAmbitById", "getAmbits", "getAmbitsByCategoria",
+            "getAmbitsByCodi", "getAmbitsByNom", "getCampus", "getCampusByCodi", "getCampusById", "getCategoriaById",
+            "getCategories", "getEdificiByCodiAndCodiCampus", "getEdificiById", "getEdificis", "getEstatById",
+            "getEstats", "getEstatsByCodi", "getEstatsByNom", "getMarcaById", "getMarques", "getMarquesByNom",
+            "getSistemaOperatiuById", "getSistemesOperatius", "getSistemesOperatiusByCategoria",
+            "getSistemesOperatiusByCodi", "getSistemesOperatiusByNom", "getTipusInfraestructura",
+            "getTipusInfraestructuraByCategoria", "getTipusInfraestructuraByCodi", "getTipusInfraestructuraById",
+            "getTipusInfraestructuraByNom", "getTipusUs", "getTipusUsById", "getTipusUsByUnitat", "getTipusXarxa",
+            "getTipusXarxaById", "getUnitatById", "getUnitatByIdentificador", "getUnitats", "getUnitatsByNom",
+            "getUnitatsByNomAndIdentificadorAndCodi");
+
+    /**
+     * Catàlegs lents de carregar, que es recarreguen en segon pla.
+     */
+    private static final List<String> REFRESH_AHEAD_CATALOGS = Arrays.asList("getUnitats", "getEdificis",
+            "getMarques", "getTipusInfraestructura", "getSistemesOperatius");
+
+    private static final Map<String, CacheSpec> DEFAULT_SPECS;
+
+    static {
+        Map<String, CacheSpec> specs = new HashMap<>();
+        for (String name : CATALOGS) {
+            specs.put(name, new CacheSpec(Duration.ofHours(12), 1_000L));
+        }
+        for (String name : REFRESH_AHEAD_CATALOGS) {
+            specs.put(name, new CacheSpec(Duration.ofHours(24), 1_000L, Duration.ofHours(1)));
+        }
+        specs.put("getInfraestructuraById", new CacheSpec(Duration.ofMinutes(5), 10_000L));
+        specs.put("getInfraestructuraByMarcaAndNumeroDeSerie", new CacheSpec(Duration.ofMinutes(5), 10_000L));
+        specs.put("getInfraestructuresByUnitat", new CacheSpec(Duration.ofMinutes(5), 200L));
+        DEFAULT_SPECS = Collections.unmodifiableMap(specs);
+    }
+
+    private boolean enabled = false;
+    private CacheSpec defaults = new CacheSpec(Duration.ofHours(1), 1_000L).withNegative(Duration.ofMinutes(1),
+            1_000L);
+    private Map<String, CacheSpec> caches = new LinkedHashMap<>();
+
+    /**
+     * Indica si s'ha de registrar el {@link EquipsTicCacheManager}. Per
+     * defecte, {@code false}.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Configuració de les caches que no tenen cap configuració específica.
+     * Per defecte, 1 hora i 1000 entrades, i 1 minut i 1000 entrades per als
+     * resultats buits.
+     */
+    public CacheSpec getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(CacheSpec defaults) {
+        this.defaults = defaults;
+    }
+
+    /**
+     * Configuració específica de cada cache, indexada pel nom del mètode (sense
+     * distingir majúscules i minúscules).
+     */
+    public Map<String, CacheSpec> getCaches() {
+        return caches;
+    }
+
+    public void setCaches(Map<String, CacheSpec> caches) {
+        this.caches = caches;
+    }
+
+    /**
+     * Retorna la configuració per defecte de la llibreria per a cada cache: 12
+     * hores i 1000 entrades per als catàlegs (marques, estats, unitats...), i 5
+     * minuts per a les infraestructures. Els catàlegs més costosos de carregar
+     * ({@code getUnitats}, {@code getEdificis}, {@code getMarques},
+     * {@code getTipusInfraestructura} i {@code getSistemesOperatius}) es
+     * recarreguen en segon pla cada hora, i es poden fer servir fins a 24 hores
+     * si la recàrrega falla.
+     */
+    public static Map<String, CacheSpec> getDefaultSpecs() {
+        return DEFAULT_SPECS;
+    }
+
+    /**
+     * Retorna la configuració efectiva de la cache amb el nom donat (amb o
+     * sense el prefix {@value CacheUtils#PREFIX}).
+     */
+    public CacheSpec getSpec(String cacheName) {
+        String name = cacheName.startsWith(CacheUtils.PREFIX) ? cacheName.substring(CacheUtils.PREFIX.length())
+                : cacheName;
+        // la recàrrega en segon pla no s'hereta de defaults: només la fan les
+        // caches que la tenen configurada
+        CacheSpec spec = new CacheSpec(defaults.ttl, defaults.maximumSize).withNegative(defaults.negativeTtl,
+                defaults.negativeMaximumSize);
+        if (DEFAULT_SPECS.containsKey(name)) {
+            spec = DEFAULT_SPECS.get(name).withDefaults(spec);
+        }
+        for (Map.Entry<String, CacheSpec> entry : caches.entrySet()) {
+            // Spring Boot pot passar a minúscules les claus dels mapes
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                spec = entry.getValue().withDefaults(spec);
+            }
+        }
+        return spec;
+    }
+
+    /**
+     * Configuració d'una cache. Els atributs a {@code null} prenen el valor
+     * per defecte.
+     */
+    public static class CacheSpec {
+
+        private Duration ttl;
+        private Long maximumSize;
+        private Duration refreshAfter;
+        private Duration negativeTtl;
+        private Long negativeMaximumSize;
+
+        public CacheSpec() {
+            // per a Spring Boot
+        }
+
+        public CacheSpec(Duration ttl, Long maximumSize) {
+            this(ttl, maximumSize, null);
+        }
+
+        public CacheSpec(Duration ttl, Long maximumSize, Duration refreshAfter) {
+            this.ttl = ttl;
+            this.maximumSize = maximumSize;
+            this.refreshAfter = refreshAfter;
+        }
+
+        /**
+         * Temps màxim que una entrada es manté a la cache des que s'hi desa.
+         */
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * Nombre màxim d'entrades de la cache.
+         */
+        public Long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        /**
+         * Edat a partir de la qual una entrada es recarrega en segon pla,
+         * mentre es continua retornant el valor antic (com a molt fins a
+         * {@link #getTtl()}). Si és {@code null}, les entrades no es
+         * recarreguen.
+         * <p>
+         * Només té efecte en les caches dels mètodes anotats amb
+         * {@code @Cacheable(sync = true)}, i per això no s'hereta de
+         * {@link EquipsTicCacheProperties#getDefaults()}: s'ha d'indicar per a
+         * cada cache.
+         */
+        public Duration getRefreshAfter() {
+            return refreshAfter;
+        }
+
+        public void setRefreshAfter(Duration refreshAfter) {
+            this.refreshAfter = refreshAfter;
+        }
+
+        /**
+         * Temps màxim que es recorda que una consulta no ha trobat res (un
+         * {@link java.util.Optional} buit). Normalment és molt més curt que
+         * {@link #getTtl()}, perquè l'element es pot crear en qualsevol moment.
+         * Si és zero, els resultats buits no es desen a la cache.
+         */
+        public Duration getNegativeTtl() {
+            return negativeTtl;
+        }
+
+        public void setNegativeTtl(Duration negativeTtl) {
+            this.negativeTtl = negativeTtl;
+        }
+
+        /**
+         * Nombre màxim de resultats buits que es desen, a part de les
+         * {@link #getMaximumSize()} entrades amb valor.
+         */
+        public Long getNegativeMaximumSize() {
+            return negativeMaximumSize;
+        }
+
+        public void setNegativeMaximumSize(Long negativeMaximumSize) {
+            this.negativeMaximumSize = negativeMaximumSize;
+        }
+
+        /**
+         * Indica si els resultats buits s'han de desar a la cache.
+         */
+        boolean isNegativeCachingEnabled() {
+            return negativeTtl == null || !negativeTtl.isZero();
+        }
+
+        /**
+         * Retorna una còpia d'aquesta configuració on els atributs a
+         * {@code null} prenen el valor de {@code defaults}.
+         */
+        CacheSpec withDefaults(CacheSpec defaults) {
+            return new CacheSpec(ttl != null ? ttl : defaults.ttl,
+                    maximumSize != null ? maximumSize : defaults.maximumSize,
+                    refreshAfter != null ? refreshAfter : defaults.refreshAfter).withNegative(
+                            negativeTtl != null ? negativeTtl : defaults.negativeTtl,
+                            negativeMaximumSize != null ? negativeMaximumSize : defaults.negativeMaximumSize);
+        }
+
+        private CacheSpec withNegative(Duration negativeTtl, Long negativeMaximumSize) {
+            this.negativeTtl = negativeTtl;
+            this.negativeMaximumSize = negativeMaximumSize;
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package edu.upc.caminstech.equipstic.cache;
+
+import java.util.concurrent.Callable;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.util.Assert;
+
+/**
+ * {@link Cache} que desa els resultats buits (els {@code null}, que és com
+ * Spring desa els {@link java.util.Optional} buits) en una cache a part, amb
+ * el seu propi temps d'expiració i mida màxima.
+ * <p>
+ * Així, les consultes que no troben res (per exemple, un número de sèrie
+ * desconegut) no tornen a anar al servidor cada vegada, però tampoc ocupen la
+ * cache dels resultats ni s'hi queden tant de temps.
+ */
+class NegativeCachingCache implements Cache {
+
+    private final Cache delegate;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Boolean> negative;
+
+    /**
+     * @param delegate
+     *            la cache dels resultats no buits.
+     * @param negative
+     *            la cache dels resultats buits, o {@code null} si no s'han de
+     *            desar.
+     */
+    NegativeCachingCache(Cache delegate, com.github.benmanes.caffeine.cache.Cache<Object, Boolean> negative) {
+        Assert.notNull(delegate, "l'argument delegate no pot ser null");
+        this.delegate = delegate;
+        this.negative = negative;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = delegate.get(key);
+        if (value == null && negative != null && negative.getIfPresent(key) != null) {
+            return new SimpleValueWrapper(null);
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = (wrapper != null) ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "El valor de la cache no és del tipus requerit [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value = delegate.get(key, valueLoader);
+        if (value == null) {
+            delegate.evict(key);
+            putNegative(key);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            delegate.evict(key);
+            putNegative(key);
+        } else {
+            delegate.put(key, value);
+            evictNegative(key);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = get(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        evictNegative(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        if (negative != null) {
+            negative.invalidateAll();
+        }
+    }
+
+    private void putNegative(Object key) {
+        if (negative != null) {
+            negative.put(key, Boolean.TRUE);
+        }
+    }
+
+    private void evictNegative(Object key) {
+        if (negative != null) {
+            negative.invalidate(key);
+        }
+    }
+
+}
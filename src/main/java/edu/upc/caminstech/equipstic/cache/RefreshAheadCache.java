@@ -0,0 +1,216 @@
+package edu.upc.caminstech.equipstic.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.util.Assert;
+
+/**
+ * {@link Cache} que recarrega les entrades en segon pla abans que caduquin
+ * (<em>refresh-ahead</em>).
+ * <p>
+ * Una entrada més antiga que {@code refreshAfter} es continua retornant, però
+ * la primera consulta que la troba en aquest estat llança una única
+ * recàrrega en segon pla. Si la recàrrega falla, l'entrada antiga es continua
+ * retornant fins que té més de {@code expireAfter}; a partir d'aquí es tracta
+ * com si no hi fos.
+ * <p>
+ * La recàrrega només és possible en les consultes que proporcionen com
+ * carregar el valor, és a dir, les de {@link #get(Object, Callable)} (que
+ * Spring fa servir per als mètodes anotats amb
+ * {@code @Cacheable(sync = true)}). La resta de consultes retornen l'entrada
+ * sense recarregar-la.
+ * <p>
+ * Els resultats buits ({@code null}) es desen tal qual a {@code delegate},
+ * sense data, perquè els pugui tractar a part (vegeu
+ * {@link NegativeCachingCache}): no es recarreguen mai en segon pla, i
+ * caduquen segons la configuració de {@code delegate}.
+ */
+class RefreshAheadCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshAheadCache.class);
+
+    /**
+     * L'entrada dels resultats buits, que no es recarreguen mai.
+     */
+    private static final Entry EMPTY = new Entry(null, Long.MAX_VALUE);
+
+    private final Cache delegate;
+    private final Duration refreshAfter;
+    private final Duration expireAfter;
+    private final Executor executor;
+    private final Clock clock;
+
+    private final Map<Object, Boolean> refreshing = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate
+     *            la cache on es desen les entrades.
+     * @param refreshAfter
+     *            l'edat a partir de la qual una entrada es recarrega (TTL
+     *            "tou").
+     * @param expireAfter
+     *            l'edat a partir de la qual una entrada ja no es retorna (TTL
+     *            "dur"), o {@code null} si no caduquen.
+     * @param executor
+     *            l'executor on es fan les recàrregues.
+     */
+    RefreshAheadCache(Cache delegate, Duration refreshAfter, Duration expireAfter, Executor executor) {
+        this(delegate, refreshAfter, expireAfter, executor, Clock.systemUTC());
+    }
+
+    RefreshAheadCache(Cache delegate, Duration refreshAfter, Duration expireAfter, Executor executor, Clock clock) {
+        Assert.notNull(delegate, "l'argument delegate no pot ser null");
+        Assert.notNull(refreshAfter, "l'argument refreshAfter no pot ser null");
+        Assert.notNull(executor, "l'argument executor no pot ser null");
+        this.delegate = delegate;
+        this.refreshAfter = refreshAfter;
+        this.expireAfter = expireAfter;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Entry entry = getEntry(key);
+        return (entry != null) ? new SimpleValueWrapper(entry.value) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        Entry entry = getEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.value != null && type != null && !type.isInstance(entry.value)) {
+            throw new IllegalStateException(
+                    "El valor de la cache no és del tipus requerit [" + type.getName() + "]: " + entry.value);
+        }
+        return (T) entry.value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Entry entry = getEntry(key);
+        if (entry == null) {
+            entry = load(key, valueLoader);
+        } else if (entry.isOlderThan(refreshAfter, clock.millis())) {
+            refresh(key, valueLoader);
+        }
+        return (T) entry.value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, toStoreValue(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, toStoreValue(value));
+        return (existing != null) ? new SimpleValueWrapper(fromStoreValue(existing.get()).value) : null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    /**
+     * Retorna l'entrada de la cache, si n'hi ha i no ha caducat.
+     */
+    private Entry getEntry(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Entry entry = fromStoreValue(wrapper.get());
+        if (expireAfter != null && entry.isOlderThan(expireAfter, clock.millis())) {
+            return null;
+        }
+        return entry;
+    }
+
+    private Entry load(Object key, Callable<?> valueLoader) {
+        if (delegate.get(key) != null) {
+            // l'entrada ha caducat
+            delegate.evict(key);
+        }
+        // la cache s'encarrega que només es carregui una vegada
+        return fromStoreValue(delegate.get(key, () -> toStoreValue(valueLoader.call())));
+    }
+
+    private void refresh(Object key, Callable<?> valueLoader) {
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    delegate.put(key, toStoreValue(valueLoader.call()));
+                } catch (Exception e) {
+                    logger.warn("No s'ha pogut recarregar l'entrada [{}] de la cache [{}]", key, getName(), e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            logger.warn("No s'ha pogut recarregar l'entrada [{}] de la cache [{}]", key, getName(), e);
+        }
+    }
+
+    private Entry toStoreValue(Object value) {
+        return (value != null) ? new Entry(value, clock.millis()) : null;
+    }
+
+    private static Entry fromStoreValue(Object storeValue) {
+        return (storeValue != null) ? (Entry) storeValue : EMPTY;
+    }
+
+    /**
+     * Un valor de la cache, amb el moment en què s'hi va desar.
+     */
+    private static final class Entry {
+
+        private final Object value;
+        private final long createdAt;
+
+        Entry(Object value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+
+        boolean isOlderThan(Duration age, long now) {
+            return now - createdAt >= age.toMillis();
+        }
+
+    }
+
+}
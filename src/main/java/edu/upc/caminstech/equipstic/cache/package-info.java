@@ -0,0 +1,4 @@
+/**
+ * Configuració opcional de les caches del client, basada en Caffeine.
+ */
+package edu.upc.caminstech.equipstic.cache;
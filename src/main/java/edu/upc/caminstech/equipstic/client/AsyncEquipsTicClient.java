@@ -0,0 +1,329 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import edu.upc.caminstech.equipstic.Ambit;
+import edu.upc.caminstech.equipstic.Campus;
+import edu.upc.caminstech.equipstic.Categoria;
+import edu.upc.caminstech.equipstic.Edifici;
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.SistemaOperatiu;
+import edu.upc.caminstech.equipstic.TipusInfraestructura;
+import edu.upc.caminstech.equipstic.TipusUs;
+import edu.upc.caminstech.equipstic.TipusXarxa;
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.UsuariInfraestructura;
+
+/**
+ * Versió asíncrona de la interfície {@link EquipsTicClient}.
+ * <p>
+ * Ofereix les mateixes operacions, però en comptes de bloquejar el thread que
+ * fa la crida mentre dura la petició al servidor, retornen immediatament un
+ * {@link CompletableFuture} que es completarà amb el resultat de l'operació.
+ * Això permet fer diverses consultes alhora, per exemple:
+ *
+ * <pre>
+ * CompletableFuture&lt;Optional&lt;Unitat&gt;&gt; unitat = client.getUnitatById(idUnitat);
+ * CompletableFuture&lt;List&lt;Estat&gt;&gt; estats = client.getEstats();
+ * CompletableFuture.allOf(unitat, estats).join();
+ * </pre>
+ *
+ * En cas d'error, el {@link CompletableFuture} es completa excepcionalment amb
+ * la mateixa excepció que generaria l'operació equivalent de
+ * {@link EquipsTicClient}.
+ */
+public interface AsyncEquipsTicClient {
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getAmbits()}.
+     */
+    CompletableFuture<List<Ambit>> getAmbits();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getAmbitsByNom(String)}.
+     */
+    CompletableFuture<List<Ambit>> getAmbitsByNom(String nomAmbit);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getAmbitById(long)}.
+     */
+    CompletableFuture<Optional<Ambit>> getAmbitById(long idAmbit);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getAmbitsByCodi(String)}.
+     */
+    CompletableFuture<List<Ambit>> getAmbitsByCodi(String codiAmbit);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getAmbitsByCategoria(long)}.
+     */
+    CompletableFuture<List<Ambit>> getAmbitsByCategoria(long idCategoria);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getCampus()}.
+     */
+    CompletableFuture<List<Campus>> getCampus();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getCampusByCodi(String)}.
+     */
+    CompletableFuture<Optional<Campus>> getCampusByCodi(String codiCampus);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getCampusById(long)}.
+     */
+    CompletableFuture<Optional<Campus>> getCampusById(long idCampus);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getCategories()}.
+     */
+    CompletableFuture<List<Categoria>> getCategories();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getCategoriaById(long)}.
+     */
+    CompletableFuture<Optional<Categoria>> getCategoriaById(long idCategoria);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getEdificis()}.
+     */
+    CompletableFuture<List<Edifici>> getEdificis();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getEdificiById(long)}.
+     */
+    CompletableFuture<Optional<Edifici>> getEdificiById(long idEdifici);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getEdificiByCodiAndCodiCampus(String, String)}.
+     */
+    CompletableFuture<Optional<Edifici>> getEdificiByCodiAndCodiCampus(String codiEdifici, String codiCampus);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getEstats()}.
+     */
+    CompletableFuture<List<Estat>> getEstats();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getEstatByCodi(String)}.
+     */
+    CompletableFuture<Optional<Estat>> getEstatByCodi(String codiEstat);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getEstatsByNom(String)}.
+     */
+    CompletableFuture<List<Estat>> getEstatsByNom(String nomEstat);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getEstatById(long)}.
+     */
+    CompletableFuture<Optional<Estat>> getEstatById(long idEstat);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getMarques()}.
+     */
+    CompletableFuture<List<Marca>> getMarques();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getMarquesByNom(String)}.
+     */
+    CompletableFuture<List<Marca>> getMarquesByNom(String nom);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getMarcaById(long)}.
+     */
+    CompletableFuture<Optional<Marca>> getMarcaById(long idMarca);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusUs()}.
+     */
+    CompletableFuture<List<TipusUs>> getTipusUs();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusUsByUnitat(long)}.
+     */
+    CompletableFuture<List<TipusUs>> getTipusUsByUnitat(long idUnitat);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusUsById(long)}.
+     */
+    CompletableFuture<Optional<TipusUs>> getTipusUsById(long idTipusUs);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusInfraestructura()}.
+     */
+    CompletableFuture<List<TipusInfraestructura>> getTipusInfraestructura();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusInfraestructuraByCategoria(long)}.
+     */
+    CompletableFuture<List<TipusInfraestructura>> getTipusInfraestructuraByCategoria(long idCategoria);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusInfraestructuraBycodi(String)}.
+     */
+    CompletableFuture<Optional<TipusInfraestructura>> getTipusInfraestructuraBycodi(String codi);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusInfraestructuraByNom(String)}.
+     */
+    CompletableFuture<List<TipusInfraestructura>> getTipusInfraestructuraByNom(String nom);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusInfraestructuraById(long)}.
+     */
+    CompletableFuture<Optional<TipusInfraestructura>> getTipusInfraestructuraById(long idTipus);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusXarxa()}.
+     */
+    CompletableFuture<List<TipusXarxa>> getTipusXarxa();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getTipusXarxaById(long)}.
+     */
+    CompletableFuture<Optional<TipusXarxa>> getTipusXarxaById(long idTipusXarxa);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getUnitats()}.
+     */
+    CompletableFuture<List<Unitat>> getUnitats();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getUnitatsByIdentificador(String)}.
+     */
+    CompletableFuture<List<Unitat>> getUnitatsByIdentificador(String identificador);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getUnitatsByNom(String)}.
+     */
+    CompletableFuture<List<Unitat>> getUnitatsByNom(String nom);
+
+    /**
+     * Versió asíncrona de
+     * {@link EquipsTicClient#getUnitatsByNomAndIdentificadorAndCodi(String, String, String)}.
+     */
+    CompletableFuture<List<Unitat>> getUnitatsByNomAndIdentificadorAndCodi(String nom, String identificador,
+            String codiUnitat);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getUnitatById(long)}.
+     */
+    CompletableFuture<Optional<Unitat>> getUnitatById(long idUnitat);
+
+    /**
+     * Versió asíncrona de
+     * {@link EquipsTicClient#getInfraestructuraByMarcaAndNumeroDeSerie(long, String, boolean)}.
+     */
+    CompletableFuture<Optional<Infraestructura>> getInfraestructuraByMarcaAndNumeroDeSerie(long idMarca, String sn,
+            boolean ambDetalls);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getInfraestructuraById(long, boolean)}.
+     */
+    CompletableFuture<Optional<Infraestructura>> getInfraestructuraById(long id, boolean ambDetalls);
+
+    /**
+     * Versió asíncrona de
+     * {@link EquipsTicClient#getInfraestructuresByIds(Collection, boolean)}.
+     */
+    CompletableFuture<Map<Long, Optional<Infraestructura>>> getInfraestructuresByIds(Collection<Long> ids,
+            boolean ambDetalls);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getInfraestructuresByUnitat(long)}.
+     */
+    CompletableFuture<List<Infraestructura>> getInfraestructuresByUnitat(long idUnitat);
+
+    /**
+     * Versió asíncrona de
+     * {@link EquipsTicClient#getInfraestructuresByUnitat(long, boolean)}.
+     */
+    CompletableFuture<List<Infraestructura>> getInfraestructuresByUnitat(long idUnitat, boolean ambDetalls);
+
+    /**
+     * Versió asíncrona de
+     * {@link EquipsTicClient#forEachInfraestructuraByUnitat(long, Consumer)}.
+     * <p>
+     * {@code consumer} s'executa en un fil de l'executor del client.
+     */
+    CompletableFuture<Void> forEachInfraestructuraByUnitat(long idUnitat, Consumer<? super Infraestructura> consumer);
+
+    /**
+     * Versió asíncrona de
+     * {@link EquipsTicClient#getInfraestructuraViewsByUnitat(long)}.
+     */
+    CompletableFuture<List<InfraestructuraView>> getInfraestructuraViewsByUnitat(long idUnitat);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#altaInfraestructura(Infraestructura)}.
+     */
+    CompletableFuture<Infraestructura> altaInfraestructura(Infraestructura infraestructura);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#altaInfraestructures(List)}.
+     */
+    CompletableFuture<List<Infraestructura>> altaInfraestructures(List<Infraestructura> infraestructures);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#baixaInfraestructura(long)}.
+     */
+    CompletableFuture<Void> baixaInfraestructura(long id);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#modificaInfraestructura(Infraestructura)}.
+     */
+    CompletableFuture<Infraestructura> modificaInfraestructura(Infraestructura infraestructura);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#modificaInfraestructures(List)}.
+     */
+    CompletableFuture<List<Infraestructura>> modificaInfraestructures(List<Infraestructura> infraestructures);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getSistemesOperatius()}.
+     */
+    CompletableFuture<List<SistemaOperatiu>> getSistemesOperatius();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getSistemesOperatiusByCategoria(long)}.
+     */
+    CompletableFuture<List<SistemaOperatiu>> getSistemesOperatiusByCategoria(long idCategoria);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getSistemesOperatiusByCodi(String)}.
+     */
+    CompletableFuture<List<SistemaOperatiu>> getSistemesOperatiusByCodi(String codi);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getSistemesOperatiusByNom(String)}.
+     */
+    CompletableFuture<List<SistemaOperatiu>> getSistemesOperatiusByNom(String nom);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getSistemaOperatiuById(long)}.
+     */
+    CompletableFuture<Optional<SistemaOperatiu>> getSistemaOperatiuById(long idSistemaOperatiu);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getUsuariInfraestructura(long)}.
+     */
+    CompletableFuture<Optional<UsuariInfraestructura>> getUsuariInfraestructura(long idUsuariInfraestructura);
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getUsuarisInfraestructura()}.
+     */
+    CompletableFuture<List<UsuariInfraestructura>> getUsuarisInfraestructura();
+
+    /**
+     * Versió asíncrona de {@link EquipsTicClient#getUsuarisInfraestructuraByNom(String)}.
+     */
+    CompletableFuture<List<UsuariInfraestructura>> getUsuarisInfraestructuraByNom(String nom);
+}
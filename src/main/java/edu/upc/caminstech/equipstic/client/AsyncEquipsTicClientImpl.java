@@ -0,0 +1,379 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import edu.upc.caminstech.equipstic.Ambit;
+import edu.upc.caminstech.equipstic.Campus;
+import edu.upc.caminstech.equipstic.Categoria;
+import edu.upc.caminstech.equipstic.Edifici;
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.SistemaOperatiu;
+import edu.upc.caminstech.equipstic.TipusInfraestructura;
+import edu.upc.caminstech.equipstic.TipusUs;
+import edu.upc.caminstech.equipstic.TipusXarxa;
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.UsuariInfraestructura;
+
+/**
+ * Implementació bàsica d'un client asíncron de la API EquipsTIC.
+ * <p>
+ * Delega cada operació en un {@link EquipsTicClient} (i, per tant, reutilitza
+ * els seus DAOs i la seva caché), executant-la en un {@link Executor}. Per
+ * defecte es fa servir el pool de threads de la
+ * {@link EquipsTicClientConfiguration}, de mida
+ * {@link EquipsTicClientSettings#getParallelism()}, de tal forma que el nombre
+ * de peticions simultànies al servidor queda acotat.
+ * <p>
+ * Exemple d'utilització si no feu servir l'Spring Framework:
+ *
+ * <pre>
+ * EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(baseUri, username, password);
+ * AsyncEquipsTicClient client = new AsyncEquipsTicClientImpl(config);
+ * </pre>
+ *
+ * Si feu servir Spring Framework, aquest client es configura automàticament
+ * igual que {@link EquipsTicClientImpl}.
+ *
+ * @see AsyncEquipsTicClient
+ */
+@Component
+public class AsyncEquipsTicClientImpl implements AsyncEquipsTicClient {
+
+    private final EquipsTicClient client;
+    private final Executor executor;
+
+    /**
+     * Constructor a partir d'una configuració.
+     *
+     * @param config
+     *            la configuració del client.
+     */
+    public AsyncEquipsTicClientImpl(EquipsTicClientConfiguration config) {
+        this(new EquipsTicClientImpl(config), config);
+    }
+
+    /**
+     * Constructor a partir d'un client síncron ja existent.
+     *
+     * @param client
+     *            el client en què es delegaran les operacions.
+     * @param config
+     *            la configuració d'on s'obté l'{@link Executor}.
+     */
+    @Autowired
+    public AsyncEquipsTicClientImpl(EquipsTicClient client, EquipsTicClientConfiguration config) {
+        this(client, config.getExecutor());
+    }
+
+    /**
+     * Constructor a partir d'un client síncron i un {@link Executor} propi.
+     *
+     * @param client
+     *            el client en què es delegaran les operacions.
+     * @param executor
+     *            l'executor on s'executaran les operacions.
+     */
+    public AsyncEquipsTicClientImpl(EquipsTicClient client, Executor executor) {
+        Assert.notNull(client, "l'argument client no pot ser null");
+        Assert.notNull(executor, "l'argument executor no pot ser null");
+        this.client = client;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<List<Ambit>> getAmbits() {
+        return CompletableFuture.supplyAsync(() -> client.getAmbits(), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Ambit>> getAmbitsByNom(String nomAmbit) {
+        return CompletableFuture.supplyAsync(() -> client.getAmbitsByNom(nomAmbit), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Ambit>> getAmbitById(long idAmbit) {
+        return CompletableFuture.supplyAsync(() -> client.getAmbitById(idAmbit), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Ambit>> getAmbitsByCodi(String codiAmbit) {
+        return CompletableFuture.supplyAsync(() -> client.getAmbitsByCodi(codiAmbit), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Ambit>> getAmbitsByCategoria(long idCategoria) {
+        return CompletableFuture.supplyAsync(() -> client.getAmbitsByCategoria(idCategoria), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Campus>> getCampus() {
+        return CompletableFuture.supplyAsync(() -> client.getCampus(), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Campus>> getCampusByCodi(String codiCampus) {
+        return CompletableFuture.supplyAsync(() -> client.getCampusByCodi(codiCampus), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Campus>> getCampusById(long idCampus) {
+        return CompletableFuture.supplyAsync(() -> client.getCampusById(idCampus), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Categoria>> getCategories() {
+        return CompletableFuture.supplyAsync(() -> client.getCategories(), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Categoria>> getCategoriaById(long idCategoria) {
+        return CompletableFuture.supplyAsync(() -> client.getCategoriaById(idCategoria), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Edifici>> getEdificis() {
+        return CompletableFuture.supplyAsync(() -> client.getEdificis(), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Edifici>> getEdificiById(long idEdifici) {
+        return CompletableFuture.supplyAsync(() -> client.getEdificiById(idEdifici), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Edifici>> getEdificiByCodiAndCodiCampus(String codiEdifici, String codiCampus) {
+        return CompletableFuture.supplyAsync(() -> client.getEdificiByCodiAndCodiCampus(codiEdifici, codiCampus),
+                executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Estat>> getEstats() {
+        return CompletableFuture.supplyAsync(() -> client.getEstats(), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Estat>> getEstatByCodi(String codiEstat) {
+        return CompletableFuture.supplyAsync(() -> client.getEstatByCodi(codiEstat), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Estat>> getEstatsByNom(String nomEstat) {
+        return CompletableFuture.supplyAsync(() -> client.getEstatsByNom(nomEstat), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Estat>> getEstatById(long idEstat) {
+        return CompletableFuture.supplyAsync(() -> client.getEstatById(idEstat), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Marca>> getMarques() {
+        return CompletableFuture.supplyAsync(() -> client.getMarques(), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Marca>> getMarquesByNom(String nom) {
+        return CompletableFuture.supplyAsync(() -> client.getMarquesByNom(nom), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Marca>> getMarcaById(long idMarca) {
+        return CompletableFuture.supplyAsync(() -> client.getMarcaById(idMarca), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<TipusUs>> getTipusUs() {
+        return CompletableFuture.supplyAsync(() -> client.getTipusUs(), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<TipusUs>> getTipusUsByUnitat(long idUnitat) {
+        return CompletableFuture.supplyAsync(() -> client.getTipusUsByUnitat(idUnitat), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<TipusUs>> getTipusUsById(long idTipusUs) {
+        return CompletableFuture.supplyAsync(() -> client.getTipusUsById(idTipusUs), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<TipusInfraestructura>> getTipusInfraestructura() {
+        return CompletableFuture.supplyAsync(() -> client.getTipusInfraestructura(), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<TipusInfraestructura>> getTipusInfraestructuraByCategoria(long idCategoria) {
+        return CompletableFuture.supplyAsync(() -> client.getTipusInfraestructuraByCategoria(idCategoria), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<TipusInfraestructura>> getTipusInfraestructuraBycodi(String codi) {
+        return CompletableFuture.supplyAsync(() -> client.getTipusInfraestructuraBycodi(codi), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<TipusInfraestructura>> getTipusInfraestructuraByNom(String nom) {
+        return CompletableFuture.supplyAsync(() -> client.getTipusInfraestructuraByNom(nom), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<TipusInfraestructura>> getTipusInfraestructuraById(long idTipus) {
+        return CompletableFuture.supplyAsync(() -> client.getTipusInfraestructuraById(idTipus), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<TipusXarxa>> getTipusXarxa() {
+        return CompletableFuture.supplyAsync(() -> client.getTipusXarxa(), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<TipusXarxa>> getTipusXarxaById(long idTipusXarxa) {
+        return CompletableFuture.supplyAsync(() -> client.getTipusXarxaById(idTipusXarxa), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Unitat>> getUnitats() {
+        return CompletableFuture.supplyAsync(() -> client.getUnitats(), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Unitat>> getUnitatsByIdentificador(String identificador) {
+        return CompletableFuture.supplyAsync(() -> client.getUnitatsByIdentificador(identificador), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Unitat>> getUnitatsByNom(String nom) {
+        return CompletableFuture.supplyAsync(() -> client.getUnitatsByNom(nom), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Unitat>> getUnitatsByNomAndIdentificadorAndCodi(String nom, String identificador,
+            String codiUnitat) {
+        return CompletableFuture.supplyAsync(
+                () -> client.getUnitatsByNomAndIdentificadorAndCodi(nom, identificador, codiUnitat), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Unitat>> getUnitatById(long idUnitat) {
+        return CompletableFuture.supplyAsync(() -> client.getUnitatById(idUnitat), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Infraestructura>> getInfraestructuraByMarcaAndNumeroDeSerie(long idMarca,
+            String sn, boolean ambDetalls) {
+        return CompletableFuture.supplyAsync(
+                () -> client.getInfraestructuraByMarcaAndNumeroDeSerie(idMarca, sn, ambDetalls), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Infraestructura>> getInfraestructuraById(long id, boolean ambDetalls) {
+        return CompletableFuture.supplyAsync(() -> client.getInfraestructuraById(id, ambDetalls), executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, Optional<Infraestructura>>> getInfraestructuresByIds(Collection<Long> ids,
+            boolean ambDetalls) {
+        return CompletableFuture.supplyAsync(() -> client.getInfraestructuresByIds(ids, ambDetalls), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Infraestructura>> getInfraestructuresByUnitat(long idUnitat) {
+        return CompletableFuture.supplyAsync(() -> client.getInfraestructuresByUnitat(idUnitat), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Infraestructura>> getInfraestructuresByUnitat(long idUnitat, boolean ambDetalls) {
+        return CompletableFuture.supplyAsync(() -> client.getInfraestructuresByUnitat(idUnitat, ambDetalls),
+                executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> forEachInfraestructuraByUnitat(long idUnitat,
+            Consumer<? super Infraestructura> consumer) {
+        return CompletableFuture.runAsync(() -> client.forEachInfraestructuraByUnitat(idUnitat, consumer), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<InfraestructuraView>> getInfraestructuraViewsByUnitat(long idUnitat) {
+        return CompletableFuture.supplyAsync(() -> client.getInfraestructuraViewsByUnitat(idUnitat), executor);
+    }
+
+    @Override
+    public CompletableFuture<Infraestructura> altaInfraestructura(Infraestructura infraestructura) {
+        return CompletableFuture.supplyAsync(() -> client.altaInfraestructura(infraestructura), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Infraestructura>> altaInfraestructures(List<Infraestructura> infraestructures) {
+        return CompletableFuture.supplyAsync(() -> client.altaInfraestructures(infraestructures), executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> baixaInfraestructura(long id) {
+        return CompletableFuture.runAsync(() -> client.baixaInfraestructura(id), executor);
+    }
+
+    @Override
+    public CompletableFuture<Infraestructura> modificaInfraestructura(Infraestructura infraestructura) {
+        return CompletableFuture.supplyAsync(() -> client.modificaInfraestructura(infraestructura), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<Infraestructura>> modificaInfraestructures(
+            List<Infraestructura> infraestructures) {
+        return CompletableFuture.supplyAsync(() -> client.modificaInfraestructures(infraestructures), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<SistemaOperatiu>> getSistemesOperatius() {
+        return CompletableFuture.supplyAsync(() -> client.getSistemesOperatius(), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<SistemaOperatiu>> getSistemesOperatiusByCategoria(long idCategoria) {
+        return CompletableFuture.supplyAsync(() -> client.getSistemesOperatiusByCategoria(idCategoria), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<SistemaOperatiu>> getSistemesOperatiusByCodi(String codi) {
+        return CompletableFuture.supplyAsync(() -> client.getSistemesOperatiusByCodi(codi), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<SistemaOperatiu>> getSistemesOperatiusByNom(String nom) {
+        return CompletableFuture.supplyAsync(() -> client.getSistemesOperatiusByNom(nom), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SistemaOperatiu>> getSistemaOperatiuById(long idSistemaOperatiu) {
+        return CompletableFuture.supplyAsync(() -> client.getSistemaOperatiuById(idSistemaOperatiu), executor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<UsuariInfraestructura>> getUsuariInfraestructura(long idUsuariInfraestructura) {
+        return CompletableFuture.supplyAsync(() -> client.getUsuariInfraestructura(idUsuariInfraestructura), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<UsuariInfraestructura>> getUsuarisInfraestructura() {
+        return CompletableFuture.supplyAsync(() -> client.getUsuarisInfraestructura(), executor);
+    }
+
+    @Override
+    public CompletableFuture<List<UsuariInfraestructura>> getUsuarisInfraestructuraByNom(String nom) {
+        return CompletableFuture.supplyAsync(() -> client.getUsuarisInfraestructuraByNom(nom), executor);
+    }
+
+}
@@ -1,7 +1,10 @@
 package edu.upc.caminstech.equipstic.client;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import edu.upc.caminstech.equipstic.Ambit;
 import edu.upc.caminstech.equipstic.Campus;
@@ -16,6 +19,8 @@ import edu.upc.caminstech.equipstic.TipusUs;
 import edu.upc.caminstech.equipstic.TipusXarxa;
 import edu.upc.caminstech.equipstic.Unitat;
 import edu.upc.caminstech.equipstic.UsuariInfraestructura;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicBatchException;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicBatchWriteException;
 import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
 import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
 
@@ -255,6 +260,28 @@ public interface EquipsTicClient {
      */
     Optional<Infraestructura> getInfraestructuraById(long id, boolean ambDetalls);
 
+    /**
+     * Obté un conjunt d'infraestructures a partir dels seus identificadors.
+     * <p>
+     * Equival a cridar {@link #getInfraestructuraById(long, boolean)} per cada
+     * identificador, però les peticions al servidor es fan en paral·lel (com a
+     * màxim {@link EquipsTicClientSettings#getParallelism()} alhora), els
+     * identificadors repetits només es demanen una vegada, i les
+     * infraestructures que ja són a la cache no es tornen a demanar.
+     * 
+     * @param ids
+     *            els identificadors de les infraestructures a obtenir.
+     * @param ambDetalls
+     *            vegeu {@link #getInfraestructuraById(long, boolean)}.
+     * @return un mapa amb una entrada per cada identificador diferent, en
+     *         l'ordre en què apareixen a {@code ids}.
+     * @throws EquipsTicBatchException
+     *             si alguna de les peticions falla. La resta de peticions es
+     *             completen igualment, i els seus resultats són a
+     *             {@link EquipsTicBatchException#getResults()}.
+     */
+    Map<Long, Optional<Infraestructura>> getInfraestructuresByIds(Collection<Long> ids, boolean ambDetalls);
+
     /**
      * Cerca d'infraestructures a partir d'una unitat.
      * <p>
@@ -264,6 +291,58 @@ public interface EquipsTicClient {
      */
     List<Infraestructura> getInfraestructuresByUnitat(long idUnitat);
 
+    /**
+     * Cerca d'infraestructures a partir d'una unitat, opcionalment amb tots
+     * els detalls.
+     * <p>
+     * Si {@code ambDetalls} és {@code true}, els detalls de cada
+     * infraestructura es demanen en paral·lel (com a màxim
+     * {@link EquipsTicClientSettings#getParallelism()} peticions alhora) a
+     * mesura que es rep la llista de la unitat. La llista retornada està
+     * ordenada igual que la de {@link #getInfraestructuresByUnitat(long)}.
+     * 
+     * @param ambDetalls
+     *            vegeu {@link #getInfraestructuraById(long, boolean)}.
+     * @throws UnauthorizedException
+     *             si l'usuari no és un gestor de la unitat donada.
+     * @throws EquipsTicBatchException
+     *             si no s'han pogut obtenir els detalls d'alguna
+     *             infraestructura.
+     */
+    List<Infraestructura> getInfraestructuresByUnitat(long idUnitat, boolean ambDetalls);
+
+    /**
+     * Recorre les infraestructures d'una unitat a mesura que es reben del
+     * servidor.
+     * <p>
+     * A diferència de {@link #getInfraestructuresByUnitat(long)}, no es
+     * construeix cap llista: cada infraestructura es passa a {@code consumer}
+     * tan aviat com s'ha descodificat, en l'ordre en què les retorna el
+     * servidor (no ordenades). És útil per processar unitats amb moltes
+     * infraestructures sense haver-les de tenir totes en memòria. El resultat
+     * no es desa a la cache.
+     * 
+     * @throws UnauthorizedException
+     *             si l'usuari no és un gestor de la unitat donada.
+     */
+    void forEachInfraestructuraByUnitat(long idUnitat, Consumer<? super Infraestructura> consumer);
+
+    /**
+     * Cerca d'infraestructures a partir d'una unitat, com a
+     * {@link InfraestructuraView}.
+     * <p>
+     * Retorna les mateixes infraestructures que
+     * {@link #getInfraestructuresByUnitat(long)}, i en el mateix ordre, però en
+     * una representació que ocupa molta menys memòria. Les infraestructures
+     * es converteixen a mesura que es reben del servidor, de tal forma que mai
+     * no cal tenir-les totes en memòria com a {@link Infraestructura}. El
+     * resultat no es desa a la cache.
+     * 
+     * @throws UnauthorizedException
+     *             si l'usuari no és un gestor de la unitat donada.
+     */
+    List<InfraestructuraView> getInfraestructuraViewsByUnitat(long idUnitat);
+
     /**
      * Dóna d'alta una nova infraestructura.
      * 
@@ -279,6 +358,26 @@ public interface EquipsTicClient {
      */
     Infraestructura altaInfraestructura(Infraestructura infraestructura);
 
+    /**
+     * Dóna d'alta un lot d'infraestructures noves.
+     * <p>
+     * Equival a cridar {@link #altaInfraestructura(Infraestructura)} per cada
+     * infraestructura, però les peticions al servidor es fan en paral·lel (com
+     * a màxim {@link EquipsTicClientSettings#getParallelism()} alhora), i la
+     * cache s'actualitza una sola vegada, quan han acabat totes.
+     * 
+     * @param infraestructures
+     *            les infraestructures a crear.
+     * @return les infraestructures creades, amb l'identificador assignat, en
+     *         el mateix ordre que {@code infraestructures}.
+     * @throws EquipsTicBatchWriteException
+     *             si alguna de les altes falla. La resta d'altes es completen
+     *             igualment, i els seus resultats són a
+     *             {@link EquipsTicBatchWriteException#getResults()}, indexats
+     *             per la posició de la infraestructura a la llista.
+     */
+    List<Infraestructura> altaInfraestructures(List<Infraestructura> infraestructures);
+
     /**
      * Dóna de baixa (esborra) una infraestructura a partir del seu
      * identificador.
@@ -303,6 +402,28 @@ public interface EquipsTicClient {
      */
     Infraestructura modificaInfraestructura(Infraestructura infraestructura);
 
+    /**
+     * Modifica un lot d'infraestructures.
+     * <p>
+     * Equival a cridar {@link #modificaInfraestructura(Infraestructura)} per
+     * cada infraestructura, però les peticions al servidor es fan en paral·lel
+     * (com a màxim {@link EquipsTicClientSettings#getParallelism()} alhora), i
+     * la cache s'actualitza una sola vegada, quan han acabat totes. La llista
+     * no hauria de contenir la mateixa infraestructura més d'una vegada,
+     * perquè no es pot saber quina modificació s'aplicarà l'última.
+     * 
+     * @param infraestructures
+     *            les noves infraestructures que substituiran les antigues.
+     * @return les infraestructures un cop modificades, en el mateix ordre que
+     *         {@code infraestructures}.
+     * @throws EquipsTicBatchWriteException
+     *             si alguna de les modificacions falla. La resta de
+     *             modificacions es completen igualment, i els seus resultats
+     *             són a {@link EquipsTicBatchWriteException#getResults()},
+     *             indexats per la posició de la infraestructura a la llista.
+     */
+    List<Infraestructura> modificaInfraestructures(List<Infraestructura> infraestructures);
+
     /**
      * Retorna tots els sistemes operatius inventariats.
      */
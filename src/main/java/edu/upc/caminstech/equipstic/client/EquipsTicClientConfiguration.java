@@ -1,18 +1,43 @@
 package edu.upc.caminstech.equipstic.client;
 
+import java.io.Closeable;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.util.Assert;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * Aquesta classe encapsula la configuració d'un client.
+ * <p>
+ * La configuració manté obertes les connexions amb el servidor (i els fils de
+ * l'executor del client) fins que es tanca amb {@link #close()}.
  */
-public class EquipsTicClientConfiguration {
+public class EquipsTicClientConfiguration implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EquipsTicClientConfiguration.class);
 
     private final URI baseUri;
+    private final String username;
+    private final String password;
+    private final EquipsTicClientSettings settings;
+    private final ClientHttpRequestFactory requestFactory;
     private final RestTemplate restTemplate;
+    private volatile ExecutorService executor;
+    private boolean ownExecutor = true;
+    private Closeable reactiveResources;
 
     /**
      * Construeix una configuració que es pot utilitzar per instanciar un nou
@@ -28,19 +53,188 @@ public class EquipsTicClientConfiguration {
      *             si {@code baseUri} no és una URL vàlida.
      */
     public EquipsTicClientConfiguration(String baseUri, String username, String password) throws URISyntaxException {
+        this(baseUri, username, password, new EquipsTicClientSettings());
+    }
+
+    /**
+     * Construeix una configuració amb paràmetres de connexió personalitzats.
+     * 
+     * @param baseUri
+     *            la URL on el servidor EquipsTIC publica la API REST.
+     * @param username
+     *            el vostre username del bus SOA.
+     * @param password
+     *            el vostre password del bus SOA.
+     * @param settings
+     *            els paràmetres opcionals del client (pool de connexions,
+     *            etc.).
+     * @throws URISyntaxException
+     *             si {@code baseUri} no és una URL vàlida.
+     * @see EquipsTicClientSettings
+     */
+    public EquipsTicClientConfiguration(String baseUri, String username, String password,
+            EquipsTicClientSettings settings) throws URISyntaxException {
         Assert.notNull(baseUri, "l'argument baseUri no pot ser null");
         Assert.notNull(username, "l'argument username no pot ser null");
         Assert.notNull(password, "l'argument password no pot ser null");
+        Assert.notNull(settings, "l'argument settings no pot ser null");
 
         this.baseUri = new URI(baseUri);
-        this.restTemplate = EquipsTicRestTemplateBuilder.createRestTemplate(this.baseUri, username, password);
+        this.username = username;
+        this.password = password;
+        this.settings = settings;
+        this.requestFactory = EquipsTicRestTemplateBuilder.createRequestFactory(this.baseUri, username, password,
+                settings);
+        this.restTemplate = EquipsTicRestTemplateBuilder.createRestTemplate(requestFactory, settings);
+    }
+
+    /**
+     * Construeix una configuració amb paràmetres de connexió personalitzats i
+     * un {@link ExecutorService} propi, on el client executarà les operacions
+     * en segon pla i les peticions en paral·lel (vegeu {@link #getExecutor()}).
+     * <p>
+     * El client no atura mai l'executor; és responsabilitat de qui el crea.
+     * 
+     * @param baseUri
+     *            la URL on el servidor EquipsTIC publica la API REST.
+     * @param username
+     *            el vostre username del bus SOA.
+     * @param password
+     *            el vostre password del bus SOA.
+     * @param settings
+     *            els paràmetres opcionals del client (pool de connexions,
+     *            etc.).
+     * @param executor
+     *            l'executor del client.
+     * @throws URISyntaxException
+     *             si {@code baseUri} no és una URL vàlida.
+     */
+    public EquipsTicClientConfiguration(String baseUri, String username, String password,
+            EquipsTicClientSettings settings, ExecutorService executor) throws URISyntaxException {
+        this(baseUri, username, password, settings);
+        Assert.notNull(executor, "l'argument executor no pot ser null");
+        this.executor = executor;
+        this.ownExecutor = false;
     }
 
     public URI getBaseUri() {
         return baseUri;
     }
 
+    public EquipsTicClientSettings getSettings() {
+        return settings;
+    }
+
     public RestTemplate getRestTemplate() {
         return restTemplate;
     }
+
+    /**
+     * Retorna l'{@link ObjectMapper} que fa servir el client per
+     * (de)serialitzar el JSON de la API.
+     */
+    public ObjectMapper getObjectMapper() {
+        return EquipsTicRestTemplateBuilder.getObjectMapper(restTemplate);
+    }
+
+    String getUsername() {
+        return username;
+    }
+
+    String getPassword() {
+        return password;
+    }
+
+    /**
+     * Retorna els recursos que comparteixen els DAO reactius (vegeu
+     * {@link EquipsTicWebClientBuilder#getWebClient(EquipsTicClientConfiguration)}),
+     * i els crea amb {@code factory} la primera vegada. Es tanquen amb
+     * {@link #close()}.
+     * <p>
+     * Es declaren com a {@link Closeable} perquè les llibreries del client
+     * reactiu són opcionals.
+     */
+    synchronized Closeable getReactiveResources(Supplier<? extends Closeable> factory) {
+        if (reactiveResources == null) {
+            reactiveResources = factory.get();
+        }
+        return reactiveResources;
+    }
+
+    /**
+     * Retorna l'{@link Executor} on el client executa les operacions en segon
+     * pla i les peticions en paral·lel (consultes per lots, càrrega dels
+     * detalls de les infraestructures, càrrega dels catàlegs...).
+     * <p>
+     * Si no s'ha indicat cap executor en construir la configuració, es crea la
+     * primera vegada que es necessita: un fil virtual per tasca si
+     * {@link EquipsTicClientSettings#isVirtualThreads()} és {@code true} i la
+     * JVM els suporta, o si no un pool de
+     * {@link EquipsTicClientSettings#getParallelism()} threads (de tipus
+     * <em>daemon</em>).
+     */
+    public Executor getExecutor() {
+        ExecutorService result = executor;
+        if (result == null) {
+            synchronized (this) {
+                result = executor;
+                if (result == null) {
+                    result = createExecutor();
+                    executor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tanca les connexions amb el servidor i, si no s'ha indicat cap executor
+     * en construir la configuració, atura el de {@link #getExecutor()}. Els
+     * clients que fan servir aquesta configuració ja no es poden fer servir.
+     * <p>
+     * Si la configuració es defineix com a <em>Spring Bean</em>, Spring la
+     * tanca automàticament en aturar el context.
+     */
+    @Override
+    public void close() {
+        try {
+            if (requestFactory instanceof Closeable) {
+                ((Closeable) requestFactory).close();
+            } else if (requestFactory instanceof DisposableBean) {
+                ((DisposableBean) requestFactory).destroy();
+            }
+        } catch (Exception e) {
+            logger.warn("No s'han pogut tancar les connexions del client", e);
+        }
+        closeReactiveResources();
+        ExecutorService result = executor;
+        if (ownExecutor && result != null) {
+            result.shutdown();
+        }
+    }
+
+    private synchronized void closeReactiveResources() {
+        if (reactiveResources == null) {
+            return;
+        }
+        try {
+            reactiveResources.close();
+        } catch (Exception e) {
+            logger.warn("No s'han pogut tancar les connexions del client reactiu", e);
+        }
+        reactiveResources = null;
+    }
+
+    private ExecutorService createExecutor() {
+        if (settings.isVirtualThreads()) {
+            Optional<ExecutorService> virtual = VirtualThreads.newThreadPerTaskExecutor("equipstic-client-");
+            if (virtual.isPresent()) {
+                return virtual.get();
+            }
+            logger.info("La JVM no suporta fils virtuals; el client farà servir un pool de {} threads",
+                    settings.getParallelism());
+        }
+        return Executors.newFixedThreadPool(settings.getParallelism(),
+                new BasicThreadFactory.Builder().namingPattern("equipstic-client-%d").daemon(true).build());
+    }
 }
@@ -1,8 +1,15 @@
 package edu.upc.caminstech.equipstic.client;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.ComponentScan;
@@ -122,6 +129,8 @@ import edu.upc.caminstech.equipstic.client.dao.UsuariInfraestructuraDaoImpl;
 @Component
 public class EquipsTicClientImpl implements EquipsTicClient {
 
+    private static final Logger logger = LoggerFactory.getLogger(EquipsTicClientImpl.class);
+
     @Autowired
     private AmbitDao ambitDao;
 
@@ -161,6 +170,8 @@ public class EquipsTicClientImpl implements EquipsTicClient {
     @Autowired
     private UsuariInfraestructuraDao usuariInfraestructuraDao;
 
+    private ReferenceDataIndex referenceDataIndex;
+
     public EquipsTicClientImpl() {
     }
 
@@ -185,6 +196,36 @@ public class EquipsTicClientImpl implements EquipsTicClient {
         unitatDao = new UnitatDaoImpl(config);
         usuariInfraestructuraDao = new UsuariInfraestructuraDaoImpl(config);
         infraestructuraDao = new InfraestructuraDaoImpl(config);
+        setConfiguration(config);
+    }
+
+    /**
+     * Aplica la configuració que no depèn dels DAO: crea el
+     * {@link ReferenceDataIndex} si
+     * {@link EquipsTicClientSettings#isReferenceDataIndex()} és {@code true}.
+     */
+    @Autowired
+    public void setConfiguration(EquipsTicClientConfiguration config) {
+        EquipsTicClientSettings settings = config.getSettings();
+        referenceDataIndex = settings.isReferenceDataIndex()
+                ? new ReferenceDataIndex(this, settings.getReferenceDataRefreshInterval(),
+                        settings.getReferenceDataSnapshotFile(), config.getExecutor())
+                : null;
+    }
+
+    /**
+     * Retorna l'índex en memòria de les dades de referència, si està activat.
+     */
+    public Optional<ReferenceDataIndex> getReferenceDataIndex() {
+        return Optional.ofNullable(referenceDataIndex);
+    }
+
+    /**
+     * Estableix l'índex en memòria amb què es responen les consultes de
+     * catàlegs per identificador i per codi, o {@code null} per desactivar-lo.
+     */
+    public void setReferenceDataIndex(ReferenceDataIndex referenceDataIndex) {
+        this.referenceDataIndex = referenceDataIndex;
     }
 
     @Autowired
@@ -209,12 +250,12 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<Ambit> getAmbitById(long idAmbit) {
-        return ambitDao.getAmbitById(idAmbit);
+        return lookup(index -> index.getAmbitById(idAmbit), () -> ambitDao.getAmbitById(idAmbit));
     }
 
     @Override
     public List<Ambit> getAmbitsByCodi(String codiAmbit) {
-        return ambitDao.getAmbitsByCodi(codiAmbit);
+        return search(index -> index.getAmbitsByCodi(codiAmbit), () -> ambitDao.getAmbitsByCodi(codiAmbit));
     }
 
     @Override
@@ -229,12 +270,12 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<Campus> getCampusByCodi(String codiCampus) {
-        return campusDao.getCampusByCodi(codiCampus);
+        return lookup(index -> index.getCampusByCodi(codiCampus), () -> campusDao.getCampusByCodi(codiCampus));
     }
 
     @Override
     public Optional<Campus> getCampusById(long idCampus) {
-        return campusDao.getCampusById(idCampus);
+        return lookup(index -> index.getCampusById(idCampus), () -> campusDao.getCampusById(idCampus));
     }
 
     @Override
@@ -244,7 +285,7 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<Categoria> getCategoriaById(long idCategoria) {
-        return categoriaDao.getCategoriaById(idCategoria);
+        return lookup(index -> index.getCategoriaById(idCategoria), () -> categoriaDao.getCategoriaById(idCategoria));
     }
 
     @Override
@@ -254,12 +295,13 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<Edifici> getEdificiById(long idEdifici) {
-        return edificiDao.getEdificiById(idEdifici);
+        return lookup(index -> index.getEdificiById(idEdifici), () -> edificiDao.getEdificiById(idEdifici));
     }
 
     @Override
     public Optional<Edifici> getEdificiByCodiAndCodiCampus(String codiEdifici, String codiCampus) {
-        return edificiDao.getEdificiByCodiAndCodiCampus(codiEdifici, codiCampus);
+        return lookup(index -> index.getEdificiByCodiAndCodiCampus(codiEdifici, codiCampus),
+                () -> edificiDao.getEdificiByCodiAndCodiCampus(codiEdifici, codiCampus));
     }
 
     @Override
@@ -269,7 +311,7 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<Estat> getEstatByCodi(String codiEstat) {
-        return estatDao.getEstatByCodi(codiEstat);
+        return lookup(index -> index.getEstatByCodi(codiEstat), () -> estatDao.getEstatByCodi(codiEstat));
 
     }
 
@@ -280,7 +322,7 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<Estat> getEstatById(long idEstat) {
-        return estatDao.getEstatById(idEstat);
+        return lookup(index -> index.getEstatById(idEstat), () -> estatDao.getEstatById(idEstat));
     }
 
     @Override
@@ -295,7 +337,7 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<Marca> getMarcaById(long idMarca) {
-        return marcaDao.getMarcaById(idMarca);
+        return lookup(index -> index.getMarcaById(idMarca), () -> marcaDao.getMarcaById(idMarca));
     }
 
     @Override
@@ -310,7 +352,7 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<TipusUs> getTipusUsById(long idTipusUs) {
-        return tipusUsDao.getTipusUsById(idTipusUs);
+        return lookup(index -> index.getTipusUsById(idTipusUs), () -> tipusUsDao.getTipusUsById(idTipusUs));
     }
 
     @Override
@@ -325,7 +367,8 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<TipusInfraestructura> getTipusInfraestructuraBycodi(String codi) {
-        return tipusInfraestructuraDao.getTipusInfraestructuraBycodi(codi);
+        return lookup(index -> index.getTipusInfraestructuraByCodi(codi),
+                () -> tipusInfraestructuraDao.getTipusInfraestructuraBycodi(codi));
     }
 
     @Override
@@ -335,7 +378,8 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<TipusInfraestructura> getTipusInfraestructuraById(long idTipus) {
-        return tipusInfraestructuraDao.getTipusInfraestructuraById(idTipus);
+        return lookup(index -> index.getTipusInfraestructuraById(idTipus),
+                () -> tipusInfraestructuraDao.getTipusInfraestructuraById(idTipus));
     }
 
     @Override
@@ -345,7 +389,8 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<TipusXarxa> getTipusXarxaById(long idTipusXarxa) {
-        return tipusXarxaDao.getTipusXarxaById(idTipusXarxa);
+        return lookup(index -> index.getTipusXarxaById(idTipusXarxa),
+                () -> tipusXarxaDao.getTipusXarxaById(idTipusXarxa));
     }
 
     @Override
@@ -355,7 +400,8 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public List<Unitat> getUnitatsByIdentificador(String identificador) {
-        return unitatDao.getUnitatByIdentificador(identificador);
+        return search(index -> index.getUnitatsByIdentificador(identificador),
+                () -> unitatDao.getUnitatByIdentificador(identificador));
     }
 
     @Override
@@ -370,7 +416,7 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<Unitat> getUnitatById(long idUnitat) {
-        return unitatDao.getUnitatById(idUnitat);
+        return lookup(index -> index.getUnitatById(idUnitat), () -> unitatDao.getUnitatById(idUnitat));
     }
 
     @Override
@@ -399,16 +445,41 @@ public class EquipsTicClientImpl implements EquipsTicClient {
         return infraestructuraDao.getInfraestructuraById(id, ambDetalls);
     }
 
+    @Override
+    public Map<Long, Optional<Infraestructura>> getInfraestructuresByIds(Collection<Long> ids, boolean ambDetalls) {
+        return infraestructuraDao.getInfraestructuresByIds(ids, ambDetalls);
+    }
+
     @Override
     public List<Infraestructura> getInfraestructuresByUnitat(long idUnitat) {
         return infraestructuraDao.getInfraestructuresByUnitat(idUnitat);
     }
 
+    @Override
+    public List<Infraestructura> getInfraestructuresByUnitat(long idUnitat, boolean ambDetalls) {
+        return infraestructuraDao.getInfraestructuresByUnitat(idUnitat, ambDetalls);
+    }
+
+    @Override
+    public void forEachInfraestructuraByUnitat(long idUnitat, Consumer<? super Infraestructura> consumer) {
+        infraestructuraDao.forEachInfraestructuraByUnitat(idUnitat, consumer);
+    }
+
+    @Override
+    public List<InfraestructuraView> getInfraestructuraViewsByUnitat(long idUnitat) {
+        return infraestructuraDao.getInfraestructuraViewsByUnitat(idUnitat);
+    }
+
     @Override
     public Infraestructura altaInfraestructura(Infraestructura infraestructura) {
         return infraestructuraDao.altaInfraestructura(infraestructura);
     }
 
+    @Override
+    public List<Infraestructura> altaInfraestructures(List<Infraestructura> infraestructures) {
+        return infraestructuraDao.altaInfraestructures(infraestructures);
+    }
+
     @Override
     public void baixaInfraestructura(long id) {
         infraestructuraDao.baixaInfraestructura(id);
@@ -419,6 +490,11 @@ public class EquipsTicClientImpl implements EquipsTicClient {
         return infraestructuraDao.modificaInfraestructura(infraestructura);
     }
 
+    @Override
+    public List<Infraestructura> modificaInfraestructures(List<Infraestructura> infraestructures) {
+        return infraestructuraDao.modificaInfraestructures(infraestructures);
+    }
+
     @Override
     public List<SistemaOperatiu> getSistemesOperatius() {
         return sistemaOperatiuDao.getSistemesOperatius();
@@ -431,7 +507,8 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public List<SistemaOperatiu> getSistemesOperatiusByCodi(String codi) {
-        return sistemaOperatiuDao.getSistemesOperatiusByCodi(codi);
+        return search(index -> index.getSistemesOperatiusByCodi(codi),
+                () -> sistemaOperatiuDao.getSistemesOperatiusByCodi(codi));
     }
 
     @Override
@@ -441,7 +518,46 @@ public class EquipsTicClientImpl implements EquipsTicClient {
 
     @Override
     public Optional<SistemaOperatiu> getSistemaOperatiuById(long idSistemaOperatiu) {
-        return sistemaOperatiuDao.getSistemaOperatiuById(idSistemaOperatiu);
+        return lookup(index -> index.getSistemaOperatiuById(idSistemaOperatiu),
+                () -> sistemaOperatiuDao.getSistemaOperatiuById(idSistemaOperatiu));
+    }
+
+    /**
+     * Consulta un element a l'índex de dades de referència, si està activat, i
+     * si no hi és (o no s'ha pogut carregar l'índex) el consulta al servidor.
+     */
+    private <T> Optional<T> lookup(Function<ReferenceDataIndex, Optional<T>> local, Supplier<Optional<T>> remote) {
+        ReferenceDataIndex index = referenceDataIndex;
+        if (index != null) {
+            try {
+                Optional<T> result = local.apply(index);
+                if (result.isPresent()) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                logger.debug("No s'ha pogut consultar l'índex de dades de referència", e);
+            }
+        }
+        return remote.get();
+    }
+
+    /**
+     * Com {@link #lookup(Function, Supplier)}, per a les consultes que poden
+     * retornar més d'un element.
+     */
+    private <T> List<T> search(Function<ReferenceDataIndex, List<T>> local, Supplier<List<T>> remote) {
+        ReferenceDataIndex index = referenceDataIndex;
+        if (index != null) {
+            try {
+                List<T> result = local.apply(index);
+                if (!result.isEmpty()) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                logger.debug("No s'ha pogut consultar l'índex de dades de referència", e);
+            }
+        }
+        return remote.get();
     }
 
 }
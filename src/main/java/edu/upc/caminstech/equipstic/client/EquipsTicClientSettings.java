@@ -0,0 +1,364 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Paràmetres opcionals per ajustar el comportament d'un client.
+ * <p>
+ * Tots els paràmetres tenen un valor per defecte raonable, de tal forma que
+ * només cal modificar els que us interessin abans de crear la
+ * {@link EquipsTicClientConfiguration}. Exemple:
+ *
+ * <pre>
+ * EquipsTicClientSettings settings = new EquipsTicClientSettings();
+ * settings.setMaxConnectionsPerRoute(40);
+ * EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(baseUri, username, password, settings);
+ * </pre>
+ *
+ * No s'ha de modificar aquest objecte un cop creada la configuració.
+ */
+public class EquipsTicClientSettings {
+
+    private int maxConnectionsTotal = 50;
+    private int maxConnectionsPerRoute = 20;
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    private Duration connectionTimeToLive = Duration.ofMinutes(5);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private boolean evictExpiredConnections = true;
+    private boolean preemptiveAuthentication = false;
+    private int parallelism = 8;
+    private boolean cacheWriteThrough = false;
+    private boolean requestCoalescing = false;
+    private boolean referenceDataIndex = false;
+    private Duration referenceDataRefreshInterval = Duration.ofHours(1);
+    private Path referenceDataSnapshotFile = null;
+    private boolean conditionalRequests = false;
+    private int conditionalRequestsMaxEntries = 1000;
+    private boolean responseCompression = true;
+    private boolean requestCompression = false;
+    private HttpTransport transport = HttpTransport.HTTP_1_1;
+    private Duration connectTimeout = null;
+    private Duration responseTimeout = null;
+    private boolean virtualThreads = false;
+
+    /**
+     * Nombre màxim de connexions HTTP obertes simultàniament (per a totes les
+     * rutes). Per defecte, 50.
+     */
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    /**
+     * Nombre màxim de connexions HTTP obertes simultàniament contra un mateix
+     * servidor. Per defecte, 20.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Temps d'inactivitat a partir del qual es comprova que una connexió del
+     * pool continua sent vàlida abans de reutilitzar-la. Per defecte, 2
+     * segons.
+     */
+    public Duration getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Temps de vida màxim d'una connexió, independentment de si està en ús o
+     * no. Per defecte, 5 minuts. Amb {@code null} les connexions no caduquen.
+     */
+    public Duration getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    public void setConnectionTimeToLive(Duration connectionTimeToLive) {
+        this.connectionTimeToLive = connectionTimeToLive;
+    }
+
+    /**
+     * Temps màxim que una connexió pot estar inactiva al pool abans de ser
+     * tancada en segon pla. Per defecte, 30 segons. Amb {@code null} no es
+     * tanquen les connexions inactives.
+     */
+    public Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(Duration maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * Indica si s'han de tancar en segon pla les connexions que hagin superat
+     * el seu temps de vida. Per defecte, {@code true}.
+     */
+    public boolean isEvictExpiredConnections() {
+        return evictExpiredConnections;
+    }
+
+    public void setEvictExpiredConnections(boolean evictExpiredConnections) {
+        this.evictExpiredConnections = evictExpiredConnections;
+    }
+
+    /**
+     * Indica si les credencials s'han d'enviar en la primera petició, sense
+     * esperar que el servidor les demani amb una resposta 401. Per defecte,
+     * {@code false}.
+     * <p>
+     * Activar-ho estalvia una petició extra (la que rep el 401) per cada crida
+     * al servidor.
+     */
+    public boolean isPreemptiveAuthentication() {
+        return preemptiveAuthentication;
+    }
+
+    public void setPreemptiveAuthentication(boolean preemptiveAuthentication) {
+        this.preemptiveAuthentication = preemptiveAuthentication;
+    }
+
+    /**
+     * Nombre màxim de peticions que el client fa en paral·lel quan treballa
+     * en segon pla (per exemple, amb {@link AsyncEquipsTicClient}) o en les
+     * operacions per lots (per exemple,
+     * {@link EquipsTicClient#getInfraestructuresByIds(java.util.Collection, boolean)}).
+     * Per defecte, 8.
+     * <p>
+     * Convé que no sigui més gran que {@link #getMaxConnectionsPerRoute()}, o
+     * les peticions acabaran esperant una connexió lliure.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Indica si les infraestructures creades o modificades amb el client
+     * s'han de desar a la cache de
+     * {@link EquipsTicClient#getInfraestructuraById(long, boolean)} (amb
+     * {@code ambDetalls = false}), de tal forma que la següent consulta no
+     * hagi d'anar al servidor. Per defecte, {@code false}: només s'invaliden
+     * les entrades afectades.
+     */
+    public boolean isCacheWriteThrough() {
+        return cacheWriteThrough;
+    }
+
+    public void setCacheWriteThrough(boolean cacheWriteThrough) {
+        this.cacheWriteThrough = cacheWriteThrough;
+    }
+
+    /**
+     * Indica si les consultes idèntiques que es fan alhora des de diversos
+     * fils han de compartir una sola petició al servidor. Per defecte,
+     * {@code false}.
+     * <p>
+     * Evita que, quan una entrada molt consultada no és a la cache (per
+     * exemple, en arrencar l'aplicació), totes les consultes concurrents facin
+     * la mateixa petició al servidor. Cada fil descodifica la resposta pel seu
+     * compte, i per tant en rep una instància pròpia que pot modificar sense
+     * afectar els altres.
+     */
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    public void setRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+    }
+
+    /**
+     * Indica si el client ha de respondre les consultes de catàlegs per
+     * identificador i per codi (marques, estats, unitats, edificis...) amb un
+     * {@link ReferenceDataIndex} en memòria, en lloc d'anar al servidor. Per
+     * defecte, {@code false}.
+     * <p>
+     * La primera consulta carrega tots els catàlegs. Si un element no hi és
+     * (per exemple, perquè s'ha creat després de carregar-los), es consulta al
+     * servidor.
+     */
+    public boolean isReferenceDataIndex() {
+        return referenceDataIndex;
+    }
+
+    public void setReferenceDataIndex(boolean referenceDataIndex) {
+        this.referenceDataIndex = referenceDataIndex;
+    }
+
+    /**
+     * Cada quant s'ha de recarregar el {@link ReferenceDataIndex}, si està
+     * activat. Per defecte, 1 hora.
+     */
+    public Duration getReferenceDataRefreshInterval() {
+        return referenceDataRefreshInterval;
+    }
+
+    public void setReferenceDataRefreshInterval(Duration referenceDataRefreshInterval) {
+        this.referenceDataRefreshInterval = referenceDataRefreshInterval;
+    }
+
+    /**
+     * Fitxer on es desa el {@link ReferenceDataIndex}, si està activat, cada
+     * vegada que es carrega. Per defecte, {@code null} (no es desa).
+     * <p>
+     * Si s'indica, l'índex es carrega d'aquest fitxer en arrencar, de tal
+     * forma que està disponible immediatament encara que el servidor no
+     * respongui, i es torna a carregar del servidor en segon pla.
+     */
+    public Path getReferenceDataSnapshotFile() {
+        return referenceDataSnapshotFile;
+    }
+
+    public void setReferenceDataSnapshotFile(Path referenceDataSnapshotFile) {
+        this.referenceDataSnapshotFile = referenceDataSnapshotFile;
+    }
+
+    /**
+     * Indica si les consultes s'han de tornar a fer amb peticions condicionals
+     * ({@code If-None-Match} / {@code If-Modified-Since}) quan el servidor ha
+     * enviat validadors ({@code ETag} / {@code Last-Modified}) en la resposta
+     * anterior. Per defecte, {@code false}.
+     * <p>
+     * Si el servidor respon que la resposta no ha canviat (304), es reaprofita
+     * el cos de la resposta anterior sense tornar-lo a descarregar; cada
+     * consulta en rep una instància nova. Si el servidor no envia validadors,
+     * les peticions no canvien. Cada DAO guarda fins a
+     * {@link #getConditionalRequestsMaxEntries()} respostes en memòria.
+     */
+    public boolean isConditionalRequests() {
+        return conditionalRequests;
+    }
+
+    public void setConditionalRequests(boolean conditionalRequests) {
+        this.conditionalRequests = conditionalRequests;
+    }
+
+    /**
+     * Nombre màxim de respostes (per DAO) que es guarden per poder fer
+     * peticions condicionals, si estan activades. Per defecte, 1000.
+     */
+    public int getConditionalRequestsMaxEntries() {
+        return conditionalRequestsMaxEntries;
+    }
+
+    public void setConditionalRequestsMaxEntries(int conditionalRequestsMaxEntries) {
+        this.conditionalRequestsMaxEntries = conditionalRequestsMaxEntries;
+    }
+
+    /**
+     * Indica si s'han de demanar les respostes comprimides (capçalera
+     * {@code Accept-Encoding: gzip,deflate}). Per defecte, {@code true}.
+     * <p>
+     * Les respostes comprimides es descomprimeixen a mesura que es llegeixen.
+     * Les llistes d'infraestructures són molt repetitives i es comprimeixen
+     * molt bé, de tal forma que es redueix molt el temps de transferència.
+     */
+    public boolean isResponseCompression() {
+        return responseCompression;
+    }
+
+    public void setResponseCompression(boolean responseCompression) {
+        this.responseCompression = responseCompression;
+    }
+
+    /**
+     * Indica si s'ha de comprimir amb gzip el cos de les peticions (les altes i
+     * modificacions d'infraestructures), amb la capçalera
+     * {@code Content-Encoding: gzip}. Per defecte, {@code false}.
+     * <p>
+     * Només s'ha d'activar si el servidor accepta peticions comprimides.
+     */
+    public boolean isRequestCompression() {
+        return requestCompression;
+    }
+
+    public void setRequestCompression(boolean requestCompression) {
+        this.requestCompression = requestCompression;
+    }
+
+    /**
+     * El protocol amb què es fan les peticions. Per defecte,
+     * {@link HttpTransport#HTTP_1_1}.
+     * <p>
+     * Amb {@link HttpTransport#HTTP_2}, totes les peticions en curs comparteixen
+     * una única connexió, de tal forma que els paràmetres del pool de
+     * connexions no s'apliquen (si se n'ha canviat algun, s'avisa al log), i
+     * les credencials s'envien sempre en la primera petició.
+     */
+    public HttpTransport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(HttpTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Temps màxim per establir una connexió amb el servidor. Per defecte,
+     * {@code null}: sense límit amb {@link HttpTransport#HTTP_1_1}, i 10
+     * segons amb {@link HttpTransport#HTTP_2}.
+     */
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Temps màxim d'espera de les dades de la resposta: amb
+     * {@link HttpTransport#HTTP_1_1}, entre dos paquets consecutius; amb
+     * {@link HttpTransport#HTTP_2}, fins a rebre les capçaleres, i després
+     * entre dos trossos consecutius del cos. Per defecte, {@code null}: sense
+     * límit amb HTTP/1.1, i 1 minut amb HTTP/2.
+     */
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public void setResponseTimeout(Duration responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    /**
+     * Indica si el client ha d'executar les operacions en segon pla i les
+     * peticions en paral·lel en fils virtuals (un per tasca), si la JVM els
+     * suporta (Java 21 o posterior). Per defecte, {@code false}.
+     * <p>
+     * Si la JVM no els suporta, es fa servir el pool de threads habitual. En
+     * tots dos casos, el nombre de peticions en paral·lel de cada operació per
+     * lots el limita {@link #getParallelism()}; amb fils virtuals, es pot
+     * augmentar (juntament amb {@link #getMaxConnectionsPerRoute()}) sense
+     * haver de crear més threads.
+     * <p>
+     * No té efecte si s'indica un executor propi a la
+     * {@link EquipsTicClientConfiguration}.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+}
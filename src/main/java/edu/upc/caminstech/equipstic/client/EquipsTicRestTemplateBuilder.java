@@ -1,18 +1,32 @@
 package edu.upc.caminstech.equipstic.client;
 
+import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
@@ -21,6 +35,8 @@ import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import edu.upc.caminstech.equipstic.client.dao.InterningModule;
+
 /**
  * Classe per instanciar la {@link RestTemplate} que utilitza el client.
  * <p>
@@ -43,34 +59,172 @@ public abstract class EquipsTicRestTemplateBuilder {
         // constructor privat; classe no instanciable
     }
 
+    public static RestTemplate createRestTemplate(URI baseUri, String username, String password, TimeZone timeZone,
+            EquipsTicClientSettings settings) {
+        return createRestTemplate(createRequestFactory(baseUri, username, password, settings), timeZone, settings);
+    }
+
     public static RestTemplate createRestTemplate(URI baseUri, String username, String password, TimeZone timeZone) {
-        HttpClient httpClient = prepareHttpClient(baseUri, username, password);
-        return prepareRestTemplate(httpClient, timeZone);
+        return createRestTemplate(baseUri, username, password, timeZone, new EquipsTicClientSettings());
+    }
+
+    public static RestTemplate createRestTemplate(URI baseUri, String username, String password,
+            EquipsTicClientSettings settings) {
+        return createRestTemplate(baseUri, username, password, EQUIPSTIC_SERVER_TIMEZONE, settings);
     }
 
     public static RestTemplate createRestTemplate(URI baseUri, String username, String password) {
         return createRestTemplate(baseUri, username, password, EQUIPSTIC_SERVER_TIMEZONE);
     }
 
+    /**
+     * Crea la factoria de peticions del transport indicat a {@code settings}.
+     * La factoria manté obertes les connexions (i, per a HTTP/2, els fils del
+     * client) fins que es tanca amb {@link EquipsTicClientConfiguration#close()}.
+     */
+    static ClientHttpRequestFactory createRequestFactory(URI baseUri, String username, String password,
+            EquipsTicClientSettings settings) {
+        if (settings.getTransport() == HttpTransport.HTTP_2) {
+            return new Http2ClientHttpRequestFactory(baseUri, username, password, settings);
+        }
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(
+                prepareHttpClient(baseUri, username, password, settings));
+        if (settings.getConnectTimeout() != null) {
+            factory.setConnectTimeout((int) settings.getConnectTimeout().toMillis());
+        }
+        if (settings.getResponseTimeout() != null) {
+            factory.setReadTimeout((int) settings.getResponseTimeout().toMillis());
+        }
+        return factory;
+    }
+
+    static RestTemplate createRestTemplate(ClientHttpRequestFactory requestFactory,
+            EquipsTicClientSettings settings) {
+        return createRestTemplate(requestFactory, EQUIPSTIC_SERVER_TIMEZONE, settings);
+    }
+
+    private static RestTemplate createRestTemplate(ClientHttpRequestFactory requestFactory, TimeZone timeZone,
+            EquipsTicClientSettings settings) {
+        RestTemplate template = prepareRestTemplate(requestFactory, timeZone);
+        if (settings.isRequestCompression()) {
+            template.getInterceptors().add(prepareRequestCompressionInterceptor());
+        }
+        return template;
+    }
+
     /**
      * Mètode auxiliar per instanciar un HttpClient a partir de les credencials
-     * d'autenticació.
+     * d'autenticació i els paràmetres del pool de connexions.
      */
-    private static HttpClient prepareHttpClient(URI baseUri, String username, String password) {
+    private static HttpClient prepareHttpClient(URI baseUri, String username, String password,
+            EquipsTicClientSettings settings) {
         CredentialsProvider credsProvider = new BasicCredentialsProvider();
         AuthScope authScope = new AuthScope(baseUri.getHost(), baseUri.getPort());
         Credentials credentials = new UsernamePasswordCredentials(username, password);
         credsProvider.setCredentials(authScope, credentials);
-        return HttpClients.custom().setDefaultCredentialsProvider(credsProvider).build();
+
+        HttpClientBuilder builder = HttpClients.custom() //
+                .setDefaultCredentialsProvider(credsProvider) //
+                .setConnectionManager(prepareConnectionManager(settings));
+        if (settings.getMaxIdleTime() != null) {
+            builder.evictIdleConnections(settings.getMaxIdleTime().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (settings.isEvictExpiredConnections()) {
+            builder.evictExpiredConnections();
+        }
+        if (settings.isPreemptiveAuthentication()) {
+            builder.addInterceptorFirst(preparePreemptiveAuthInterceptor(baseUri));
+        }
+        if (!settings.isResponseCompression()) {
+            builder.disableContentCompression();
+        }
+        return builder.build();
     }
 
-    private static RestTemplate prepareRestTemplate(HttpClient httpClient, TimeZone timeZone) {
-        RestTemplate template = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    /**
+     * Mètode auxiliar per comprimir amb gzip el cos de les peticions (les
+     * altes i modificacions d'infraestructures).
+     * <p>
+     * No cal fer res per a les respostes: HttpClient ja envia la capçalera
+     * "Accept-Encoding: gzip,deflate" i descomprimeix les respostes a mesura
+     * que Jackson les llegeix, sense carregar-les senceres en memòria.
+     */
+    private static ClientHttpRequestInterceptor prepareRequestCompressionInterceptor() {
+        return (request, body, execution) -> {
+            HttpHeaders headers = request.getHeaders();
+            if (body.length == 0 || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+                return execution.execute(request, body);
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(body);
+            }
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.setContentLength(compressed.size());
+            return execution.execute(request, compressed.toByteArray());
+        };
+    }
+
+    /**
+     * Mètode auxiliar per autenticar les peticions de forma preventiva.
+     * <p>
+     * Per defecte, HttpClient envia cada petició sense credencials i només les
+     * afegeix quan el servidor respon amb un 401. Aquest interceptor
+     * inicialitza l'{@link AuthCache} del context amb l'esquema Basic per al
+     * servidor EquipsTIC, de tal forma que la capçalera "Authorization"
+     * s'envia ja en la primera petició.
+     */
+    private static HttpRequestInterceptor preparePreemptiveAuthInterceptor(URI baseUri) {
+        AuthCache authCache = new BasicAuthCache();
+        authCache.put(new HttpHost(baseUri.getHost(), baseUri.getPort(), baseUri.getScheme()), new BasicScheme());
+        return (request, context) -> {
+            HttpClientContext clientContext = HttpClientContext.adapt(context);
+            if (clientContext.getAuthCache() == null) {
+                clientContext.setAuthCache(authCache);
+            }
+        };
+    }
+
+    /**
+     * Mètode auxiliar per instanciar el pool de connexions HTTP.
+     * <p>
+     * Els valors per defecte de HttpClient (2 connexions per servidor) són
+     * insuficients quan el client es fa servir des de diversos threads alhora.
+     */
+    private static PoolingHttpClientConnectionManager prepareConnectionManager(EquipsTicClientSettings settings) {
+        long ttl = settings.getConnectionTimeToLive() != null ? settings.getConnectionTimeToLive().toMillis() : -1;
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(ttl,
+                TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(settings.getMaxConnectionsTotal());
+        manager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+        if (settings.getValidateAfterInactivity() != null) {
+            manager.setValidateAfterInactivity((int) settings.getValidateAfterInactivity().toMillis());
+        }
+        return manager;
+    }
+
+    private static RestTemplate prepareRestTemplate(ClientHttpRequestFactory requestFactory, TimeZone timeZone) {
+        RestTemplate template = new RestTemplate(requestFactory);
         fixSupportedMediaTypes(template);
         fixJacksonObjectMapperTimezone(template, timeZone);
+        registerInterningModule(template);
         return template;
     }
 
+    /**
+     * Fa que els objectes del model repetits dins d'una mateixa resposta (per
+     * exemple, la unitat o l'estat de cada infraestructura d'una llista) es
+     * descodifiquin com una única instància compartida.
+     *
+     * @see InterningModule
+     */
+    private static void registerInterningModule(RestTemplate template) {
+        ObjectMapper mapper = getObjectMapper(template);
+        if (mapper != null) {
+            mapper.registerModule(new InterningModule());
+        }
+    }
+
     /**
      * Reconfigura la serialització/deserialització amb Jackson per tenir en
      * compte implícitament el TimeZone indicat.
@@ -86,7 +240,7 @@ public abstract class EquipsTicRestTemplateBuilder {
         }
     }
 
-    private static ObjectMapper getObjectMapper(RestTemplate template) {
+    static ObjectMapper getObjectMapper(RestTemplate template) {
         MappingJackson2HttpMessageConverter converter = getJacksonMessageConverterIfPresent(template);
         if (converter != null) {
             return converter.getObjectMapper();
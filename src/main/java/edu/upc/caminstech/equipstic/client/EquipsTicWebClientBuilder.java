@@ -0,0 +1,84 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.io.Closeable;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Classe per instanciar el {@link WebClient} que utilitza el client reactiu.
+ * <p>
+ * Aquesta classe és d'ús intern de la llibreria, i no és útil per als usuaris.
+ * Només es pot fer servir si les llibreries {@code spring-webflux} i
+ * {@code reactor-netty} són al classpath.
+ */
+public abstract class EquipsTicWebClientBuilder {
+
+    private EquipsTicWebClientBuilder() {
+        // constructor privat; classe no instanciable
+    }
+
+    /**
+     * Retorna el {@link WebClient} de la {@link EquipsTicClientConfiguration}
+     * donada, amb la mateixa configuració (URL, credencials, timezone de les
+     * dates) que el client.
+     * <p>
+     * Es crea la primera vegada que es necessita, i el comparteixen tots els
+     * DAO reactius de la configuració, amb un sol pool de connexions (de
+     * {@link EquipsTicClientSettings#getMaxConnectionsPerRoute()}
+     * connexions); el pool es tanca amb
+     * {@link EquipsTicClientConfiguration#close()}.
+     */
+    public static WebClient getWebClient(EquipsTicClientConfiguration config) {
+        return ((SharedWebClient) config.getReactiveResources(() -> new SharedWebClient(config))).webClient;
+    }
+
+    /**
+     * El {@link WebClient} d'una configuració, amb el seu pool de connexions.
+     */
+    private static final class SharedWebClient implements Closeable {
+
+        private final ConnectionProvider connectionProvider;
+        private final WebClient webClient;
+
+        SharedWebClient(EquipsTicClientConfiguration config) {
+            connectionProvider = ConnectionProvider.fixed("equipstic-client",
+                    config.getSettings().getMaxConnectionsPerRoute());
+            webClient = WebClient.builder() //
+                    .baseUrl(config.getBaseUri().toString()) //
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider))) //
+                    .defaultHeaders(headers -> headers.setBasicAuth(config.getUsername(), config.getPassword())) //
+                    .exchangeStrategies(prepareExchangeStrategies(config.getObjectMapper())) //
+                    .build();
+        }
+
+        @Override
+        public void close() {
+            connectionProvider.dispose();
+        }
+
+    }
+
+    /**
+     * Configura els codecs JSON amb l'{@link ObjectMapper} del client, i
+     * accepta també respostes de tipus "text/plain" (vegeu
+     * {@link EquipsTicRestTemplateBuilder}).
+     */
+    private static ExchangeStrategies prepareExchangeStrategies(ObjectMapper mapper) {
+        return ExchangeStrategies.builder().codecs(configurer -> {
+            configurer.defaultCodecs().jackson2JsonDecoder(
+                    new Jackson2JsonDecoder(mapper, MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN));
+            configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper, MediaType.APPLICATION_JSON));
+        }).build();
+    }
+
+}
@@ -0,0 +1,184 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.util.Arrays;
+
+/**
+ * Acumuladors d'una agregació: per a cada grup (identificat per una clau
+ * {@code long}), el nombre de files i, per a cada mesura, el nombre de valors,
+ * la suma, el mínim i el màxim.
+ * <p>
+ * Tot es desa en vectors de tipus primitius, indexats per la posició del grup
+ * (les claus es troben amb adreçament obert i sondeig lineal), de manera que
+ * afegir una fila no crea cap objecte.
+ * <p>
+ * Les instàncies no són thread-safe; cal una instància per fil, i combinar-les
+ * després amb {@link #merge(GroupAccumulator)}.
+ */
+final class GroupAccumulator {
+
+    /**
+     * Valor que indica que una mesura no té valor en una fila.
+     */
+    static final long NO_VALUE = Long.MIN_VALUE;
+
+    private final int measures;
+
+    /**
+     * La taula de claus: {@code positions[i]} és la posició del grup amb clau
+     * {@code keys[i]} més 1, o 0 si la casella és buida.
+     */
+    private long[] keys;
+    private int[] positions;
+    private int mask;
+
+    private int size;
+    private long[] groupKeys;
+    private long[] counts;
+    private long[][] valueCounts;
+    private long[][] sums;
+    private long[][] mins;
+    private long[][] maxs;
+
+    GroupAccumulator(int measures) {
+        this.measures = measures;
+        keys = new long[16];
+        positions = new int[16];
+        mask = 15;
+        groupKeys = new long[8];
+        counts = new long[8];
+        valueCounts = new long[measures][8];
+        sums = new long[measures][8];
+        mins = new long[measures][8];
+        maxs = new long[measures][8];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getKey(int group) {
+        return groupKeys[group];
+    }
+
+    long getCount(int group) {
+        return counts[group];
+    }
+
+    long getValueCount(int measure, int group) {
+        return valueCounts[measure][group];
+    }
+
+    long getSum(int measure, int group) {
+        return sums[measure][group];
+    }
+
+    long getMin(int measure, int group) {
+        return mins[measure][group];
+    }
+
+    long getMax(int measure, int group) {
+        return maxs[measure][group];
+    }
+
+    /**
+     * Afegeix una fila al grup {@code key}.
+     *
+     * @param values
+     *            les columnes de les mesures, indexades per mesura i per fila.
+     *            Les files sense valor tenen {@link #NO_VALUE}.
+     */
+    void add(long key, long[][] values, int row) {
+        int group = group(key);
+        counts[group]++;
+        for (int m = 0; m < measures; m++) {
+            long value = values[m][row];
+            if (value != NO_VALUE) {
+                accumulate(m, group, 1, value, value, value);
+            }
+        }
+    }
+
+    /**
+     * Afegeix els grups d'un altre acumulador a aquest, i el retorna.
+     */
+    GroupAccumulator merge(GroupAccumulator other) {
+        for (int g = 0; g < other.size; g++) {
+            int group = group(other.groupKeys[g]);
+            counts[group] += other.counts[g];
+            for (int m = 0; m < measures; m++) {
+                long n = other.valueCounts[m][g];
+                if (n > 0) {
+                    accumulate(m, group, n, other.sums[m][g], other.mins[m][g], other.maxs[m][g]);
+                }
+            }
+        }
+        return this;
+    }
+
+    private void accumulate(int m, int group, long n, long sum, long min, long max) {
+        if (valueCounts[m][group] == 0) {
+            mins[m][group] = min;
+            maxs[m][group] = max;
+        } else {
+            mins[m][group] = Math.min(mins[m][group], min);
+            maxs[m][group] = Math.max(maxs[m][group], max);
+        }
+        valueCounts[m][group] += n;
+        sums[m][group] = Math.addExact(sums[m][group], sum);
+    }
+
+    /**
+     * Retorna la posició del grup {@code key}, i el crea si no existeix.
+     */
+    private int group(long key) {
+        int i = index(key);
+        for (; positions[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return positions[i] - 1;
+            }
+        }
+        int group = size++;
+        if (group == counts.length) {
+            growGroups();
+        }
+        groupKeys[group] = key;
+        keys[i] = key;
+        positions[i] = group + 1;
+        if (size * 2 > keys.length) {
+            rehash();
+        }
+        return group;
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void growGroups() {
+        int capacity = counts.length * 2;
+        groupKeys = Arrays.copyOf(groupKeys, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        for (int m = 0; m < measures; m++) {
+            valueCounts[m] = Arrays.copyOf(valueCounts[m], capacity);
+            sums[m] = Arrays.copyOf(sums[m], capacity);
+            mins[m] = Arrays.copyOf(mins[m], capacity);
+            maxs[m] = Arrays.copyOf(maxs[m], capacity);
+        }
+    }
+
+    private void rehash() {
+        keys = new long[keys.length * 2];
+        positions = new int[positions.length * 2];
+        mask = keys.length - 1;
+        for (int group = 0; group < size; group++) {
+            int i = index(groupKeys[group]);
+            while (positions[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = groupKeys[group];
+            positions[i] = group + 1;
+        }
+    }
+
+}
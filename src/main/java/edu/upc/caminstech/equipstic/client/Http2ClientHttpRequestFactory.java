@@ -0,0 +1,525 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * {@link ClientHttpRequestFactory} que fa les peticions amb HTTP/2, amb el
+ * client asíncron d'Apache HttpClient 5, de tal forma que totes les peticions
+ * en curs a un mateix servidor es multiplexen sobre una única connexió.
+ * <p>
+ * El cos de les peticions es guarda sencer en memòria; el de les respostes es
+ * llegeix a mesura que arriba, i el servidor només en pot enviar per avançat
+ * una quantitat limitada (el control de flux d'HTTP/2). Les credencials
+ * s'envien sempre en la primera petició (autenticació Basic preventiva), per
+ * no haver d'esperar la resposta 401 del servidor, però només al servidor de
+ * la URL base del client.
+ * <p>
+ * El client HTTP es tanca amb {@link #close()}, que crida
+ * {@link EquipsTicClientConfiguration#close()}.
+ * <p>
+ * Aquesta classe és d'ús intern de la llibreria.
+ *
+ * @see HttpTransport#HTTP_2
+ */
+final class Http2ClientHttpRequestFactory implements ClientHttpRequestFactory, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Http2ClientHttpRequestFactory.class);
+
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_RESPONSE_TIMEOUT = Duration.ofMinutes(1);
+
+    /**
+     * Nombre de bytes de cada resposta que es poden rebre abans que el client
+     * els llegeixi.
+     */
+    private static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+
+    private final CloseableHttpAsyncClient httpClient;
+    private final URI baseUri;
+    private final String authorization;
+    private final long responseTimeoutMillis;
+    private final boolean responseCompression;
+
+    Http2ClientHttpRequestFactory(URI baseUri, String username, String password, EquipsTicClientSettings settings) {
+        Duration connectTimeout = (settings.getConnectTimeout() != null) ? settings.getConnectTimeout()
+                : DEFAULT_CONNECT_TIMEOUT;
+        Duration responseTimeout = (settings.getResponseTimeout() != null) ? settings.getResponseTimeout()
+                : DEFAULT_RESPONSE_TIMEOUT;
+        RequestConfig requestConfig = RequestConfig.custom() //
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis())) //
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout.toMillis())) //
+                .build();
+        this.httpClient = HttpAsyncClients.customHttp2().setDefaultRequestConfig(requestConfig).build();
+        this.httpClient.start();
+        this.baseUri = baseUri;
+        this.authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.responseTimeoutMillis = responseTimeout.toMillis();
+        this.responseCompression = settings.isResponseCompression();
+        warnIgnoredSettings(settings);
+    }
+
+    /**
+     * Avisa si s'ha canviat algun paràmetre del pool de connexions, que amb
+     * HTTP/2 no s'apliquen.
+     */
+    private static void warnIgnoredSettings(EquipsTicClientSettings settings) {
+        EquipsTicClientSettings defaults = new EquipsTicClientSettings();
+        if (settings.getMaxConnectionsTotal() != defaults.getMaxConnectionsTotal()
+                || settings.getMaxConnectionsPerRoute() != defaults.getMaxConnectionsPerRoute()
+                || !Objects.equals(settings.getValidateAfterInactivity(), defaults.getValidateAfterInactivity())
+                || !Objects.equals(settings.getConnectionTimeToLive(), defaults.getConnectionTimeToLive())
+                || !Objects.equals(settings.getMaxIdleTime(), defaults.getMaxIdleTime())
+                || settings.isEvictExpiredConnections() != defaults.isEvictExpiredConnections()) {
+            logger.warn("Els paràmetres del pool de connexions no s'apliquen al transport HTTP/2: "
+                    + "totes les peticions a un servidor comparteixen una única connexió");
+        }
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new Http2ClientHttpRequest(uri, httpMethod);
+    }
+
+    @Override
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * Indica si la URL és del mateix servidor (esquema, host i port) que la
+     * URL base del client.
+     */
+    private boolean isBaseUriOrigin(URI uri) {
+        return baseUri.getScheme() != null && baseUri.getScheme().equalsIgnoreCase(uri.getScheme())
+                && baseUri.getHost() != null && baseUri.getHost().equalsIgnoreCase(uri.getHost())
+                && getPort(baseUri) == getPort(uri);
+    }
+
+    private static int getPort(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+
+    private final class Http2ClientHttpRequest extends AbstractClientHttpRequest {
+
+        private final URI uri;
+        private final HttpMethod method;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        Http2ClientHttpRequest(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return method.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            SimpleHttpRequest request = new SimpleHttpRequest(method.name(), uri);
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                String name = header.getKey();
+                if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                        && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                    header.getValue().forEach(value -> request.addHeader(name, value));
+                }
+            }
+            if (!headers.containsKey(HttpHeaders.AUTHORIZATION) && isBaseUriOrigin(uri)) {
+                request.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+            }
+            if (responseCompression && !headers.containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+                request.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            }
+            if (body.size() > 0) {
+                ContentType contentType = (headers.getContentType() != null)
+                        ? ContentType.parse(headers.getContentType().toString())
+                        : ContentType.APPLICATION_OCTET_STREAM;
+                request.setBody(body.toByteArray(), contentType);
+            }
+
+            ResponseBody responseBody = new ResponseBody(responseTimeoutMillis);
+            CompletableFuture<ClientHttpResponse> result = new CompletableFuture<>();
+            Future<ClientHttpResponse> exchange = httpClient.execute(SimpleRequestProducer.create(request),
+                    new StreamingResponseConsumer(responseBody, result), null);
+            responseBody.setExchange(exchange);
+            try {
+                return result.get(responseTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                exchange.cancel(true);
+                throw new SocketTimeoutException("No s'ha rebut la resposta a temps: " + uri);
+            } catch (InterruptedException e) {
+                exchange.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Petició interrompuda: " + uri);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Error en la petició: " + uri, e.getCause());
+            }
+        }
+
+    }
+
+    /**
+     * Completa {@code result} amb la resposta tan aviat com se'n reben les
+     * capçaleres, i n'afegeix el cos al {@link ResponseBody} a mesura que
+     * arriba.
+     */
+    private final class StreamingResponseConsumer implements AsyncResponseConsumer<ClientHttpResponse> {
+
+        private final ResponseBody body;
+        private final CompletableFuture<ClientHttpResponse> result;
+
+        StreamingResponseConsumer(ResponseBody body, CompletableFuture<ClientHttpResponse> result) {
+            this.body = body;
+            this.result = result;
+        }
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                FutureCallback<ClientHttpResponse> resultCallback) {
+            if (entityDetails == null) {
+                body.end();
+            }
+            Http2ClientHttpResponse clientResponse = new Http2ClientHttpResponse(response, body,
+                    responseCompression);
+            result.complete(clientResponse);
+            resultCallback.completed(clientResponse);
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) {
+            // les respostes 1xx no interessen
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            body.setCapacityChannel(capacityChannel);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) {
+            body.add(src);
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) {
+            body.end();
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            result.completeExceptionally(cause);
+            body.fail(cause);
+        }
+
+        @Override
+        public void releaseResources() {
+            // el cos pendent de llegir és del ResponseBody
+        }
+
+    }
+
+    /**
+     * El cos d'una resposta, que es llegeix a mesura que arriba del servidor.
+     * <p>
+     * Cada vegada que el client en llegeix una part, s'indica al servidor que
+     * en pot enviar més, de tal forma que mai no hi ha en memòria gaire més de
+     * {@link #RESPONSE_BUFFER_SIZE} bytes pendents de llegir.
+     */
+    private static final class ResponseBody extends InputStream {
+
+        private final long timeoutMillis;
+        private final Deque<ByteBuffer> chunks = new ArrayDeque<>();
+        private CapacityChannel capacityChannel;
+        private Future<?> exchange;
+
+        /**
+         * Bytes rebuts i encara no llegits, i bytes que el servidor pot enviar
+         * i encara no ha enviat.
+         */
+        private int buffered;
+        private int granted;
+
+        private boolean ended;
+        private boolean closed;
+        private Exception failure;
+
+        ResponseBody(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        synchronized void setExchange(Future<?> exchange) {
+            this.exchange = exchange;
+        }
+
+        void setCapacityChannel(CapacityChannel capacityChannel) throws IOException {
+            int increment;
+            synchronized (this) {
+                this.capacityChannel = capacityChannel;
+                increment = reserveCapacity();
+            }
+            if (increment > 0) {
+                capacityChannel.update(increment);
+            }
+        }
+
+        synchronized void add(ByteBuffer src) {
+            int length = src.remaining();
+            if (closed) {
+                src.position(src.limit());
+                return;
+            }
+            ByteBuffer chunk = ByteBuffer.allocate(length);
+            chunk.put(src);
+            chunk.flip();
+            chunks.add(chunk);
+            buffered += length;
+            granted = Math.max(0, granted - length);
+            notifyAll();
+        }
+
+        synchronized void end() {
+            ended = true;
+            notifyAll();
+        }
+
+        synchronized void fail(Exception cause) {
+            failure = cause;
+            notifyAll();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return (read(b, 0, 1) < 0) ? -1 : (b[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int read;
+            int increment;
+            CapacityChannel channel;
+            synchronized (this) {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                while (chunks.isEmpty()) {
+                    if (closed || (ended && failure == null)) {
+                        return -1;
+                    }
+                    if (failure != null) {
+                        throw new IOException("Error en rebre la resposta", failure);
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("S'ha esgotat el temps d'espera de la resposta");
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Lectura de la resposta interrompuda");
+                    }
+                }
+                ByteBuffer chunk = chunks.peek();
+                read = Math.min(len, chunk.remaining());
+                chunk.get(b, off, read);
+                if (!chunk.hasRemaining()) {
+                    chunks.poll();
+                }
+                buffered -= read;
+                increment = reserveCapacity();
+                channel = capacityChannel;
+            }
+            if (increment > 0) {
+                channel.update(increment);
+            }
+            return read;
+        }
+
+        @Override
+        public synchronized int available() {
+            return chunks.isEmpty() ? 0 : chunks.peek().remaining();
+        }
+
+        /**
+         * Deixa de rebre la resposta; si encara no s'ha rebut sencera, es
+         * cancel·la.
+         */
+        @Override
+        public void close() {
+            Future<?> toCancel;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                chunks.clear();
+                toCancel = ended ? null : exchange;
+                notifyAll();
+            }
+            if (toCancel != null) {
+                toCancel.cancel(true);
+            }
+        }
+
+        /**
+         * Calcula quants bytes més pot enviar el servidor, i els reserva. No
+         * s'amplia la finestra fins que no hi ha lloc per a la meitat del
+         * buffer, per no enviar actualitzacions massa petites.
+         */
+        private int reserveCapacity() {
+            if (capacityChannel == null || ended || closed) {
+                return 0;
+            }
+            int free = RESPONSE_BUFFER_SIZE - buffered - granted;
+            if (free < RESPONSE_BUFFER_SIZE / 2) {
+                return 0;
+            }
+            granted += free;
+            return free;
+        }
+
+    }
+
+    private static final class Http2ClientHttpResponse implements ClientHttpResponse {
+
+        private final HttpResponse response;
+        private final ResponseBody body;
+        private final boolean gzip;
+        private HttpHeaders headers;
+        private InputStream decodedBody;
+
+        Http2ClientHttpResponse(HttpResponse response, ResponseBody body, boolean responseCompression) {
+            this.response = response;
+            this.body = body;
+            Header encoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+            this.gzip = responseCompression && encoding != null && "gzip".equalsIgnoreCase(encoding.getValue());
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            return HttpStatus.valueOf(response.getCode());
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return response.getCode();
+        }
+
+        @Override
+        public String getStatusText() {
+            // HTTP/2 no té "reason phrase"
+            String reason = response.getReasonPhrase();
+            if (reason == null) {
+                HttpStatus status = HttpStatus.resolve(response.getCode());
+                return (status != null) ? status.getReasonPhrase() : "";
+            }
+            return reason;
+        }
+
+        /**
+         * Retorna les capçaleres de la resposta; si el cos es descomprimeix,
+         * sense "Content-Encoding" ni "Content-Length" (com fa HttpClient 4).
+         */
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                headers = new HttpHeaders();
+                for (Header header : response.getHeaders()) {
+                    headers.add(header.getName(), header.getValue());
+                }
+                if (gzip) {
+                    headers.remove(HttpHeaders.CONTENT_ENCODING);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                }
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (decodedBody == null) {
+                decodedBody = gzip ? new GZIPInputStream(body) : body;
+            }
+            return decodedBody;
+        }
+
+        @Override
+        public void close() {
+            body.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package edu.upc.caminstech.equipstic.client;
+
+/**
+ * El protocol amb què el client es comunica amb el servidor.
+ *
+ * @see EquipsTicClientSettings#getTransport()
+ */
+public enum HttpTransport {
+
+    /**
+     * HTTP/1.1 amb Apache HttpClient 4. Cada petició en curs ocupa una
+     * connexió del pool.
+     */
+    HTTP_1_1,
+
+    /**
+     * HTTP/2 amb Apache HttpClient 5: totes les peticions en curs a un mateix
+     * servidor comparteixen una única connexió.
+     * <p>
+     * Amb {@code https}, el protocol es negocia amb ALPN (cal Java 8u252 o
+     * posterior); amb {@code http}, es fa servir HTTP/2 directament (h2c). El
+     * servidor ha de suportar HTTP/2. Cal que la llibreria
+     * {@code org.apache.httpcomponents.client5:httpclient5} sigui al classpath.
+     */
+    HTTP_2
+
+}
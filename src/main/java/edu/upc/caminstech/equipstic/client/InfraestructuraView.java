@@ -0,0 +1,446 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.springframework.util.Assert;
+
+import edu.upc.caminstech.equipstic.Ambit;
+import edu.upc.caminstech.equipstic.Edifici;
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.SistemaOperatiu;
+import edu.upc.caminstech.equipstic.TipusInfraestructura;
+import edu.upc.caminstech.equipstic.TipusUs;
+import edu.upc.caminstech.equipstic.TipusXarxa;
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.UsuariInfraestructura;
+
+/**
+ * Vista de només lectura, i compacta en memòria, d'una
+ * {@link Infraestructura}, pensada per tenir-ne moltes alhora (per exemple,
+ * per fer informes de tot l'inventari).
+ * <p>
+ * Les dates es desen com a dies des de l'1/1/1970, l'import com a cèntims, i
+ * els elements dels catàlegs (marca, unitat, estat...) com a codis que es
+ * resolen amb un {@link Catalog} compartit per totes les vistes d'una mateixa
+ * consulta. Els textos repetits (models, proveïdors...) es
+ * comparteixen.
+ * <p>
+ * Només inclou els atributs d'ús habitual; no inclou els atributs d'ús intern
+ * (usuari, dades del workflow, data de càrrega). Si cal la infraestructura
+ * sencera, es pot obtenir a partir de {@link #getIdentificador()}.
+ *
+ * @see EquipsTicClient#getInfraestructuraViewsByUnitat(long)
+ */
+public final class InfraestructuraView implements Comparable<InfraestructuraView> {
+
+    /**
+     * Valor que indica que un atribut enter no té valor.
+     */
+    private static final int NONE = Integer.MIN_VALUE;
+    private static final long NO_IMPORT = Long.MIN_VALUE;
+
+    private final Catalog catalog;
+
+    private final long identificador;
+    private final String nomDns;
+    private final String numeroSerie;
+    private final int tipusInfraestructura;
+    private final int marca;
+    private final String model;
+    private final int dataCompra;
+    private final long importCompraCentims;
+    private final int estat;
+    private final int unitat;
+    private final int ambit;
+    private final int edifici;
+    private final int dataFinalGarantia;
+    private final String modelCpu;
+    private final Integer numeroCpus;
+    private final String discs;
+    private final String capacitatTotalGb;
+    private final int sistemaOperatiu;
+    private final String sla;
+    private final String proveidorCompra;
+    private final String observacions;
+    private final int unitatGestora;
+    private final int unitatDestinataria;
+    private final int tipusUs;
+    private final String numeroInventariUpc;
+    private final String numeroAd;
+    private final String localitzacio;
+    private final int dataAltaManteniment;
+    private final int dataBaixaManteniment;
+    private final String proveidorManteniment;
+    private final int dataEntrega;
+    private final int dataTramitFactura;
+    private final int tipusXarxa;
+    private final Integer numeroPorts;
+    private final String configuracioHardware;
+    private final int usuariInfraestructura;
+    private final String nomUsuariInfraestructura;
+    private final int estatValidacio;
+    private final int dataCreacio;
+    private final int dataDarreraModificacio;
+
+    private InfraestructuraView(Catalog c, Infraestructura i) {
+        catalog = c;
+        identificador = i.getIdentificador();
+        nomDns = c.string(i.getNomDns());
+        numeroSerie = i.getNumeroSerie();
+        tipusInfraestructura = c.tipusInfraestructura.add(i.getTipusInfraestructura());
+        marca = c.marques.add(i.getMarca());
+        model = c.string(i.getModel());
+        dataCompra = c.epochDay(i.getDataCompra());
+        importCompraCentims = centims(i.getImportCompra());
+        estat = c.estats.add(i.getEstat());
+        unitat = c.unitats.add(i.getUnitat());
+        ambit = c.ambits.add(i.getAmbit());
+        edifici = c.edificis.add(i.getEdifici());
+        dataFinalGarantia = c.epochDay(i.getDataFinalGarantia());
+        modelCpu = c.string(i.getModelCpu());
+        numeroCpus = i.getNumeroCpus();
+        discs = c.string(i.getDiscs());
+        capacitatTotalGb = c.string(i.getCapacitatTotalGb());
+        sistemaOperatiu = c.sistemesOperatius.add(i.getSistemaOperatiu());
+        sla = c.string(i.getSla());
+        proveidorCompra = c.string(i.getProveidorCompra());
+        observacions = c.string(i.getObservacions());
+        unitatGestora = c.unitats.add(i.getUnitatGestora());
+        unitatDestinataria = c.unitats.add(i.getUnitatDestinataria());
+        tipusUs = c.tipusUs.add(i.getTipusUs());
+        numeroInventariUpc = i.getNumeroInventariUpc();
+        numeroAd = i.getNumeroAd();
+        localitzacio = c.string(i.getLocalitzacio());
+        dataAltaManteniment = c.epochDay(i.getDataAltaManteniment());
+        dataBaixaManteniment = c.epochDay(i.getDataBaixaManteniment());
+        proveidorManteniment = c.string(i.getProveidorManteniment());
+        dataEntrega = c.epochDay(i.getDataEntrega());
+        dataTramitFactura = c.epochDay(i.getDataTramitFactura());
+        tipusXarxa = c.tipusXarxa.add(i.getTipusXarxa());
+        numeroPorts = i.getNumeroPorts();
+        configuracioHardware = c.string(i.getConfiguracioHardware());
+        usuariInfraestructura = c.usuarisInfraestructura.add(i.getUsuariInfraestructura());
+        nomUsuariInfraestructura = c.string(i.getNomUsuariInfraestructura());
+        estatValidacio = c.estats.add(i.getEstatValidacio());
+        dataCreacio = c.epochDay(i.getDataCreacio());
+        dataDarreraModificacio = c.epochDay(i.getDataDarreraModificacio());
+    }
+
+    public long getIdentificador() {
+        return identificador;
+    }
+
+    public String getNomDns() {
+        return nomDns;
+    }
+
+    public String getNumeroSerie() {
+        return numeroSerie;
+    }
+
+    public TipusInfraestructura getTipusInfraestructura() {
+        return catalog.tipusInfraestructura.get(tipusInfraestructura);
+    }
+
+    public Marca getMarca() {
+        return catalog.marques.get(marca);
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public LocalDate getDataCompra() {
+        return toLocalDate(dataCompra);
+    }
+
+    public BigDecimal getImportCompra() {
+        return (importCompraCentims != NO_IMPORT) ? BigDecimal.valueOf(importCompraCentims, 2) : null;
+    }
+
+    public Estat getEstat() {
+        return catalog.estats.get(estat);
+    }
+
+    public Unitat getUnitat() {
+        return catalog.unitats.get(unitat);
+    }
+
+    public Ambit getAmbit() {
+        return catalog.ambits.get(ambit);
+    }
+
+    public Edifici getEdifici() {
+        return catalog.edificis.get(edifici);
+    }
+
+    public LocalDate getDataFinalGarantia() {
+        return toLocalDate(dataFinalGarantia);
+    }
+
+    public String getModelCpu() {
+        return modelCpu;
+    }
+
+    public Integer getNumeroCpus() {
+        return numeroCpus;
+    }
+
+    public String getDiscs() {
+        return discs;
+    }
+
+    public String getCapacitatTotalGb() {
+        return capacitatTotalGb;
+    }
+
+    public SistemaOperatiu getSistemaOperatiu() {
+        return catalog.sistemesOperatius.get(sistemaOperatiu);
+    }
+
+    public String getSla() {
+        return sla;
+    }
+
+    public String getProveidorCompra() {
+        return proveidorCompra;
+    }
+
+    public String getObservacions() {
+        return observacions;
+    }
+
+    public Unitat getUnitatGestora() {
+        return catalog.unitats.get(unitatGestora);
+    }
+
+    public Unitat getUnitatDestinataria() {
+        return catalog.unitats.get(unitatDestinataria);
+    }
+
+    public TipusUs getTipusUs() {
+        return catalog.tipusUs.get(tipusUs);
+    }
+
+    public String getNumeroInventariUpc() {
+        return numeroInventariUpc;
+    }
+
+    public String getNumeroAd() {
+        return numeroAd;
+    }
+
+    public String getLocalitzacio() {
+        return localitzacio;
+    }
+
+    public LocalDate getDataAltaManteniment() {
+        return toLocalDate(dataAltaManteniment);
+    }
+
+    public LocalDate getDataBaixaManteniment() {
+        return toLocalDate(dataBaixaManteniment);
+    }
+
+    public String getProveidorManteniment() {
+        return proveidorManteniment;
+    }
+
+    public LocalDate getDataEntrega() {
+        return toLocalDate(dataEntrega);
+    }
+
+    public LocalDate getDataTramitFactura() {
+        return toLocalDate(dataTramitFactura);
+    }
+
+    public TipusXarxa getTipusXarxa() {
+        return catalog.tipusXarxa.get(tipusXarxa);
+    }
+
+    public Integer getNumeroPorts() {
+        return numeroPorts;
+    }
+
+    public String getConfiguracioHardware() {
+        return configuracioHardware;
+    }
+
+    public UsuariInfraestructura getUsuariInfraestructura() {
+        return catalog.usuarisInfraestructura.get(usuariInfraestructura);
+    }
+
+    public String getNomUsuariInfraestructura() {
+        return nomUsuariInfraestructura;
+    }
+
+    public Estat getEstatValidacio() {
+        return catalog.estats.get(estatValidacio);
+    }
+
+    public LocalDate getDataCreacio() {
+        return toLocalDate(dataCreacio);
+    }
+
+    public LocalDate getDataDarreraModificacio() {
+        return toLocalDate(dataDarreraModificacio);
+    }
+
+    /**
+     * Igual que {@link Infraestructura#compareTo(Infraestructura)}: per nom DNS
+     * i per identificador.
+     */
+    @Override
+    public int compareTo(InfraestructuraView v) {
+        if (v == this) {
+            return 0;
+        }
+        if (nomDns == null || v.nomDns == null) {
+            if (nomDns != v.nomDns) {
+                return (nomDns == null) ? -1 : 1;
+            }
+        } else {
+            int c = nomDns.compareTo(v.nomDns);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Long.compare(identificador, v.identificador);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof InfraestructuraView)) {
+            return false;
+        }
+        return identificador == ((InfraestructuraView) obj).identificador;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(identificador);
+    }
+
+    @Override
+    public String toString() {
+        return "InfraestructuraView [identificador=" + identificador + ", nomDns=" + nomDns + "]";
+    }
+
+    private static LocalDate toLocalDate(int epochDay) {
+        return (epochDay != NONE) ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    private static long centims(BigDecimal value) {
+        return (value != null) ? value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact() : NO_IMPORT;
+    }
+
+    /**
+     * Els elements dels catàlegs i els textos compartits per un conjunt de
+     * {@link InfraestructuraView}.
+     * <p>
+     * Si un mateix element apareix amb versions diferents (per exemple, una
+     * unitat amb i sense nom), es conserva la primera.
+     * <p>
+     * Les instàncies no són thread-safe mentre s'hi afegeixen vistes; un cop
+     * creades, les vistes es poden consultar des de diversos fils.
+     */
+    public static final class Catalog {
+
+        private final ZoneId zone;
+        private final Map<String, String> strings = new HashMap<>();
+
+        private final Registry<Ambit> ambits = new Registry<>(Ambit::getIdAmbit);
+        private final Registry<Edifici> edificis = new Registry<>(Edifici::getIdEdifici);
+        private final Registry<Estat> estats = new Registry<>(Estat::getIdEstat);
+        private final Registry<Marca> marques = new Registry<>(Marca::getIdMarca);
+        private final Registry<SistemaOperatiu> sistemesOperatius = new Registry<>(
+                SistemaOperatiu::getIdSistemaOperatiu);
+        private final Registry<TipusInfraestructura> tipusInfraestructura = new Registry<>(
+                TipusInfraestructura::getIdTipus);
+        private final Registry<TipusUs> tipusUs = new Registry<>(TipusUs::getIdTipusUs);
+        private final Registry<TipusXarxa> tipusXarxa = new Registry<>(TipusXarxa::getIdTipusXarxa);
+        private final Registry<Unitat> unitats = new Registry<>(Unitat::getIdUnitat);
+        private final Registry<UsuariInfraestructura> usuarisInfraestructura = new Registry<>(
+                UsuariInfraestructura::getIdUsuariInfraestructura);
+
+        /**
+         * @param zone
+         *            la zona horària amb què s'han descodificat les dates de
+         *            les infraestructures.
+         */
+        public Catalog(ZoneId zone) {
+            Assert.notNull(zone, "l'argument zone no pot ser null");
+            this.zone = zone;
+        }
+
+        /**
+         * Crea la vista d'una infraestructura.
+         */
+        public InfraestructuraView view(Infraestructura infraestructura) {
+            Assert.notNull(infraestructura, "l'argument infraestructura no pot ser null");
+            return new InfraestructuraView(this, infraestructura);
+        }
+
+        private String string(String s) {
+            if (s == null) {
+                return null;
+            }
+            String existing = strings.putIfAbsent(s, s);
+            return (existing != null) ? existing : s;
+        }
+
+        private int epochDay(Date date) {
+            if (date == null) {
+                return NONE;
+            }
+            return Math.toIntExact(date.toInstant().atZone(zone).toLocalDate().toEpochDay());
+        }
+
+    }
+
+    /**
+     * Els elements d'un catàleg, cadascun amb un codi (de 0 a n-1, per ordre
+     * d'aparició) que és el que desen les vistes en comptes de l'identificador.
+     */
+    private static final class Registry<T> {
+
+        private final LongIntMap codesById = new LongIntMap(16);
+        private final List<T> values = new ArrayList<>();
+        private final ToLongFunction<T> id;
+
+        Registry(ToLongFunction<T> id) {
+            this.id = id;
+        }
+
+        int add(T element) {
+            if (element == null) {
+                return NONE;
+            }
+            long key = id.applyAsLong(element);
+            int code = codesById.get(key);
+            if (code == LongIntMap.NO_VALUE) {
+                code = values.size();
+                codesById.put(key, code);
+                values.add(element);
+            }
+            return code;
+        }
+
+        T get(int code) {
+            return (code != NONE) ? values.get(code) : null;
+        }
+
+    }
+
+}
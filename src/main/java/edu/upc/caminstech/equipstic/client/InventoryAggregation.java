@@ -0,0 +1,199 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.util.Assert;
+
+import edu.upc.caminstech.equipstic.Edifici;
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.TipusInfraestructura;
+import edu.upc.caminstech.equipstic.Unitat;
+
+/**
+ * El resultat d'agrupar les infraestructures d'un {@link InventorySnapshot}:
+ * per a cada combinació d'elements de les dimensions indicades (per exemple,
+ * unitat × estat × tipus d'infraestructura), el nombre d'infraestructures i la
+ * suma, el mínim i el màxim de cada {@link Measure}.
+ *
+ * @see InventorySnapshot.Query#groupBy(Dimension...)
+ */
+public final class InventoryAggregation {
+
+    /**
+     * Els atributs per què es pot agrupar.
+     */
+    public enum Dimension {
+        ESTAT, UNITAT, EDIFICI, MARCA, TIPUS_INFRAESTRUCTURA
+    }
+
+    /**
+     * Els atributs numèrics que es poden sumar.
+     */
+    public enum Measure {
+
+        /**
+         * L'import de compra, amb dos decimals.
+         */
+        IMPORT_COMPRA(2),
+
+        NUMERO_CPUS(0),
+
+        NUMERO_PORTS(0);
+
+        private final int scale;
+
+        Measure(int scale) {
+            this.scale = scale;
+        }
+
+        private BigDecimal toBigDecimal(long value) {
+            return BigDecimal.valueOf(value, scale);
+        }
+
+    }
+
+    private final List<Dimension> dimensions;
+    private final List<Group> groups;
+
+    InventoryAggregation(List<Dimension> dimensions, List<Group> groups) {
+        this.dimensions = Collections.unmodifiableList(dimensions);
+        this.groups = Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * Retorna les dimensions per què s'ha agrupat.
+     */
+    public List<Dimension> getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Retorna els grups que tenen alguna infraestructura, sense cap ordre
+     * concret.
+     */
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Retorna el grup dels elements indicats.
+     *
+     * @param ids
+     *            l'identificador de l'element de cada dimensió, en el mateix
+     *            ordre que {@link #getDimensions()}.
+     */
+    public Optional<Group> getGroup(long... ids) {
+        Assert.notNull(ids, "l'argument ids no pot ser null");
+        Assert.isTrue(ids.length == dimensions.size(), "cal un identificador per cada dimensió");
+        return groups.stream().filter(g -> g.hasIds(ids)).findFirst();
+    }
+
+    /**
+     * Un grup d'infraestructures amb els mateixos elements a cada dimensió.
+     */
+    public static final class Group {
+
+        private final Map<Dimension, Object> elements;
+        /**
+         * Els identificadors dels elements, en l'ordre de les dimensions de
+         * l'agregació ({@code null} si no hi ha element).
+         */
+        private final Long[] ids;
+        private final GroupAccumulator accumulator;
+        private final int group;
+
+        Group(Map<Dimension, Object> elements, Long[] ids, GroupAccumulator accumulator, int group) {
+            this.elements = elements;
+            this.ids = ids;
+            this.accumulator = accumulator;
+            this.group = group;
+        }
+
+        /**
+         * Retorna l'estat del grup, o {@code null} si no s'ha agrupat per
+         * estat o les infraestructures del grup no en tenen.
+         */
+        public Estat getEstat() {
+            return (Estat) elements.get(Dimension.ESTAT);
+        }
+
+        public Unitat getUnitat() {
+            return (Unitat) elements.get(Dimension.UNITAT);
+        }
+
+        public Edifici getEdifici() {
+            return (Edifici) elements.get(Dimension.EDIFICI);
+        }
+
+        public Marca getMarca() {
+            return (Marca) elements.get(Dimension.MARCA);
+        }
+
+        public TipusInfraestructura getTipusInfraestructura() {
+            return (TipusInfraestructura) elements.get(Dimension.TIPUS_INFRAESTRUCTURA);
+        }
+
+        /**
+         * Retorna el nombre d'infraestructures del grup.
+         */
+        public long getCount() {
+            return accumulator.getCount(group);
+        }
+
+        /**
+         * Retorna el nombre d'infraestructures del grup que tenen valor per la
+         * mesura indicada.
+         */
+        public long getCount(Measure measure) {
+            return accumulator.getValueCount(measure.ordinal(), group);
+        }
+
+        /**
+         * Retorna la suma de la mesura indicada (zero si cap infraestructura
+         * del grup no en té).
+         */
+        public BigDecimal getSum(Measure measure) {
+            return measure.toBigDecimal(accumulator.getSum(measure.ordinal(), group));
+        }
+
+        /**
+         * Retorna el valor mínim de la mesura indicada, o {@code null} si cap
+         * infraestructura del grup no en té.
+         */
+        public BigDecimal getMin(Measure measure) {
+            return (getCount(measure) > 0) ? measure.toBigDecimal(accumulator.getMin(measure.ordinal(), group))
+                    : null;
+        }
+
+        /**
+         * Retorna el valor màxim de la mesura indicada, o {@code null} si cap
+         * infraestructura del grup no en té.
+         */
+        public BigDecimal getMax(Measure measure) {
+            return (getCount(measure) > 0) ? measure.toBigDecimal(accumulator.getMax(measure.ordinal(), group))
+                    : null;
+        }
+
+        private boolean hasIds(long[] values) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == null || ids[i] != values[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Group [ids=" + Arrays.toString(ids) + ", count=" + getCount() + "]";
+        }
+
+    }
+
+}
@@ -0,0 +1,496 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import edu.upc.caminstech.equipstic.Edifici;
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.TipusInfraestructura;
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.client.InventoryAggregation.Dimension;
+import edu.upc.caminstech.equipstic.client.InventoryAggregation.Measure;
+import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
+
+/**
+ * Còpia en memòria de tot l'inventari, organitzada per columnes, pensada per
+ * filtrar i comptar infraestructures moltes vegades (per exemple, en un quadre
+ * de comandament) sense recórrer cada vegada tots els objectes.
+ * <p>
+ * Cada atribut categòric (estat, unitat, edifici, marca i tipus
+ * d'infraestructura) es desa codificat amb un diccionari (cada fila té el codi
+ * de l'element, i no l'element), i amb un mapa de bits per a cada element amb
+ * les files que el tenen. Els filtres es resolen com a interseccions i unions
+ * d'aquests mapes de bits, i les dates com a comparacions sobre un vector
+ * d'enters. Les infraestructures es conserven com a
+ * {@link InfraestructuraView}, que es poden obtenir a partir del resultat dels
+ * filtres.
+ * <p>
+ * Les infraestructures filtrades també es poden agrupar per aquests atributs,
+ * i comptar-les i sumar-ne els imports (vegeu {@link Query#groupBy}).
+ * <p>
+ * Les instàncies són immutables i es poden consultar des de diversos fils;
+ * per tenir dades noves cal crear-ne una altra.
+ */
+public final class InventorySnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySnapshot.class);
+
+    private static final int NONE = Integer.MIN_VALUE;
+    private static final long NO_VALUE = GroupAccumulator.NO_VALUE;
+
+    private final InfraestructuraView[] rows;
+    private final long[] identificadors;
+    private final int[] dataFinalGarantia;
+
+    private final Column<Estat> estats;
+    private final Column<Unitat> unitats;
+    private final Column<Edifici> edificis;
+    private final Column<Marca> marques;
+    private final Column<TipusInfraestructura> tipusInfraestructura;
+
+    /**
+     * Els valors de cada {@link Measure}, indexats per mesura i per fila.
+     */
+    private final long[][] measures;
+
+    /**
+     * @param infraestructures
+     *            les infraestructures de l'inventari. Si n'hi ha de repetides
+     *            (amb el mateix identificador), es conserva la primera.
+     * @param zone
+     *            la zona horària amb què s'han descodificat les dates de les
+     *            infraestructures.
+     */
+    public InventorySnapshot(Collection<Infraestructura> infraestructures, ZoneId zone) {
+        this(toViews(infraestructures, zone));
+    }
+
+    private InventorySnapshot(InfraestructuraView[] views) {
+        Arrays.sort(views);
+        rows = views;
+        identificadors = new long[rows.length];
+        dataFinalGarantia = new int[rows.length];
+        measures = new long[Measure.values().length][rows.length];
+        estats = new Column<>(rows.length, InfraestructuraView::getEstat, Estat::getIdEstat);
+        unitats = new Column<>(rows.length, InfraestructuraView::getUnitat, Unitat::getIdUnitat);
+        edificis = new Column<>(rows.length, InfraestructuraView::getEdifici, Edifici::getIdEdifici);
+        marques = new Column<>(rows.length, InfraestructuraView::getMarca, Marca::getIdMarca);
+        tipusInfraestructura = new Column<>(rows.length, InfraestructuraView::getTipusInfraestructura,
+                TipusInfraestructura::getIdTipus);
+
+        for (int row = 0; row < rows.length; row++) {
+            InfraestructuraView view = rows[row];
+            identificadors[row] = view.getIdentificador();
+            LocalDate data = view.getDataFinalGarantia();
+            dataFinalGarantia[row] = (data != null) ? Math.toIntExact(data.toEpochDay()) : NONE;
+            estats.add(row, view);
+            unitats.add(row, view);
+            edificis.add(row, view);
+            marques.add(row, view);
+            tipusInfraestructura.add(row, view);
+            for (Measure measure : Measure.values()) {
+                measures[measure.ordinal()][row] = measure(view, measure);
+            }
+        }
+    }
+
+    private static long measure(InfraestructuraView view, Measure measure) {
+        switch (measure) {
+        case IMPORT_COMPRA:
+            BigDecimal importCompra = view.getImportCompra();
+            return (importCompra != null) ? importCompra.unscaledValue().longValueExact() : NO_VALUE;
+        case NUMERO_CPUS:
+            return (view.getNumeroCpus() != null) ? view.getNumeroCpus() : NO_VALUE;
+        case NUMERO_PORTS:
+            return (view.getNumeroPorts() != null) ? view.getNumeroPorts() : NO_VALUE;
+        default:
+            throw new IllegalArgumentException("Mesura desconeguda: " + measure);
+        }
+    }
+
+    private Column<?> column(Dimension dimension) {
+        switch (dimension) {
+        case ESTAT:
+            return estats;
+        case UNITAT:
+            return unitats;
+        case EDIFICI:
+            return edificis;
+        case MARCA:
+            return marques;
+        case TIPUS_INFRAESTRUCTURA:
+            return tipusInfraestructura;
+        default:
+            throw new IllegalArgumentException("Dimensió desconeguda: " + dimension);
+        }
+    }
+
+    /**
+     * Carrega les infraestructures de totes les unitats
+     * ({@link EquipsTicClient#getUnitats()}) i en crea una còpia.
+     * <p>
+     * Les unitats les infraestructures de les quals l'usuari no té privilegis
+     * per consultar s'ometen.
+     *
+     * @param source
+     *            el client d'on es carreguen les infraestructures.
+     * @param zone
+     *            la zona horària amb què el client descodifica les dates.
+     */
+    public static InventorySnapshot load(EquipsTicClient source, ZoneId zone) {
+        Assert.notNull(source, "l'argument source no pot ser null");
+        Loader loader = new Loader(zone);
+        for (Unitat unitat : source.getUnitats()) {
+            try {
+                source.forEachInfraestructuraByUnitat(unitat.getIdUnitat(), loader::add);
+            } catch (UnauthorizedException e) {
+                logger.debug("S'omet la unitat [idUnitat: {}]: {}", unitat.getIdUnitat(), e.getMessage());
+            }
+        }
+        return new InventorySnapshot(loader.toArray());
+    }
+
+    private static InfraestructuraView[] toViews(Collection<Infraestructura> infraestructures, ZoneId zone) {
+        Assert.notNull(infraestructures, "l'argument infraestructures no pot ser null");
+        Loader loader = new Loader(zone);
+        infraestructures.forEach(loader::add);
+        return loader.toArray();
+    }
+
+    /**
+     * Retorna el nombre d'infraestructures.
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * Retorna totes les infraestructures, ordenades com
+     * {@link InfraestructuraView#compareTo(InfraestructuraView)}.
+     */
+    public List<InfraestructuraView> getInfraestructures() {
+        return Collections.unmodifiableList(Arrays.asList(rows));
+    }
+
+    /**
+     * Crea una consulta nova, que inicialment inclou totes les
+     * infraestructures.
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    /**
+     * Una consulta sobre l'inventari: cada condició que s'afegeix restringeix
+     * el resultat a les infraestructures que també la compleixen.
+     * <p>
+     * Les instàncies no són thread-safe.
+     */
+    public final class Query {
+
+        /**
+         * Les files seleccionades, o {@code null} si no hi ha cap condició.
+         */
+        private BitSet selected;
+
+        private Query() {
+        }
+
+        /**
+         * Restringeix el resultat a les infraestructures que tenen algun dels
+         * estats indicats.
+         */
+        public Query withEstat(long... idEstat) {
+            return and(estats.select(idEstat));
+        }
+
+        /**
+         * Restringeix el resultat a les infraestructures que són d'alguna de
+         * les unitats indicades.
+         */
+        public Query withUnitat(long... idUnitat) {
+            return and(unitats.select(idUnitat));
+        }
+
+        /**
+         * Restringeix el resultat a les infraestructures que són en algun dels
+         * edificis indicats.
+         */
+        public Query withEdifici(long... idEdifici) {
+            return and(edificis.select(idEdifici));
+        }
+
+        /**
+         * Restringeix el resultat a les infraestructures que són d'alguna de
+         * les marques indicades.
+         */
+        public Query withMarca(long... idMarca) {
+            return and(marques.select(idMarca));
+        }
+
+        /**
+         * Restringeix el resultat a les infraestructures que són d'algun dels
+         * tipus indicats.
+         */
+        public Query withTipusInfraestructura(long... idTipus) {
+            return and(tipusInfraestructura.select(idTipus));
+        }
+
+        /**
+         * Restringeix el resultat a les infraestructures amb data final de
+         * garantia dins de l'interval indicat. Les infraestructures sense data
+         * final de garantia queden excloses.
+         *
+         * @param from
+         *            la data inicial (inclosa), o {@code null} si no hi ha
+         *            límit inferior.
+         * @param to
+         *            la data final (exclosa), o {@code null} si no hi ha límit
+         *            superior.
+         */
+        public Query withDataFinalGarantiaBetween(LocalDate from, LocalDate to) {
+            long min = (from != null) ? from.toEpochDay() : NONE + 1L;
+            long max = (to != null) ? to.toEpochDay() : Long.MAX_VALUE;
+            BitSet result = new BitSet(rows.length);
+            if (selected == null) {
+                for (int row = 0; row < rows.length; row++) {
+                    int data = dataFinalGarantia[row];
+                    if (data >= min && data < max) {
+                        result.set(row);
+                    }
+                }
+            } else {
+                for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+                    int data = dataFinalGarantia[row];
+                    if (data >= min && data < max) {
+                        result.set(row);
+                    }
+                }
+            }
+            selected = result;
+            return this;
+        }
+
+        /**
+         * Retorna el nombre d'infraestructures que compleixen les condicions.
+         */
+        public int count() {
+            return (selected != null) ? selected.cardinality() : rows.length;
+        }
+
+        /**
+         * Retorna els identificadors de les infraestructures que compleixen
+         * les condicions, en el mateix ordre que {@link #list()}.
+         */
+        public long[] getIdentificadors() {
+            if (selected == null) {
+                return identificadors.clone();
+            }
+            return selected.stream().mapToLong(row -> identificadors[row]).toArray();
+        }
+
+        /**
+         * Retorna les infraestructures que compleixen les condicions, ordenades
+         * com {@link InfraestructuraView#compareTo(InfraestructuraView)}.
+         */
+        public List<InfraestructuraView> list() {
+            if (selected == null) {
+                return getInfraestructures();
+            }
+            List<InfraestructuraView> result = new ArrayList<>(selected.cardinality());
+            selected.stream().forEach(row -> result.add(rows[row]));
+            return Collections.unmodifiableList(result);
+        }
+
+        /**
+         * Agrupa les infraestructures que compleixen les condicions pels
+         * elements de les dimensions indicades, i en calcula el nombre i la
+         * suma, el mínim i el màxim de cada {@link Measure}.
+         * <p>
+         * Les infraestructures es reparteixen per unitats, i cada unitat
+         * s'agrega en paral·lel (amb el
+         * {@link java.util.concurrent.ForkJoinPool#commonPool()})
+         * amb acumuladors de tipus primitius; només es crea un objecte per
+         * cada grup del resultat.
+         *
+         * @param dimensions
+         *            les dimensions per què s'agrupa; si no se n'indica cap,
+         *            el resultat té un sol grup amb totes les infraestructures.
+         */
+        public InventoryAggregation groupBy(Dimension... dimensions) {
+            Assert.notNull(dimensions, "l'argument dimensions no pot ser null");
+            Column<?>[] columns = new Column<?>[dimensions.length];
+            long[] multipliers = new long[dimensions.length];
+            long multiplier = 1;
+            for (int d = 0; d < dimensions.length; d++) {
+                Assert.notNull(dimensions[d], "les dimensions no poden ser null");
+                columns[d] = column(dimensions[d]);
+                multipliers[d] = multiplier;
+                multiplier = Math.multiplyExact(multiplier, columns[d].values.size() + 1L);
+            }
+
+            BitSet filter = selected;
+            GroupAccumulator accumulator = unitats.partitions().parallelStream()
+                    .map(partition -> accumulate(partition, filter, columns, multipliers))
+                    .reduce(GroupAccumulator::merge)
+                    .orElseGet(() -> new GroupAccumulator(measures.length));
+
+            List<InventoryAggregation.Group> groups = new ArrayList<>(accumulator.size());
+            for (int group = 0; group < accumulator.size(); group++) {
+                long key = accumulator.getKey(group);
+                Map<Dimension, Object> elements = new EnumMap<>(Dimension.class);
+                Long[] ids = new Long[dimensions.length];
+                for (int d = dimensions.length - 1; d >= 0; d--) {
+                    int code = (int) (key / multipliers[d]) - 1;
+                    key %= multipliers[d];
+                    if (code >= 0) {
+                        elements.put(dimensions[d], columns[d].values.get(code));
+                        ids[d] = columns[d].getId(code);
+                    }
+                }
+                groups.add(new InventoryAggregation.Group(elements, ids, accumulator, group));
+            }
+            return new InventoryAggregation(Arrays.asList(dimensions.clone()), groups);
+        }
+
+        private Query and(BitSet bits) {
+            if (selected == null) {
+                selected = bits;
+            } else {
+                selected.and(bits);
+            }
+            return this;
+        }
+
+    }
+
+    private GroupAccumulator accumulate(BitSet partition, BitSet filter, Column<?>[] columns, long[] multipliers) {
+        GroupAccumulator accumulator = new GroupAccumulator(measures.length);
+        for (int row = partition.nextSetBit(0); row >= 0; row = partition.nextSetBit(row + 1)) {
+            if (filter == null || filter.get(row)) {
+                long key = 0;
+                for (int d = 0; d < columns.length; d++) {
+                    key += (columns[d].codes[row] + 1L) * multipliers[d];
+                }
+                accumulator.add(key, measures, row);
+            }
+        }
+        return accumulator;
+    }
+
+    /**
+     * Una columna categòrica: el codi de l'element de cada fila (o -1 si no en
+     * té), el diccionari dels elements, i les files de cada element.
+     */
+    private static final class Column<T> {
+
+        private final Function<InfraestructuraView, T> attribute;
+        private final ToLongFunction<T> id;
+
+        private final int[] codes;
+        private final LongIntMap codesById = new LongIntMap(16);
+        private final List<T> values = new ArrayList<>();
+        private final List<BitSet> rows = new ArrayList<>();
+        private final BitSet none = new BitSet();
+
+        Column(int size, Function<InfraestructuraView, T> attribute, ToLongFunction<T> id) {
+            this.attribute = attribute;
+            this.id = id;
+            codes = new int[size];
+        }
+
+        void add(int row, InfraestructuraView view) {
+            T element = attribute.apply(view);
+            if (element == null) {
+                codes[row] = -1;
+                none.set(row);
+                return;
+            }
+            long key = id.applyAsLong(element);
+            int code = codesById.get(key);
+            if (code == LongIntMap.NO_VALUE) {
+                code = values.size();
+                codesById.put(key, code);
+                values.add(element);
+                rows.add(new BitSet());
+            }
+            codes[row] = code;
+            rows.get(code).set(row);
+        }
+
+        /**
+         * Retorna un mapa de bits nou amb les files que tenen algun dels
+         * elements indicats.
+         */
+        BitSet select(long... ids) {
+            Assert.notNull(ids, "l'argument ids no pot ser null");
+            BitSet result = new BitSet();
+            for (long key : ids) {
+                int code = codesById.get(key);
+                if (code != LongIntMap.NO_VALUE) {
+                    result.or(rows.get(code));
+                }
+            }
+            return result;
+        }
+
+        long getId(int code) {
+            return id.applyAsLong(values.get(code));
+        }
+
+        /**
+         * Retorna les files de cada element, i les files sense element.
+         */
+        List<BitSet> partitions() {
+            List<BitSet> result = new ArrayList<>(rows);
+            result.add(none);
+            return result;
+        }
+
+    }
+
+    /**
+     * Crea les vistes de les infraestructures, descartant les repetides.
+     */
+    private static final class Loader {
+
+        private final InfraestructuraView.Catalog catalog;
+        private final LongObjectMap<InfraestructuraView> views = new LongObjectMap<>(1024);
+        private final List<InfraestructuraView> result = new ArrayList<>();
+
+        Loader(ZoneId zone) {
+            catalog = new InfraestructuraView.Catalog(zone);
+        }
+
+        void add(Infraestructura infraestructura) {
+            if (views.get(infraestructura.getIdentificador()) == null) {
+                InfraestructuraView view = catalog.view(infraestructura);
+                views.put(view.getIdentificador(), view);
+                result.add(view);
+            }
+        }
+
+        InfraestructuraView[] toArray() {
+            return result.toArray(new InfraestructuraView[0]);
+        }
+
+    }
+
+}
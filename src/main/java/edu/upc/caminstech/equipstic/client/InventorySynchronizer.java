@@ -0,0 +1,241 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
+
+/**
+ * Manté una còpia local de totes les infraestructures i la posa al dia de
+ * manera incremental, avisant dels canvis amb un {@link Listener}.
+ * <p>
+ * A cada sincronització ({@link #synchronize()}) es demanen les llistes de
+ * infraestructures de totes les unitats, es comparen per identificador i per
+ * data de darrera modificació amb la còpia local, i només es demanen els
+ * detalls de les infraestructures noves o modificades.
+ * <p>
+ * Com que la data de darrera modificació no té hora, per a cada unitat es
+ * guarda la data de modificació més recent que s'ha vist (la <em>marca
+ * d'aigua</em>), i les infraestructures modificades aquell mateix dia es
+ * tornen a demanar a cada sincronització, per si han tornat a canviar. Si no
+ * han canviat, no es notifica res.
+ * <p>
+ * Les unitats les infraestructures de les quals l'usuari no té privilegis per
+ * consultar s'ometen. Les infraestructures de la còpia local que pertanyen a
+ * una unitat omesa (o que no ha aparegut a la llista d'unitats) es mantenen tal
+ * com estaven, sense notificar-ne cap baixa. Si el client té cache, els
+ * detalls que s'obtenen de la cache i que són més antics que la llista es
+ * descarten, i la infraestructura es torna a demanar a la sincronització
+ * següent.
+ * <p>
+ * La còpia local es pot consultar des de diversos fils mentre es sincronitza;
+ * les sincronitzacions es fan d'una en una.
+ */
+public class InventorySynchronizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventorySynchronizer.class);
+
+    /**
+     * Rep els canvis detectats en cada sincronització, un cop la còpia local
+     * ja s'ha actualitzat.
+     */
+    public interface Listener {
+
+        default void added(Infraestructura infraestructura) {
+        }
+
+        default void changed(Infraestructura previous, Infraestructura current) {
+        }
+
+        default void removed(Infraestructura infraestructura) {
+        }
+
+    }
+
+    private final EquipsTicClient source;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Map<Long, Infraestructura> infraestructures = new ConcurrentHashMap<>();
+    private volatile Map<Long, Date> highWaterMarks = Collections.emptyMap();
+
+    /**
+     * La data de darrera modificació de cada infraestructura segons la darrera
+     * llista on ha aparegut (pot ser {@code null}).
+     */
+    private final Map<Long, Date> versions = new HashMap<>();
+
+    /**
+     * La unitat de cada infraestructura segons la darrera llista on ha
+     * aparegut.
+     */
+    private final Map<Long, Long> unitatsByInfraestructura = new HashMap<>();
+
+    /**
+     * @param source
+     *            el client d'on s'obtenen les infraestructures.
+     */
+    public InventorySynchronizer(EquipsTicClient source) {
+        Assert.notNull(source, "l'argument source no pot ser null");
+        this.source = source;
+    }
+
+    public void addListener(Listener listener) {
+        Assert.notNull(listener, "l'argument listener no pot ser null");
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Retorna la còpia local d'una infraestructura, amb detalls.
+     */
+    public Optional<Infraestructura> getInfraestructura(long id) {
+        return Optional.ofNullable(infraestructures.get(id));
+    }
+
+    /**
+     * Retorna la còpia local de totes les infraestructures, amb detalls.
+     */
+    public List<Infraestructura> getInfraestructures() {
+        return Collections.unmodifiableList(new ArrayList<>(infraestructures.values()));
+    }
+
+    /**
+     * Retorna la data de darrera modificació més recent de les
+     * infraestructures de la unitat, segons la darrera sincronització.
+     */
+    public Optional<Date> getHighWaterMark(long idUnitat) {
+        return Optional.ofNullable(highWaterMarks.get(idUnitat));
+    }
+
+    /**
+     * Posa al dia la còpia local i notifica els canvis als {@link Listener}.
+     * <p>
+     * Si falla alguna petició, la còpia local no es modifica.
+     */
+    public synchronized void synchronize() {
+        Map<Long, Infraestructura> listed = new HashMap<>();
+        Map<Long, Long> unitats = new HashMap<>();
+        Set<Long> visited = new HashSet<>();
+        for (Unitat unitat : source.getUnitats()) {
+            long idUnitat = unitat.getIdUnitat();
+            try {
+                source.forEachInfraestructuraByUnitat(idUnitat, i -> {
+                    if (listed.putIfAbsent(i.getIdentificador(), i) == null) {
+                        unitats.put(i.getIdentificador(), idUnitat);
+                    }
+                });
+                visited.add(idUnitat);
+            } catch (UnauthorizedException e) {
+                logger.debug("S'omet la unitat [idUnitat: {}]: {}", idUnitat, e.getMessage());
+            }
+        }
+
+        List<Long> candidates = new ArrayList<>();
+        for (Infraestructura i : listed.values()) {
+            long id = i.getIdentificador();
+            if (isCandidate(id, i.getDataDarreraModificacio(), highWaterMarks.get(unitats.get(id)))) {
+                candidates.add(id);
+            }
+        }
+        Map<Long, Optional<Infraestructura>> details = candidates.isEmpty() ? Collections.emptyMap()
+                : source.getInfraestructuresByIds(candidates, true);
+
+        List<Runnable> events = new ArrayList<>();
+        for (Long id : candidates) {
+            Infraestructura current = details.getOrDefault(id, Optional.empty()).orElse(null);
+            Date version = listed.get(id).getDataDarreraModificacio();
+            if (current == null) {
+                listed.remove(id);
+            } else if (isOlder(current.getDataDarreraModificacio(), version)) {
+                logger.debug("Es descarten els detalls antics de la infraestructura [id: {}]", id);
+            } else {
+                Infraestructura previous = infraestructures.put(id, current);
+                versions.put(id, version);
+                if (previous == null) {
+                    events.add(() -> notify(l -> l.added(current)));
+                } else if (!EqualsBuilder.reflectionEquals(previous, current, false)) {
+                    events.add(() -> notify(l -> l.changed(previous, current)));
+                }
+            }
+        }
+        for (Long id : new ArrayList<>(infraestructures.keySet())) {
+            // només se sap que ja no hi és si s'ha llistat sencera la seva unitat
+            Long idUnitat = unitats.getOrDefault(id, unitatsByInfraestructura.get(id));
+            if (!listed.containsKey(id) && visited.contains(idUnitat)) {
+                Infraestructura previous = infraestructures.remove(id);
+                versions.remove(id);
+                unitatsByInfraestructura.remove(id);
+                events.add(() -> notify(l -> l.removed(previous)));
+            }
+        }
+        unitats.forEach((id, idUnitat) -> {
+            if (infraestructures.containsKey(id)) {
+                unitatsByInfraestructura.put(id, idUnitat);
+            }
+        });
+
+        Map<Long, Date> marks = new HashMap<>();
+        highWaterMarks.forEach((idUnitat, date) -> {
+            if (!visited.contains(idUnitat)) {
+                marks.put(idUnitat, date);
+            }
+        });
+        listed.forEach((id, i) -> {
+            Date date = i.getDataDarreraModificacio();
+            if (date != null && visited.contains(unitats.get(id))) {
+                marks.merge(unitats.get(id), date, (a, b) -> a.after(b) ? a : b);
+            }
+        });
+        highWaterMarks = marks;
+
+        events.forEach(Runnable::run);
+    }
+
+    /**
+     * Indica si cal demanar els detalls de la infraestructura: si és nova, si
+     * la data de modificació ha canviat, o si es va modificar el mateix dia
+     * que la modificació més recent de la unitat.
+     */
+    private boolean isCandidate(long id, Date version, Date highWaterMark) {
+        if (!infraestructures.containsKey(id) || !Objects.equals(version, versions.get(id))) {
+            return true;
+        }
+        return version != null && highWaterMark != null && !version.before(highWaterMark);
+    }
+
+    private static boolean isOlder(Date date, Date version) {
+        return date != null && version != null && date.before(version);
+    }
+
+    private void notify(Consumer<Listener> event) {
+        for (Listener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                logger.warn("Error en notificar un canvi de l'inventari", e);
+            }
+        }
+    }
+
+}
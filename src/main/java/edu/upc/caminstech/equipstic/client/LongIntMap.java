@@ -0,0 +1,98 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de claus {@code long} a valors {@code int}, amb adreçament obert i
+ * sondeig lineal, que no crea cap objecte ni per a les claus ni per als
+ * valors.
+ * <p>
+ * Només admet afegir elements: està pensat per construir-se una vegada i
+ * després consultar-se des de diversos fils, sense modificar-lo. Només admet
+ * valors no negatius.
+ */
+final class LongIntMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * El valor que retorna {@link #get(long)} si la clau no hi és, i que
+     * marca les posicions buides de la taula.
+     */
+    static final int NO_VALUE = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retorna el valor associat a la clau, o {@link #NO_VALUE} si no n'hi ha.
+     */
+    int get(long key) {
+        for (int i = index(key);; i = (i + 1) & mask) {
+            int value = values[i];
+            if (value == NO_VALUE || keys[i] == key) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Associa el valor a la clau, i retorna el valor que hi havia abans (o
+     * {@link #NO_VALUE}).
+     */
+    int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("El valor no pot ser negatiu");
+        }
+        int i = index(key);
+        for (; values[i] != NO_VALUE; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        return NO_VALUE;
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+}
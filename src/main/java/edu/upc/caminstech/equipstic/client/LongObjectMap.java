@@ -0,0 +1,89 @@
+package edu.upc.caminstech.equipstic.client;
+
+/**
+ * Mapa de claus {@code long} a objectes, amb adreçament obert i sondeig
+ * lineal, que evita crear un {@link Long} per a cada consulta.
+ * <p>
+ * Només admet afegir elements: està pensat per construir-se una vegada i
+ * després consultar-se des de diversos fils, sense modificar-lo. No admet
+ * valors {@code null}.
+ */
+final class LongObjectMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retorna el valor associat a la clau, o {@code null} si no n'hi ha.
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        for (int i = index(key);; i = (i + 1) & mask) {
+            Object value = values[i];
+            if (value == null || keys[i] == key) {
+                return (V) value;
+            }
+        }
+    }
+
+    /**
+     * Associa el valor a la clau, i retorna el valor que hi havia abans (o
+     * {@code null}).
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("El valor no pot ser null");
+        }
+        int i = index(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        return null;
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+}
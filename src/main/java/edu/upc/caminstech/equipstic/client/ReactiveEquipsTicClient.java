@@ -0,0 +1,53 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.util.Optional;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Unitat;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Versió reactiva (basada en <a href="https://projectreactor.io/">Project
+ * Reactor</a>) d'algunes operacions de {@link EquipsTicClient}.
+ * <p>
+ * Les operacions que retornen llistes retornen un {@link Flux} que emet els
+ * elements a mesura que es reben del servidor, sense esperar a tenir la
+ * resposta sencera. Per aquest motiu, els elements <em>no</em> s'ordenen: es
+ * retornen en el mateix ordre en què els envia el servidor.
+ * <p>
+ * Per fer servir aquest client, cal afegir les dependències
+ * {@code spring-webflux} i {@code reactor-netty} al vostre projecte.
+ */
+public interface ReactiveEquipsTicClient {
+
+    /**
+     * Versió reactiva de {@link EquipsTicClient#getUnitats()}.
+     */
+    Flux<Unitat> getUnitats();
+
+    /**
+     * Versió reactiva de {@link EquipsTicClient#getUnitatById(long)}.
+     */
+    Mono<Optional<Unitat>> getUnitatById(long idUnitat);
+
+    /**
+     * Versió reactiva de
+     * {@link EquipsTicClient#getInfraestructuraByMarcaAndNumeroDeSerie(long, String, boolean)}.
+     */
+    Mono<Optional<Infraestructura>> getInfraestructuraByMarcaAndNumeroDeSerie(long idMarca, String sn,
+            boolean ambDetalls);
+
+    /**
+     * Versió reactiva de
+     * {@link EquipsTicClient#getInfraestructuraById(long, boolean)}.
+     */
+    Mono<Optional<Infraestructura>> getInfraestructuraById(long id, boolean ambDetalls);
+
+    /**
+     * Versió reactiva de
+     * {@link EquipsTicClient#getInfraestructuresByUnitat(long)}.
+     */
+    Flux<Infraestructura> getInfraestructuresByUnitat(long idUnitat);
+
+}
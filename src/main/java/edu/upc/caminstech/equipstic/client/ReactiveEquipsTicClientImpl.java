@@ -0,0 +1,90 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.client.dao.ReactiveInfraestructuraDao;
+import edu.upc.caminstech.equipstic.client.dao.ReactiveInfraestructuraDaoImpl;
+import edu.upc.caminstech.equipstic.client.dao.ReactiveUnitatDao;
+import edu.upc.caminstech.equipstic.client.dao.ReactiveUnitatDaoImpl;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Implementació bàsica d'un client reactiu de la API EquipsTIC.
+ * <p>
+ * Exemple d'utilització si no feu servir l'Spring Framework:
+ *
+ * <pre>
+ * EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(baseUri, username, password);
+ * ReactiveEquipsTicClient client = new ReactiveEquipsTicClientImpl(config);
+ *
+ * client.getInfraestructuresByUnitat(idUnitat).subscribe(i -&gt; ...);
+ * </pre>
+ *
+ * Si feu servir Spring Framework i les dependències {@code spring-webflux} i
+ * {@code reactor-netty} són al classpath, aquest client es configura
+ * automàticament igual que {@link EquipsTicClientImpl}.
+ * <p>
+ * Aquest client no fa servir la caché.
+ *
+ * @see ReactiveEquipsTicClient
+ */
+@Component
+@ConditionalOnClass(name = { "org.springframework.web.reactive.function.client.WebClient",
+        "reactor.netty.http.client.HttpClient" })
+public class ReactiveEquipsTicClientImpl implements ReactiveEquipsTicClient {
+
+    @Autowired
+    private ReactiveInfraestructuraDao infraestructuraDao;
+
+    @Autowired
+    private ReactiveUnitatDao unitatDao;
+
+    public ReactiveEquipsTicClientImpl() {
+    }
+
+    /**
+     * Constructor a partir d'una configuració.
+     *
+     * @param config
+     *            la configuració del client.
+     * @see EquipsTicClientConfiguration
+     */
+    public ReactiveEquipsTicClientImpl(EquipsTicClientConfiguration config) {
+        infraestructuraDao = new ReactiveInfraestructuraDaoImpl(config);
+        unitatDao = new ReactiveUnitatDaoImpl(config);
+    }
+
+    @Override
+    public Flux<Unitat> getUnitats() {
+        return unitatDao.getUnitats();
+    }
+
+    @Override
+    public Mono<Optional<Unitat>> getUnitatById(long idUnitat) {
+        return unitatDao.getUnitatById(idUnitat);
+    }
+
+    @Override
+    public Mono<Optional<Infraestructura>> getInfraestructuraByMarcaAndNumeroDeSerie(long idMarca, String sn,
+            boolean ambDetalls) {
+        return infraestructuraDao.getInfraestructuraByMarcaAndNumeroDeSerie(idMarca, sn, ambDetalls);
+    }
+
+    @Override
+    public Mono<Optional<Infraestructura>> getInfraestructuraById(long id, boolean ambDetalls) {
+        return infraestructuraDao.getInfraestructuraById(id, ambDetalls);
+    }
+
+    @Override
+    public Flux<Infraestructura> getInfraestructuresByUnitat(long idUnitat) {
+        return infraestructuraDao.getInfraestructuresByUnitat(idUnitat);
+    }
+
+}
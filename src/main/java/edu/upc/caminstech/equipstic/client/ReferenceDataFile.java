@@ -0,0 +1,173 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Fitxer amb una còpia dels catàlegs del {@link ReferenceDataIndex}, per
+ * poder-los fer servir immediatament en arrencar, sense esperar el servidor.
+ * <p>
+ * El format és binari i versionat: una capçalera (un número màgic, la versió
+ * del format i el moment en què es van carregar els catàlegs) seguida d'una
+ * secció per catàleg, amb el nom de la classe dels elements i els elements
+ * codificats en JSON. El fitxer es llegeix projectant-lo en memòria, i
+ * s'escriu de manera atòmica (en un fitxer temporal que després el
+ * substitueix), de tal forma que mai no es llegeix un fitxer a mig escriure.
+ * <p>
+ * Els fitxers d'una altra versió del format s'ignoren.
+ */
+final class ReferenceDataFile {
+
+    /**
+     * "ETIC" en ASCII.
+     */
+    private static final int MAGIC = 0x45544943;
+    static final int FORMAT_VERSION = 1;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final Path path;
+
+    ReferenceDataFile(Path path) {
+        this.path = path;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * El contingut del fitxer.
+     */
+    static final class Contents {
+
+        private final long loadedAt;
+        private final Map<Class<?>, List<?>> catalogs;
+
+        Contents(long loadedAt, Map<Class<?>, List<?>> catalogs) {
+            this.loadedAt = loadedAt;
+            this.catalogs = catalogs;
+        }
+
+        long getLoadedAt() {
+            return loadedAt;
+        }
+
+        Map<Class<?>, List<?>> getCatalogs() {
+            return catalogs;
+        }
+
+    }
+
+    /**
+     * Escriu els catàlegs al fitxer, substituint-ne el contingut anterior.
+     */
+    void write(Contents contents) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(contents.loadedAt);
+                out.writeInt(contents.catalogs.size());
+                for (Map.Entry<Class<?>, List<?>> catalog : contents.catalogs.entrySet()) {
+                    byte[] name = catalog.getKey().getName().getBytes(StandardCharsets.UTF_8);
+                    byte[] data = OBJECT_MAPPER.writeValueAsBytes(catalog.getValue());
+                    out.writeShort(name.length);
+                    out.write(name);
+                    out.writeInt(data.length);
+                    out.write(data);
+                }
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Llegeix els catàlegs del fitxer.
+     *
+     * @param types
+     *            les classes dels elements dels catàlegs que ha de contenir
+     *            el fitxer.
+     * @return el contingut del fitxer, o buit si no existeix o és d'una altra
+     *         versió del format.
+     * @throws IOException
+     *             si no es pot llegir, o si és incomplet o no té el format
+     *             esperat.
+     */
+    Optional<Contents> read(List<Class<?>> types) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("El fitxer no conté dades de referència: " + path);
+            }
+            if (buffer.getInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            long loadedAt = buffer.getLong();
+            int sections = buffer.getInt();
+            Map<String, ByteBuffer> data = new LinkedHashMap<>();
+            for (int i = 0; i < sections; i++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                int length = buffer.getInt();
+                ByteBuffer section = buffer.slice();
+                // via Buffer, perquè les versions covariants de ByteBuffer no existeixen a Java 8
+                ((Buffer) section).limit(length);
+                ((Buffer) buffer).position(buffer.position() + length);
+                data.put(new String(name, StandardCharsets.UTF_8), section);
+            }
+
+            Map<Class<?>, List<?>> catalogs = new LinkedHashMap<>();
+            for (Class<?> type : types) {
+                ByteBuffer section = data.get(type.getName());
+                if (section == null) {
+                    throw new IOException("El fitxer no conté el catàleg " + type.getSimpleName() + ": " + path);
+                }
+                JavaType listType = OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, type);
+                try (InputStream in = new ByteBufferBackedInputStream(section)) {
+                    catalogs.put(type, OBJECT_MAPPER.readValue(in, listType));
+                }
+            }
+            return Optional.of(new Contents(loadedAt, catalogs));
+        } catch (RuntimeException e) {
+            throw new IOException("El fitxer de dades de referència no és vàlid: " + path, e);
+        }
+    }
+
+}
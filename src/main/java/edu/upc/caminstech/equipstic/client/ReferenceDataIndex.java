@@ -0,0 +1,525 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import edu.upc.caminstech.equipstic.Ambit;
+import edu.upc.caminstech.equipstic.Campus;
+import edu.upc.caminstech.equipstic.Categoria;
+import edu.upc.caminstech.equipstic.Edifici;
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.SistemaOperatiu;
+import edu.upc.caminstech.equipstic.TipusInfraestructura;
+import edu.upc.caminstech.equipstic.TipusUs;
+import edu.upc.caminstech.equipstic.TipusXarxa;
+import edu.upc.caminstech.equipstic.Unitat;
+
+/**
+ * Índex en memòria de les dades de referència (els catàlegs: àmbits, campus,
+ * categories, edificis, estats, marques, sistemes operatius, tipus
+ * d'infraestructura, tipus d'ús, tipus de xarxa i unitats).
+ * <p>
+ * Els catàlegs es carreguen sencers una sola vegada i s'indexen per
+ * identificador (sense crear cap {@link Long} per consulta), per codi i per
+ * nom, de manera que les consultes es responen sense anar al servidor.
+ * <p>
+ * L'índex és immutable: cada recàrrega en construeix un de nou i el substitueix
+ * de cop, de tal forma que les consultes concurrents sempre veuen una versió
+ * completa i coherent dels catàlegs. Es recarrega quan té més de
+ * {@code refreshInterval} (en segon pla, a l'executor, mentre les consultes
+ * continuen fent servir la versió anterior) o quan es crida
+ * {@link #refresh()}. Si una càrrega falla, no es torna a intentar fins que ha
+ * passat un temps d'espera, que es dobla a cada error (des d'un segon fins a
+ * cinc minuts); mentrestant, si encara no s'ha pogut carregar cap versió, les
+ * consultes llancen {@link IllegalStateException}.
+ * <p>
+ * Les cerques per nom són exactes (distingeixen majúscules i minúscules).
+ * <p>
+ * Opcionalment, l'índex es pot desar en un fitxer local cada vegada que es
+ * carrega. En aquest cas, la primera consulta el carrega del fitxer, si n'hi
+ * ha, de tal forma que està disponible immediatament (fins i tot si el
+ * servidor no respon), i el torna a carregar del servidor en segon pla.
+ *
+ * @see EquipsTicClientSettings#isReferenceDataIndex()
+ */
+public class ReferenceDataIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataIndex.class);
+
+    /**
+     * Les classes dels elements dels catàlegs, en l'ordre en què es desen al
+     * fitxer.
+     */
+    private static final List<Class<?>> CATALOG_TYPES = Collections.unmodifiableList(Arrays.asList(Ambit.class,
+            Campus.class, Categoria.class, Edifici.class, Estat.class, Marca.class, SistemaOperatiu.class,
+            TipusInfraestructura.class, TipusUs.class, TipusXarxa.class, Unitat.class));
+
+    /**
+     * Temps d'espera mínim i màxim abans de tornar a intentar una càrrega que
+     * ha fallat.
+     */
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5 * 60 * 1000;
+
+    private final EquipsTicClient source;
+    private final Duration refreshInterval;
+    private final ReferenceDataFile file;
+    private final Executor executor;
+    private final Clock clock;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    /**
+     * Nombre de càrregues seguides que han fallat, i moment a partir del qual
+     * es pot tornar a intentar.
+     */
+    private int failures;
+    private volatile long nextAttemptAt;
+
+    /**
+     * @param source
+     *            el client d'on es carreguen els catàlegs.
+     * @param refreshInterval
+     *            l'edat a partir de la qual l'índex es recarrega, o
+     *            {@code null} si només s'ha de recarregar amb
+     *            {@link #refresh()}.
+     */
+    public ReferenceDataIndex(EquipsTicClient source, Duration refreshInterval) {
+        this(source, refreshInterval, null);
+    }
+
+    /**
+     * @param source
+     *            el client d'on es carreguen els catàlegs.
+     * @param refreshInterval
+     *            l'edat a partir de la qual l'índex es recarrega, o
+     *            {@code null} si només s'ha de recarregar amb
+     *            {@link #refresh()}.
+     * @param snapshotFile
+     *            el fitxer on es desa l'índex, o {@code null} si no s'ha de
+     *            desar.
+     */
+    public ReferenceDataIndex(EquipsTicClient source, Duration refreshInterval, Path snapshotFile) {
+        this(source, refreshInterval, snapshotFile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param source
+     *            el client d'on es carreguen els catàlegs.
+     * @param refreshInterval
+     *            l'edat a partir de la qual l'índex es recarrega, o
+     *            {@code null} si només s'ha de recarregar amb
+     *            {@link #refresh()}.
+     * @param snapshotFile
+     *            el fitxer on es desa l'índex, o {@code null} si no s'ha de
+     *            desar.
+     * @param executor
+     *            l'executor on es carreguen els catàlegs en paral·lel i on es
+     *            recarrega l'índex en segon pla.
+     */
+    public ReferenceDataIndex(EquipsTicClient source, Duration refreshInterval, Path snapshotFile,
+            Executor executor) {
+        this(source, refreshInterval, snapshotFile, executor, Clock.systemUTC());
+    }
+
+    ReferenceDataIndex(EquipsTicClient source, Duration refreshInterval, Path snapshotFile, Executor executor,
+            Clock clock) {
+        Assert.notNull(source, "l'argument source no pot ser null");
+        Assert.notNull(executor, "l'argument executor no pot ser null");
+        this.source = source;
+        this.refreshInterval = refreshInterval;
+        this.file = (snapshotFile != null) ? new ReferenceDataFile(snapshotFile) : null;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Torna a carregar tots els catàlegs (en paral·lel, a l'executor de
+     * l'índex i al fil que fa la crida) i substitueix l'índex actual quan
+     * s'han carregat tots. Si la càrrega falla, es continua fent servir
+     * l'índex anterior.
+     * <p>
+     * Si s'ha indicat un fitxer, s'hi desa el nou índex.
+     */
+    public void refresh() {
+        Map<Class<?>, FutureTask<List<?>>> loads = new LinkedHashMap<>();
+        loads.put(Ambit.class, new FutureTask<>(source::getAmbits));
+        loads.put(Campus.class, new FutureTask<>(source::getCampus));
+        loads.put(Categoria.class, new FutureTask<>(source::getCategories));
+        loads.put(Edifici.class, new FutureTask<>(source::getEdificis));
+        loads.put(Estat.class, new FutureTask<>(source::getEstats));
+        loads.put(Marca.class, new FutureTask<>(source::getMarques));
+        loads.put(SistemaOperatiu.class, new FutureTask<>(source::getSistemesOperatius));
+        loads.put(TipusInfraestructura.class, new FutureTask<>(source::getTipusInfraestructura));
+        loads.put(TipusUs.class, new FutureTask<>(source::getTipusUs));
+        loads.put(TipusXarxa.class, new FutureTask<>(source::getTipusXarxa));
+        loads.put(Unitat.class, new FutureTask<>(source::getUnitats));
+        Map<Class<?>, List<?>> catalogs = load(loads);
+        long loadedAt = clock.millis();
+        snapshot = new Snapshot(loadedAt, catalogs);
+
+        if (file != null) {
+            try {
+                file.write(new ReferenceDataFile.Contents(loadedAt, catalogs));
+            } catch (IOException e) {
+                logger.warn("No s'han pogut desar les dades de referència a " + file.getPath(), e);
+            }
+        }
+    }
+
+    public Optional<Ambit> getAmbitById(long idAmbit) {
+        return getSnapshot().ambits.getById(idAmbit);
+    }
+
+    public List<Ambit> getAmbitsByCodi(String codiAmbit) {
+        return getSnapshot().ambits.getByCodi(codiAmbit);
+    }
+
+    public List<Ambit> getAmbitsByNom(String nomAmbit) {
+        return getSnapshot().ambits.getByNom(nomAmbit);
+    }
+
+    public Optional<Campus> getCampusById(long idCampus) {
+        return getSnapshot().campus.getById(idCampus);
+    }
+
+    public Optional<Campus> getCampusByCodi(String codiCampus) {
+        return first(getSnapshot().campus.getByCodi(codiCampus));
+    }
+
+    public Optional<Categoria> getCategoriaById(long idCategoria) {
+        return getSnapshot().categories.getById(idCategoria);
+    }
+
+    public Optional<Edifici> getEdificiById(long idEdifici) {
+        return getSnapshot().edificis.getById(idEdifici);
+    }
+
+    public Optional<Edifici> getEdificiByCodiAndCodiCampus(String codiEdifici, String codiCampus) {
+        return first(getSnapshot().edificis.getByCodi(Arrays.asList(codiEdifici, codiCampus)));
+    }
+
+    public Optional<Estat> getEstatById(long idEstat) {
+        return getSnapshot().estats.getById(idEstat);
+    }
+
+    public Optional<Estat> getEstatByCodi(String codiEstat) {
+        return first(getSnapshot().estats.getByCodi(codiEstat));
+    }
+
+    public List<Estat> getEstatsByNom(String nomEstat) {
+        return getSnapshot().estats.getByNom(nomEstat);
+    }
+
+    public Optional<Marca> getMarcaById(long idMarca) {
+        return getSnapshot().marques.getById(idMarca);
+    }
+
+    public List<Marca> getMarquesByNom(String nom) {
+        return getSnapshot().marques.getByNom(nom);
+    }
+
+    public Optional<SistemaOperatiu> getSistemaOperatiuById(long idSistemaOperatiu) {
+        return getSnapshot().sistemesOperatius.getById(idSistemaOperatiu);
+    }
+
+    public List<SistemaOperatiu> getSistemesOperatiusByCodi(String codi) {
+        return getSnapshot().sistemesOperatius.getByCodi(codi);
+    }
+
+    public List<SistemaOperatiu> getSistemesOperatiusByNom(String nom) {
+        return getSnapshot().sistemesOperatius.getByNom(nom);
+    }
+
+    public Optional<TipusInfraestructura> getTipusInfraestructuraById(long idTipus) {
+        return getSnapshot().tipusInfraestructura.getById(idTipus);
+    }
+
+    public Optional<TipusInfraestructura> getTipusInfraestructuraByCodi(String codi) {
+        return first(getSnapshot().tipusInfraestructura.getByCodi(codi));
+    }
+
+    public List<TipusInfraestructura> getTipusInfraestructuraByNom(String nom) {
+        return getSnapshot().tipusInfraestructura.getByNom(nom);
+    }
+
+    public Optional<TipusUs> getTipusUsById(long idTipusUs) {
+        return getSnapshot().tipusUs.getById(idTipusUs);
+    }
+
+    public Optional<TipusXarxa> getTipusXarxaById(long idTipusXarxa) {
+        return getSnapshot().tipusXarxa.getById(idTipusXarxa);
+    }
+
+    public Optional<Unitat> getUnitatById(long idUnitat) {
+        return getSnapshot().unitats.getById(idUnitat);
+    }
+
+    public List<Unitat> getUnitatsByIdentificador(String identificador) {
+        return getSnapshot().unitats.getByCodi(identificador);
+    }
+
+    public List<Unitat> getUnitatsByNom(String nom) {
+        return getSnapshot().unitats.getByNom(nom);
+    }
+
+    /**
+     * Retorna l'índex actual, i el carrega o el recarrega si cal.
+     */
+    private Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null && !loadFile()) {
+                    if (clock.millis() < nextAttemptAt) {
+                        throw new IllegalStateException("Les dades de referència no estan disponibles: "
+                                + "l'última càrrega ha fallat");
+                    }
+                    try {
+                        refresh();
+                    } catch (RuntimeException e) {
+                        loadFailed();
+                        logger.warn("No s'han pogut carregar les dades de referència", e);
+                        throw e;
+                    }
+                    loadSucceeded();
+                }
+                return snapshot;
+            }
+        }
+        long now = clock.millis();
+        if (refreshInterval != null && now - s.loadedAt >= refreshInterval.toMillis() && now >= nextAttemptAt) {
+            refreshInBackground();
+        }
+        return s;
+    }
+
+    /**
+     * Recarrega l'índex a l'executor, si no s'està recarregant ja. Mentrestant
+     * les consultes es continuen responent amb l'índex actual.
+     */
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh();
+                    loadSucceeded();
+                } catch (RuntimeException e) {
+                    loadFailed();
+                    logger.warn("No s'han pogut recarregar les dades de referència", e);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+            logger.warn("No s'ha pogut programar la recàrrega de les dades de referència", e);
+        }
+    }
+
+    private synchronized void loadSucceeded() {
+        failures = 0;
+        nextAttemptAt = 0;
+    }
+
+    /**
+     * Ajorna el proper intent de càrrega, doblant el temps d'espera a cada
+     * error seguit.
+     */
+    private synchronized void loadFailed() {
+        long delay = MIN_RETRY_DELAY_MILLIS << Math.min(failures, 20);
+        failures++;
+        nextAttemptAt = clock.millis() + Math.min(delay, MAX_RETRY_DELAY_MILLIS);
+    }
+
+    /**
+     * Carrega l'índex del fitxer, si n'hi ha, i el revalida en segon pla.
+     *
+     * @return si s'ha pogut carregar.
+     */
+    private boolean loadFile() {
+        if (file == null) {
+            return false;
+        }
+        try {
+            Optional<ReferenceDataFile.Contents> contents = file.read(CATALOG_TYPES);
+            if (!contents.isPresent()) {
+                return false;
+            }
+            snapshot = new Snapshot(contents.get().getLoadedAt(), contents.get().getCatalogs());
+        } catch (IOException e) {
+            logger.warn("No s'han pogut llegir les dades de referència de " + file.getPath(), e);
+            return false;
+        }
+        refreshInBackground();
+        return true;
+    }
+
+    /**
+     * Executa les càrregues a l'executor i espera els resultats. Les que
+     * l'executor encara no ha començat s'executen en aquest fil, de tal forma
+     * que la càrrega avança encara que l'executor estigui ocupat.
+     */
+    private Map<Class<?>, List<?>> load(Map<Class<?>, FutureTask<List<?>>> loads) {
+        for (FutureTask<List<?>> task : loads.values()) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // s'executarà en aquest fil
+            }
+        }
+        Map<Class<?>, List<?>> catalogs = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, FutureTask<List<?>>> load : loads.entrySet()) {
+            FutureTask<List<?>> task = load.getValue();
+            task.run();
+            try {
+                catalogs.put(load.getKey(), task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("S'ha interromput la càrrega de les dades de referència", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return catalogs;
+    }
+
+    private static <T> Optional<T> first(List<T> list) {
+        return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
+    }
+
+    /**
+     * Una versió completa i immutable dels catàlegs indexats.
+     */
+    private static final class Snapshot {
+
+        private final long loadedAt;
+        private final Catalog<Ambit> ambits;
+        private final Catalog<Campus> campus;
+        private final Catalog<Categoria> categories;
+        private final Catalog<Edifici> edificis;
+        private final Catalog<Estat> estats;
+        private final Catalog<Marca> marques;
+        private final Catalog<SistemaOperatiu> sistemesOperatius;
+        private final Catalog<TipusInfraestructura> tipusInfraestructura;
+        private final Catalog<TipusUs> tipusUs;
+        private final Catalog<TipusXarxa> tipusXarxa;
+        private final Catalog<Unitat> unitats;
+
+        /**
+         * @param catalogs
+         *            els elements de cada catàleg, per classe.
+         */
+        Snapshot(long loadedAt, Map<Class<?>, List<?>> catalogs) {
+            this.loadedAt = loadedAt;
+            ambits = new Catalog<>(list(catalogs, Ambit.class), Ambit::getIdAmbit, Ambit::getCodi, Ambit::getNom);
+            campus = new Catalog<>(list(catalogs, Campus.class), Campus::getIdCampus, Campus::getCodi,
+                    Campus::getNom);
+            categories = new Catalog<>(list(catalogs, Categoria.class), Categoria::getIdCategoria,
+                    Categoria::getCodi, Categoria::getNom);
+            edificis = new Catalog<>(list(catalogs, Edifici.class), Edifici::getIdEdifici,
+                    Snapshot::getCodiAndCodiCampus, Edifici::getNom);
+            estats = new Catalog<>(list(catalogs, Estat.class), Estat::getIdEstat, Estat::getCodi, Estat::getNom);
+            marques = new Catalog<>(list(catalogs, Marca.class), Marca::getIdMarca, m -> null, Marca::getNom);
+            sistemesOperatius = new Catalog<>(list(catalogs, SistemaOperatiu.class),
+                    SistemaOperatiu::getIdSistemaOperatiu, SistemaOperatiu::getCodi, SistemaOperatiu::getNom);
+            tipusInfraestructura = new Catalog<>(list(catalogs, TipusInfraestructura.class),
+                    TipusInfraestructura::getIdTipus, TipusInfraestructura::getCodi, TipusInfraestructura::getNom);
+            tipusUs = new Catalog<>(list(catalogs, TipusUs.class), TipusUs::getIdTipusUs, t -> null,
+                    TipusUs::getNom);
+            tipusXarxa = new Catalog<>(list(catalogs, TipusXarxa.class), TipusXarxa::getIdTipusXarxa,
+                    TipusXarxa::getCodi, TipusXarxa::getNom);
+            unitats = new Catalog<>(list(catalogs, Unitat.class), Unitat::getIdUnitat, Unitat::getIdentificador,
+                    Unitat::getNom);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> List<T> list(Map<Class<?>, List<?>> catalogs, Class<T> type) {
+            return (List<T>) catalogs.get(type);
+        }
+
+        private static Object getCodiAndCodiCampus(Edifici e) {
+            if (e.getCodi() == null || e.getCampus() == null || e.getCampus().getCodi() == null) {
+                return null;
+            }
+            return Arrays.asList(e.getCodi(), e.getCampus().getCodi());
+        }
+
+    }
+
+    /**
+     * Els elements d'un catàleg, indexats per identificador, per codi i per
+     * nom.
+     */
+    private static final class Catalog<T> {
+
+        private final LongObjectMap<T> byId;
+        private final Map<Object, List<T>> byCodi;
+        private final Map<String, List<T>> byNom;
+
+        Catalog(List<T> elements, ToLongFunction<T> id, Function<T, ?> codi, Function<T, String> nom) {
+            byId = new LongObjectMap<>(elements.size());
+            for (T element : elements) {
+                byId.put(id.applyAsLong(element), element);
+            }
+            byCodi = group(elements, codi);
+            byNom = group(elements, nom);
+        }
+
+        Optional<T> getById(long id) {
+            return Optional.ofNullable(byId.get(id));
+        }
+
+        List<T> getByCodi(Object codi) {
+            return byCodi.getOrDefault(codi, Collections.emptyList());
+        }
+
+        List<T> getByNom(String nom) {
+            return byNom.getOrDefault(nom, Collections.emptyList());
+        }
+
+        private static <K, T> Map<K, List<T>> group(List<T> elements, Function<T, ? extends K> key) {
+            Map<K, List<T>> result = new HashMap<>();
+            for (T element : elements) {
+                K k = key.apply(element);
+                if (k != null) {
+                    result.computeIfAbsent(k, x -> new ArrayList<>(1)).add(element);
+                }
+            }
+            result.replaceAll((k, list) -> Collections.unmodifiableList(list));
+            return result;
+        }
+
+    }
+
+}
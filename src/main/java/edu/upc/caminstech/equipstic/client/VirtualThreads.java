@@ -0,0 +1,41 @@
+package edu.upc.caminstech.equipstic.client;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Accés als fils virtuals (Java 21 o posterior) sense dependre'n en temps de
+ * compilació, de tal forma que la llibreria continua funcionant amb Java 8.
+ * <p>
+ * Aquesta classe és d'ús intern de la llibreria.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+        // constructor privat; classe no instanciable
+    }
+
+    /**
+     * Crea un {@link ExecutorService} que executa cada tasca en un nou fil
+     * virtual, amb el prefix de nom donat.
+     *
+     * @return l'executor, o buit si la JVM no suporta fils virtuals (per
+     *         exemple, perquè és anterior a Java 21, o perquè és Java 19 o 20
+     *         sense les funcionalitats en previsualització activades).
+     */
+    static Optional<ExecutorService> newThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return Optional.of((ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+}
@@ -19,6 +19,10 @@ import edu.upc.caminstech.equipstic.util.NullSafe;
 @Repository
 public class CampusDaoImpl extends RestDao implements CampusDao {
 
+    private static final String GET_CAMPUS = "getCampus";
+    private static final String GET_CAMPUS_BY_CODI = "getCampusByCodi";
+    private static final String GET_CAMPUS_BY_ID = "getCampusById";
+
     private static final ParameterizedTypeReference<Response<List<Campus>>> RESPONSE_LIST_CAMPUS_TYPEREF = //
             new ParameterizedTypeReference<Response<List<Campus>>>() {
             };
@@ -33,25 +37,37 @@ public class CampusDaoImpl extends RestDao implements CampusDao {
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getCampus")
+    @Cacheable(CacheUtils.PREFIX + GET_CAMPUS)
     public List<Campus> getCampus() {
-        List<Campus> result = get("/campus", RESPONSE_LIST_CAMPUS_TYPEREF);
-        return NullSafe.sorted(result);
+        List<Campus> result = NullSafe.sorted(get("/campus", RESPONSE_LIST_CAMPUS_TYPEREF));
+        putAll(CacheUtils.PREFIX + GET_CAMPUS_BY_ID, result, Campus::getIdCampus);
+        putAll(CacheUtils.PREFIX + GET_CAMPUS_BY_CODI, result, Campus::getCodi);
+        return result;
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getCampusByCodi")
+    @Cacheable(CacheUtils.PREFIX + GET_CAMPUS_BY_CODI)
     public Optional<Campus> getCampusByCodi(String codiCampus) {
         if (codiCampus == null) {
             throw new IllegalArgumentException("El codi del campus no pot ser null");
         }
+        Optional<Campus> cached = findInCachedList(CacheUtils.PREFIX + GET_CAMPUS,
+                (Campus c) -> codiCampus.equals(c.getCodi()));
+        if (cached.isPresent()) {
+            return cached;
+        }
         Campus result = get("/campus/cerca/codi/{codi}", RESPONSE_CAMPUS_TYPEREF, codiCampus);
         return Optional.ofNullable(result);
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getCampusById")
+    @Cacheable(CacheUtils.PREFIX + GET_CAMPUS_BY_ID)
     public Optional<Campus> getCampusById(long idCampus) {
+        Optional<Campus> cached = findInCachedList(CacheUtils.PREFIX + GET_CAMPUS,
+                (Campus c) -> c.getIdCampus() == idCampus);
+        if (cached.isPresent()) {
+            return cached;
+        }
         Campus result = get("/campus/{id}", RESPONSE_CAMPUS_TYPEREF, idCampus);
         return Optional.ofNullable(result);
     }
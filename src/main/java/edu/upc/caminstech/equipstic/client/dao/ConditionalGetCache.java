@@ -0,0 +1,86 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Les darreres respostes de les crides GET que incloïen validadors
+ * ({@code ETag} o {@code Last-Modified}), per poder-les tornar a demanar amb
+ * una petició condicional i reaprofitar-les si el servidor respon que no han
+ * canviat (304).
+ * <p>
+ * Es guarda el cos de la resposta tal com s'ha rebut, i no el resultat
+ * descodificat, perquè cada consulta rebi una instància nova que pugui
+ * modificar sense afectar les altres.
+ * <p>
+ * Guarda com a màxim {@code maxEntries} respostes; quan n'hi ha més, descarta
+ * les que fa més temps que no es fan servir.
+ */
+class ConditionalGetCache {
+
+    /**
+     * Una resposta, amb els seus validadors.
+     */
+    static final class Entry {
+
+        private final String eTag;
+        private final long lastModified;
+        private final byte[] body;
+
+        Entry(String eTag, long lastModified, byte[] body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Afegeix a la petició les capçaleres condicionals.
+         */
+        void addConditions(HttpHeaders headers) {
+            if (eTag != null) {
+                headers.setIfNoneMatch(eTag);
+            }
+            if (lastModified >= 0) {
+                headers.setIfModifiedSince(lastModified);
+            }
+        }
+
+    }
+
+    private final Map<String, Entry> entries;
+
+    ConditionalGetCache(int maxEntries) {
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Desa la resposta, si té validadors, o n'esborra l'anterior si no en té.
+     */
+    synchronized void update(String key, HttpHeaders headers, byte[] body) {
+        String eTag = headers.getETag();
+        long lastModified = headers.getLastModified();
+        if (eTag != null || lastModified >= 0) {
+            entries.put(key, new Entry(eTag, lastModified, body));
+        } else {
+            entries.remove(key);
+        }
+    }
+
+}
@@ -5,6 +5,7 @@ import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Repository;
 
@@ -19,29 +20,41 @@ import edu.upc.caminstech.equipstic.util.NullSafe;
 @Repository
 public class EdificiDaoImpl extends RestDao implements EdificiDao {
 
+    private static final String GET_EDIFICIS = "getEdificis";
+    private static final String GET_EDIFICI_BY_ID = "getEdificiById";
+    private static final String GET_EDIFICI_BY_CODI_AND_CODI_CAMPUS = "getEdificiByCodiAndCodiCampus";
+
     @Autowired
     public EdificiDaoImpl(EquipsTicClientConfiguration config) {
         super(config);
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getEdificis")
+    @Cacheable(cacheNames = CacheUtils.PREFIX + GET_EDIFICIS, sync = true)
     public List<Edifici> getEdificis() {
         List<Edifici> result = get("/edifici", new ParameterizedTypeReference<Response<List<Edifici>>>() {
         });
-        return NullSafe.sorted(result);
+        result = NullSafe.sorted(result);
+        putAll(CacheUtils.PREFIX + GET_EDIFICI_BY_ID, result, Edifici::getIdEdifici);
+        putAll(CacheUtils.PREFIX + GET_EDIFICI_BY_CODI_AND_CODI_CAMPUS, result, EdificiDaoImpl::getCodiKey);
+        return result;
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getEdificiById")
+    @Cacheable(CacheUtils.PREFIX + GET_EDIFICI_BY_ID)
     public Optional<Edifici> getEdificiById(long idEdifici) {
+        Optional<Edifici> cached = findInCachedList(CacheUtils.PREFIX + GET_EDIFICIS,
+                (Edifici e) -> e.getIdEdifici() == idEdifici);
+        if (cached.isPresent()) {
+            return cached;
+        }
         Edifici e = get("/edifici/{id}", new ParameterizedTypeReference<Response<Edifici>>() {
         }, idEdifici);
         return Optional.ofNullable(e);
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getEdificiByCodiAndCodiCampus")
+    @Cacheable(CacheUtils.PREFIX + GET_EDIFICI_BY_CODI_AND_CODI_CAMPUS)
     public Optional<Edifici> getEdificiByCodiAndCodiCampus(String codiEdifici, String codiCampus) {
         if (codiEdifici == null) {
             throw new IllegalArgumentException("El codi de l'edifici no pot ser null");
@@ -49,10 +62,27 @@ public class EdificiDaoImpl extends RestDao implements EdificiDao {
         if (codiCampus == null) {
             throw new IllegalArgumentException("El codi del campus no pot ser null");
         }
+        Object key = SimpleKeyGenerator.generateKey(codiEdifici, codiCampus);
+        Optional<Edifici> cached = findInCachedList(CacheUtils.PREFIX + GET_EDIFICIS,
+                (Edifici e) -> key.equals(getCodiKey(e)));
+        if (cached.isPresent()) {
+            return cached;
+        }
         Edifici e = get("/edifici/cerca/codi/{codi}/codicampus/{codiCampus}",
                 new ParameterizedTypeReference<Response<Edifici>>() {
                 }, codiEdifici, codiCampus);
         return Optional.ofNullable(e);
     }
 
+    /**
+     * Retorna la clau de la cache de {@link #getEdificiByCodiAndCodiCampus}
+     * per a l'edifici donat, o {@code null} si no té codi o campus.
+     */
+    private static Object getCodiKey(Edifici e) {
+        if (e.getCodi() == null || e.getCampus() == null || e.getCampus().getCodi() == null) {
+            return null;
+        }
+        return SimpleKeyGenerator.generateKey(e.getCodi(), e.getCampus().getCodi());
+    }
+
 }
@@ -21,25 +21,37 @@ import edu.upc.caminstech.equipstic.util.NullSafe;
 @Repository
 public class EstatDaoImpl extends RestDao implements EstatDao {
 
+    private static final String GET_ESTATS = "getEstats";
+    private static final String GET_ESTATS_BY_CODI = "getEstatsByCodi";
+    private static final String GET_ESTAT_BY_ID = "getEstatById";
+
     @Autowired
     public EstatDaoImpl(EquipsTicClientConfiguration config) {
         super(config);
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getEstats")
+    @Cacheable(CacheUtils.PREFIX + GET_ESTATS)
     public List<Estat> getEstats() {
         List<Estat> result = get("/estat", new ParameterizedTypeReference<Response<List<Estat>>>() {
         });
-        return NullSafe.sorted(result);
+        result = NullSafe.sorted(result);
+        putAll(CacheUtils.PREFIX + GET_ESTAT_BY_ID, result, Estat::getIdEstat);
+        putAll(CacheUtils.PREFIX + GET_ESTATS_BY_CODI, result, Estat::getCodi);
+        return result;
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getEstatsByCodi")
+    @Cacheable(CacheUtils.PREFIX + GET_ESTATS_BY_CODI)
     public Optional<Estat> getEstatByCodi(String codiEstat) {
         if (codiEstat == null) {
             throw new IllegalArgumentException("El codi de l'estat no pot ser null");
         }
+        Optional<Estat> cached = findInCachedList(CacheUtils.PREFIX + GET_ESTATS,
+                (Estat e) -> codiEstat.equals(e.getCodi()));
+        if (cached.isPresent()) {
+            return cached;
+        }
         Estat e = get("/estat/cerca/codi/{codi}", new ParameterizedTypeReference<Response<Estat>>() {
         }, codiEstat);
         return Optional.ofNullable(e);
@@ -57,8 +69,13 @@ public class EstatDaoImpl extends RestDao implements EstatDao {
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getEstatById")
+    @Cacheable(CacheUtils.PREFIX + GET_ESTAT_BY_ID)
     public Optional<Estat> getEstatById(long idEstat) {
+        Optional<Estat> cached = findInCachedList(CacheUtils.PREFIX + GET_ESTATS,
+                (Estat e) -> e.getIdEstat() == idEstat);
+        if (cached.isPresent()) {
+            return cached;
+        }
         Estat e = get("/estat/{id}", new ParameterizedTypeReference<Response<Estat>>() {
         }, idEstat);
         return Optional.ofNullable(e);
@@ -1,9 +1,13 @@
 package edu.upc.caminstech.equipstic.client.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.client.InfraestructuraView;
 
 /**
  * Interfície d'ús intern de la llibreria.
@@ -14,12 +18,24 @@ public interface InfraestructuraDao {
 
     Optional<Infraestructura> getInfraestructuraById(long id, boolean ambDetalls);
 
+    Map<Long, Optional<Infraestructura>> getInfraestructuresByIds(Collection<Long> ids, boolean ambDetalls);
+
     List<Infraestructura> getInfraestructuresByUnitat(long idUnitat);
 
+    List<Infraestructura> getInfraestructuresByUnitat(long idUnitat, boolean ambDetalls);
+
+    void forEachInfraestructuraByUnitat(long idUnitat, Consumer<? super Infraestructura> consumer);
+
+    List<InfraestructuraView> getInfraestructuraViewsByUnitat(long idUnitat);
+
     Infraestructura altaInfraestructura(Infraestructura infraestructura);
 
+    List<Infraestructura> altaInfraestructures(List<Infraestructura> infraestructures);
+
     void baixaInfraestructura(long id);
 
     Infraestructura modificaInfraestructura(Infraestructura infraestructura);
 
+    List<Infraestructura> modificaInfraestructures(List<Infraestructura> infraestructures);
+
 }
@@ -1,12 +1,24 @@
 package edu.upc.caminstech.equipstic.client.dao;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -21,10 +33,12 @@ import org.springframework.web.client.RestClientResponseException;
 
 import edu.upc.caminstech.equipstic.Infraestructura;
 import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.InfraestructuraView;
 import edu.upc.caminstech.equipstic.client.Response;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicBatchException;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicBatchWriteException;
 import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
 import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
-import edu.upc.caminstech.equipstic.util.NullSafe;
 
 /**
  * Classe d'ús intern de la llibreria.
@@ -40,10 +54,6 @@ public class InfraestructuraDaoImpl extends RestDao implements InfraestructuraDa
             new ParameterizedTypeReference<Response<Infraestructura>>() {
             };
 
-    private static final ParameterizedTypeReference<Response<List<Infraestructura>>> RESPONSE_LIST_INFRAESTRUCTURA_TYPEREF = //
-            new ParameterizedTypeReference<Response<List<Infraestructura>>>() {
-            };
-
     private static final ParameterizedTypeReference<Response<Object>> RESPONSE_OBJECT_TYPEREF = //
             new ParameterizedTypeReference<Response<Object>>() {
             };
@@ -74,13 +84,90 @@ public class InfraestructuraDaoImpl extends RestDao implements InfraestructuraDa
         return Optional.ofNullable(i);
     }
 
+    /**
+     * Les infraestructures que ja són a la cache de
+     * {@link #getInfraestructuraById(long, boolean)} no es tornen a demanar al
+     * servidor, i les que es demanen s'hi afegeixen.
+     */
+    @Override
+    public Map<Long, Optional<Infraestructura>> getInfraestructuresByIds(Collection<Long> ids, boolean ambDetalls) {
+        Assert.notNull(ids, "La col·lecció d'identificadors no pot ser null");
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        Assert.isTrue(!distinctIds.contains(null), "La col·lecció d'identificadors no pot contenir nulls");
+
+        Optional<Cache> cache = getCache(CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_ID);
+        ParallelTasks<Long, Optional<Infraestructura>> tasks = newParallelTasks();
+        for (Long id : distinctIds) {
+            tasks.submit(id, () -> getInfraestructuraById(cache, id, ambDetalls));
+        }
+        tasks.await();
+
+        Map<Long, Optional<Infraestructura>> result = new LinkedHashMap<>();
+        Map<Long, RuntimeException> errors = new LinkedHashMap<>();
+        for (Long id : distinctIds) {
+            if (tasks.getResults().containsKey(id)) {
+                result.put(id, tasks.getResults().get(id));
+            } else {
+                errors.put(id, tasks.getErrors().get(id));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new EquipsTicBatchException("Error en obtenir les infraestructures", result, errors);
+        }
+        return result;
+    }
+
     @Override
     @Cacheable(CacheUtils.PREFIX + GET_INFRAESTRUCTURES_BY_UNITAT)
     public List<Infraestructura> getInfraestructuresByUnitat(long idUnitat) {
+        List<Infraestructura> result = new ArrayList<>();
+        forEachInfraestructuraByUnitat(idUnitat, result::add);
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Els detalls de cada infraestructura es demanen en paral·lel a mesura que
+     * es va rebent la llista de la unitat, i es fa servir la cache de
+     * {@link #getInfraestructuraById(long, boolean)} com a
+     * {@link #getInfraestructuresByIds(Collection, boolean)}.
+     */
+    @Override
+    @Cacheable(CacheUtils.PREFIX + GET_INFRAESTRUCTURES_BY_UNITAT)
+    public List<Infraestructura> getInfraestructuresByUnitat(long idUnitat, boolean ambDetalls) {
+        if (!ambDetalls) {
+            return getInfraestructuresByUnitat(idUnitat);
+        }
+
+        Optional<Cache> cache = getCache(CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_ID);
+        ParallelTasks<Long, Optional<Infraestructura>> tasks = newParallelTasks();
+        Set<Long> ids = new LinkedHashSet<>();
+        forEachInfraestructuraByUnitat(idUnitat, i -> {
+            long id = i.getIdentificador();
+            if (ids.add(id)) {
+                tasks.submit(id, () -> getInfraestructuraById(cache, id, true));
+            }
+        });
+        tasks.await();
+
+        if (!tasks.getErrors().isEmpty()) {
+            String msg = String.format(
+                    "Error en obtenir els detalls de les infraestructures de la unitat [idUnitat: %s]", idUnitat);
+            throw new EquipsTicBatchException(msg, tasks.getResults(), tasks.getErrors());
+        }
+        List<Infraestructura> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            // una infraestructura esborrada mentrestant no té detalls
+            tasks.getResults().get(id).ifPresent(result::add);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Override
+    public void forEachInfraestructuraByUnitat(long idUnitat, Consumer<? super Infraestructura> consumer) {
         try {
-            List<Infraestructura> result = get("/infraestructura/cerca/unitat/{idUnitat}",
-                    RESPONSE_LIST_INFRAESTRUCTURA_TYPEREF, idUnitat);
-            return NullSafe.sorted(result);
+            forEach("/infraestructura/cerca/unitat/{idUnitat}", Infraestructura.class, consumer, idUnitat);
         } catch (EquipsTicClientException e) {
             if (HttpStatus.BAD_REQUEST.equals(e.getStatus().orElse(null))) {
                 String msg = String.format(
@@ -92,42 +179,120 @@ public class InfraestructuraDaoImpl extends RestDao implements InfraestructuraDa
     }
 
     @Override
-    @CacheEvict(cacheNames = { CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_MARCA_AND_NUMERO_DE_SERIE,
-            CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_ID,
-            CacheUtils.PREFIX + GET_INFRAESTRUCTURES_BY_UNITAT }, allEntries = true)
-    public Infraestructura altaInfraestructura(Infraestructura infraestructura) {
-        HttpEntity<Infraestructura> req = preparaRequest(infraestructura);
+    public List<InfraestructuraView> getInfraestructuraViewsByUnitat(long idUnitat) {
+        InfraestructuraView.Catalog catalog = new InfraestructuraView.Catalog(
+                getObjectMapper().getDeserializationConfig().getTimeZone().toZoneId());
+        List<InfraestructuraView> result = new ArrayList<>();
+        forEachInfraestructuraByUnitat(idUnitat, i -> result.add(catalog.view(i)));
+        Collections.sort(result);
+        return result;
+    }
 
-        ResponseEntity<Response<Infraestructura>> rp = getRestTemplate().exchange(getBaseUri() + "/infraestructura",
-                HttpMethod.POST, req, RESPONSE_INFRAESTRUCTURA_TYPEREF);
+    @Override
+    public Infraestructura altaInfraestructura(Infraestructura infraestructura) {
+        Infraestructura creada = creaInfraestructura(infraestructura);
+        Set<Long> ids = (creada != null) ? Collections.singleton(creada.getIdentificador())
+                : Collections.emptySet();
+        evictInfraestructures(ids, Arrays.asList(infraestructura, creada));
+        writeThrough(creada);
+        return creada;
+    }
 
-        Response<Infraestructura> response = rp.getBody();
-        if (response.isSuccess()) {
-            return response.getData();
+    /**
+     * Les altes es fan en paral·lel, i les entrades de la cache afectades
+     * s'invaliden totes juntes quan han acabat.
+     */
+    @Override
+    public List<Infraestructura> altaInfraestructures(List<Infraestructura> infraestructures) {
+        checkLot(infraestructures);
+        ParallelTasks<Integer, Optional<Infraestructura>> tasks = newParallelTasks();
+        for (int i = 0; i < infraestructures.size(); i++) {
+            Infraestructura infraestructura = infraestructures.get(i);
+            tasks.submit(i, () -> Optional.ofNullable(creaInfraestructura(infraestructura)));
         }
+        tasks.await();
 
-        throw new EquipsTicClientException(rp, "Error en crear la infraestructura: " + response.getMessage());
+        Set<Long> ids = new LinkedHashSet<>();
+        List<Infraestructura> estats = new ArrayList<>();
+        tasks.getResults().forEach((i, creada) -> {
+            creada.ifPresent(c -> ids.add(c.getIdentificador()));
+            estats.addAll(Arrays.asList(infraestructures.get(i), creada.orElse(null)));
+        });
+        return getResultatLot("Error en crear les infraestructures", infraestructures.size(), tasks, ids, estats);
     }
 
     @Override
-    @CacheEvict(cacheNames = { CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_MARCA_AND_NUMERO_DE_SERIE,
-            CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_ID,
-            CacheUtils.PREFIX + GET_INFRAESTRUCTURES_BY_UNITAT }, allEntries = true)
     public void baixaInfraestructura(long id) {
+        Infraestructura anterior = getCachedInfraestructura(id).orElse(null);
         delete("/infraestructura/{id}", RESPONSE_OBJECT_TYPEREF, id);
+        evictInfraestructura(id, anterior);
     }
 
     @Override
-    @CacheEvict(cacheNames = { CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_MARCA_AND_NUMERO_DE_SERIE,
-            CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_ID,
-            CacheUtils.PREFIX + GET_INFRAESTRUCTURES_BY_UNITAT }, allEntries = true)
     public Infraestructura modificaInfraestructura(Infraestructura infraestructura) {
         HttpEntity<Infraestructura> req = preparaRequest(infraestructura);
+        Infraestructura anterior = getCachedInfraestructura(infraestructura.getIdentificador()).orElse(null);
+        Infraestructura modificada = actualitzaInfraestructura(req, infraestructura.getIdentificador());
+        evictInfraestructura(infraestructura.getIdentificador(), anterior, infraestructura, modificada);
+        writeThrough(modificada);
+        return modificada;
+    }
+
+    /**
+     * Les modificacions es fan en paral·lel, i les entrades de la cache
+     * afectades s'invaliden totes juntes quan han acabat.
+     */
+    @Override
+    public List<Infraestructura> modificaInfraestructures(List<Infraestructura> infraestructures) {
+        checkLot(infraestructures);
+        ParallelTasks<Integer, Optional<Infraestructura>> tasks = newParallelTasks();
+        Map<Integer, Infraestructura> anteriors = new HashMap<>();
+        for (int i = 0; i < infraestructures.size(); i++) {
+            Infraestructura infraestructura = infraestructures.get(i);
+            long id = infraestructura.getIdentificador();
+            HttpEntity<Infraestructura> req = preparaRequest(infraestructura);
+            anteriors.put(i, getCachedInfraestructura(id).orElse(null));
+            tasks.submit(i, () -> Optional.ofNullable(actualitzaInfraestructura(req, id)));
+        }
+        tasks.await();
+
+        Set<Long> ids = new LinkedHashSet<>();
+        List<Infraestructura> estats = new ArrayList<>();
+        tasks.getResults().forEach((i, modificada) -> {
+            Infraestructura infraestructura = infraestructures.get(i);
+            ids.add(infraestructura.getIdentificador());
+            estats.addAll(Arrays.asList(anteriors.get(i), infraestructura, modificada.orElse(null)));
+        });
+        return getResultatLot("Error en modificar les infraestructures", infraestructures.size(), tasks, ids,
+                estats);
+    }
+
+    /**
+     * Fa la petició d'alta d'una infraestructura, sense tocar la cache.
+     */
+    private Infraestructura creaInfraestructura(Infraestructura infraestructura) {
+        HttpEntity<Infraestructura> req = preparaRequest(infraestructura);
 
+        ResponseEntity<Response<Infraestructura>> rp = getRestTemplate().exchange(getBaseUri() + "/infraestructura",
+                HttpMethod.POST, req, RESPONSE_INFRAESTRUCTURA_TYPEREF);
+
+        Response<Infraestructura> response = rp.getBody();
+        if (response.isSuccess()) {
+            return response.getData();
+        }
+
+        throw new EquipsTicClientException(rp, "Error en crear la infraestructura: " + response.getMessage());
+    }
+
+    /**
+     * Fa la petició de modificació d'una infraestructura, sense tocar la
+     * cache.
+     */
+    private Infraestructura actualitzaInfraestructura(HttpEntity<Infraestructura> req, long id) {
         ResponseEntity<Response<Infraestructura>> rp = null;
         try {
             rp = getRestTemplate().exchange(getBaseUri() + "/infraestructura/{id}", HttpMethod.PUT, req,
-                    RESPONSE_INFRAESTRUCTURA_TYPEREF, infraestructura.getIdentificador());
+                    RESPONSE_INFRAESTRUCTURA_TYPEREF, id);
         } catch (HttpClientErrorException e) {
             throw new EquipsTicClientException("Error en modificar la infraestructura", e);
         } catch (RestClientResponseException e) {
@@ -145,6 +310,157 @@ public class InfraestructuraDaoImpl extends RestDao implements InfraestructuraDa
         throw new EquipsTicClientException(rp, "Error en modificar la infraestructura: " + response.getMessage());
     }
 
+    private static void checkLot(List<Infraestructura> infraestructures) {
+        Assert.notNull(infraestructures, "La llista d'infraestructures no pot ser null");
+        Assert.isTrue(infraestructures.stream().allMatch(Objects::nonNull),
+                "La llista d'infraestructures no pot contenir nulls");
+    }
+
+    /**
+     * Invalida la cache per les infraestructures d'un lot d'altes o
+     * modificacions, hi desa els resultats (si la configuració del client ho
+     * indica) i retorna els resultats en l'ordre del lot.
+     *
+     * @param ids
+     *            els identificadors de les infraestructures del lot.
+     * @param estats
+     *            els estats coneguts de les infraestructures del lot (vegeu
+     *            {@link #evictInfraestructures(Set, List)}).
+     * @throws EquipsTicBatchWriteException
+     *             si alguna de les peticions ha fallat.
+     */
+    private List<Infraestructura> getResultatLot(String message, int size,
+            ParallelTasks<Integer, Optional<Infraestructura>> tasks, Set<Long> ids, List<Infraestructura> estats) {
+        evictInfraestructures(ids, estats);
+        tasks.getResults().values().forEach(i -> i.ifPresent(this::writeThrough));
+
+        Map<Integer, Optional<Infraestructura>> results = new LinkedHashMap<>();
+        Map<Integer, RuntimeException> errors = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (tasks.getResults().containsKey(i)) {
+                results.put(i, tasks.getResults().get(i));
+            } else {
+                errors.put(i, tasks.getErrors().get(i));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new EquipsTicBatchWriteException(message, results, errors);
+        }
+        List<Infraestructura> result = new ArrayList<>(size);
+        results.values().forEach(i -> result.add(i.orElse(null)));
+        return result;
+    }
+
+    /**
+     * Retorna la infraestructura amb l'identificador donat, si és a la cache
+     * de {@link #getInfraestructuraById(long, boolean)}.
+     */
+    private Optional<Infraestructura> getCachedInfraestructura(long id) {
+        Optional<Cache> cache = getCache(CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_ID);
+        for (boolean ambDetalls : new boolean[] { true, false }) {
+            ValueWrapper value = cache.map(c -> c.get(SimpleKeyGenerator.generateKey(id, ambDetalls))).orElse(null);
+            if (value != null && value.get() != null) {
+                return Optional.of((Infraestructura) value.get());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Invalida les entrades de la cache que poden haver canviat en crear,
+     * modificar o esborrar la infraestructura amb l'identificador donat.
+     *
+     * @param estats
+     *            els estats coneguts de la infraestructura (l'anterior i el
+     *            nou), per invalidar les cerques per marca i número de sèrie i
+     *            per unitat on apareixia o on apareixerà. Un estat
+     *            {@code null} vol dir que no es coneix (per exemple, l'estat
+     *            anterior si no era a la cache, o el resultat si el servidor
+     *            no l'ha retornat), i llavors s'invaliden senceres les caches
+     *            d'aquestes cerques.
+     */
+    private void evictInfraestructura(long id, Infraestructura... estats) {
+        evictInfraestructures(Collections.singleton(id), Arrays.asList(estats));
+    }
+
+    /**
+     * Invalida de cop les entrades de la cache que poden haver canviat en
+     * crear, modificar o esborrar diverses infraestructures: cada entrada de
+     * les cerques per marca i número de sèrie i per unitat s'invalida una sola
+     * vegada, encara que hi apareguin diverses infraestructures.
+     *
+     * @param ids
+     *            els identificadors de les infraestructures.
+     * @param estats
+     *            els estats coneguts de les infraestructures (vegeu
+     *            {@link #evictInfraestructura(long, Infraestructura...)}).
+     */
+    private void evictInfraestructures(Set<Long> ids, List<Infraestructura> estats) {
+        if (ids.isEmpty() && estats.isEmpty()) {
+            return;
+        }
+        getCache(CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_ID).ifPresent(c -> ids.forEach(id -> {
+            c.evict(SimpleKeyGenerator.generateKey(id, false));
+            c.evict(SimpleKeyGenerator.generateKey(id, true));
+        }));
+
+        Optional<Cache> byMarcaAndNumeroDeSerie = getCache(
+                CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_MARCA_AND_NUMERO_DE_SERIE);
+        Optional<Cache> byUnitat = getCache(CacheUtils.PREFIX + GET_INFRAESTRUCTURES_BY_UNITAT);
+        Set<Object> marcaKeys = new LinkedHashSet<>();
+        Set<Long> unitats = new LinkedHashSet<>();
+        for (Infraestructura estat : estats) {
+            if (estat == null) {
+                byMarcaAndNumeroDeSerie.ifPresent(Cache::clear);
+                byUnitat.ifPresent(Cache::clear);
+                return;
+            }
+            if (estat.getMarca() != null && estat.getNumeroSerie() != null) {
+                long idMarca = estat.getMarca().getIdMarca();
+                marcaKeys.add(SimpleKeyGenerator.generateKey(idMarca, estat.getNumeroSerie(), false));
+                marcaKeys.add(SimpleKeyGenerator.generateKey(idMarca, estat.getNumeroSerie(), true));
+            }
+            if (estat.getUnitat() != null) {
+                unitats.add(estat.getUnitat().getIdUnitat());
+            }
+        }
+        byMarcaAndNumeroDeSerie.ifPresent(c -> marcaKeys.forEach(c::evict));
+        byUnitat.ifPresent(c -> unitats.forEach(idUnitat -> {
+            c.evict(SimpleKeyGenerator.generateKey(idUnitat));
+            c.evict(SimpleKeyGenerator.generateKey(idUnitat, false));
+            c.evict(SimpleKeyGenerator.generateKey(idUnitat, true));
+        }));
+    }
+
+    /**
+     * Desa la infraestructura a la cache de
+     * {@link #getInfraestructuraById(long, boolean)}, si la configuració del
+     * client ho indica.
+     */
+    private void writeThrough(Infraestructura infraestructura) {
+        if (infraestructura == null || !getSettings().isCacheWriteThrough()) {
+            return;
+        }
+        getCache(CacheUtils.PREFIX + GET_INFRAESTRUCTURA_BY_ID).ifPresent(
+                c -> c.put(SimpleKeyGenerator.generateKey(infraestructura.getIdentificador(), false), infraestructura));
+    }
+
+    /**
+     * Equivalent a {@link #getInfraestructuraById(long, boolean)} per a les
+     * operacions per lots: com que no passa pel proxy de Spring, consulta i
+     * actualitza la cache directament.
+     */
+    private Optional<Infraestructura> getInfraestructuraById(Optional<Cache> cache, long id, boolean ambDetalls) {
+        Object key = SimpleKeyGenerator.generateKey(id, ambDetalls);
+        ValueWrapper value = cache.map(c -> c.get(key)).orElse(null);
+        if (value != null) {
+            return Optional.ofNullable((Infraestructura) value.get());
+        }
+        Optional<Infraestructura> i = getInfraestructuraById(id, ambDetalls);
+        cache.ifPresent(c -> c.put(key, i.orElse(null)));
+        return i;
+    }
+
     /**
      * Mètode auxiliar per crear una petició HTTP.
      * <p>
@@ -0,0 +1,116 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import edu.upc.caminstech.equipstic.Ambit;
+import edu.upc.caminstech.equipstic.Campus;
+import edu.upc.caminstech.equipstic.Categoria;
+import edu.upc.caminstech.equipstic.Edifici;
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.SistemaOperatiu;
+import edu.upc.caminstech.equipstic.TipusInfraestructura;
+import edu.upc.caminstech.equipstic.TipusUs;
+import edu.upc.caminstech.equipstic.TipusXarxa;
+import edu.upc.caminstech.equipstic.Unitat;
+
+/**
+ * Classe d'ús intern de la llibreria.
+ * <p>
+ * Mòdul de Jackson que fa que, dins d'una mateixa resposta, els objectes
+ * immutables del model que són iguals (per exemple, la mateixa {@link Unitat}
+ * o el mateix {@link Estat} repetits a cada infraestructura d'una llista) es
+ * descodifiquin com una única instància compartida, en lloc d'una còpia per a
+ * cada aparició.
+ */
+public class InterningModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Nom de l'atribut de {@link DeserializationContext} on es desa el
+     * {@link ValueInterner} de la resposta.
+     */
+    static final String INTERNER_ATTRIBUTE = InterningModule.class.getName() + ".interner";
+
+    /**
+     * Les classes immutables del model.
+     */
+    private static final Set<Class<?>> INTERNED_CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            Ambit.class, Campus.class, Categoria.class, Edifici.class, Estat.class, Marca.class,
+            SistemaOperatiu.class, TipusInfraestructura.class, TipusUs.class, TipusXarxa.class, Unitat.class)));
+
+    public InterningModule() {
+        super(InterningModule.class.getSimpleName());
+        setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc,
+                    JsonDeserializer<?> deserializer) {
+                return isInterned(beanDesc.getBeanClass()) ? new InterningDeserializer(deserializer) : deserializer;
+            }
+        });
+    }
+
+    static boolean isInterned(Class<?> type) {
+        return INTERNED_CLASSES.contains(type);
+    }
+
+    /**
+     * Retorna un {@link ObjectReader} que comparteix les instàncies canòniques
+     * entre totes les lectures que es facin amb ell, per exemple les dels
+     * elements d'una resposta que es llegeix en streaming.
+     */
+    static ObjectReader newReader(ObjectMapper mapper, JavaType type) {
+        return mapper.readerFor(type).withAttribute(INTERNER_ATTRIBUTE, new ValueInterner());
+    }
+
+    /**
+     * Deserialitzador que substitueix el resultat per la seva instància
+     * canònica.
+     */
+    private static final class InterningDeserializer extends DelegatingDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        InterningDeserializer(JsonDeserializer<?> delegatee) {
+            super(delegatee);
+        }
+
+        @Override
+        protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+            return new InterningDeserializer(newDelegatee);
+        }
+
+        @Override
+        public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return getInterner(ctxt).intern(super.deserialize(p, ctxt));
+        }
+
+        private static ValueInterner getInterner(DeserializationContext ctxt) {
+            ValueInterner interner = (ValueInterner) ctxt.getAttribute(INTERNER_ATTRIBUTE);
+            if (interner == null) {
+                interner = new ValueInterner();
+                ctxt.setAttribute(INTERNER_ATTRIBUTE, interner);
+            }
+            return interner;
+        }
+
+    }
+
+}
@@ -19,6 +19,9 @@ import edu.upc.caminstech.equipstic.client.Response;
 @Repository
 public class MarcaDaoImpl extends RestDao implements MarcaDao {
 
+    private static final String GET_MARQUES = "getMarques";
+    private static final String GET_MARCA_BY_ID = "getMarcaById";
+
     private static final ParameterizedTypeReference<Response<List<Marca>>> RESPONSE_LIST_MARCA_TYPEREF = //
             new ParameterizedTypeReference<Response<List<Marca>>>() {
             };
@@ -33,10 +36,14 @@ public class MarcaDaoImpl extends RestDao implements MarcaDao {
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getMarques")
+    @Cacheable(cacheNames = CacheUtils.PREFIX + GET_MARQUES, sync = true)
     public List<Marca> getMarques() {
         List<Marca> result = get("/marca", RESPONSE_LIST_MARCA_TYPEREF);
-        return (result != null) ? result : new ArrayList<>();
+        if (result == null) {
+            return new ArrayList<>();
+        }
+        putAll(CacheUtils.PREFIX + GET_MARCA_BY_ID, result, Marca::getIdMarca);
+        return result;
     }
 
     @Override
@@ -50,8 +57,13 @@ public class MarcaDaoImpl extends RestDao implements MarcaDao {
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getMarcaById")
+    @Cacheable(CacheUtils.PREFIX + GET_MARCA_BY_ID)
     public Optional<Marca> getMarcaById(long idMarca) {
+        Optional<Marca> cached = findInCachedList(CacheUtils.PREFIX + GET_MARQUES,
+                (Marca m) -> m.getIdMarca() == idMarca);
+        if (cached.isPresent()) {
+            return cached;
+        }
         Marca m = get("/marca/{id}", RESPONSE_MARCA_TYPEREF, idMarca);
         return Optional.ofNullable(m);
     }
@@ -0,0 +1,153 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.util.Assert;
+
+/**
+ * Classe d'ús intern de la llibreria.
+ * <p>
+ * Executa un lot de tasques, identificades per una clau, amb un nombre màxim
+ * de tasques en paral·lel, i recull el resultat o l'error de cadascuna (un
+ * error no atura la resta del lot).
+ * <p>
+ * Les tasques s'executen a l'{@link Executor} donat i també al fil que crida
+ * {@link #await()}, que compta com un dels fils del lot. D'aquesta manera el
+ * lot sempre avança, encara que l'executor estigui ocupat (per exemple, si el
+ * lot es llança des d'un dels seus fils).
+ * <p>
+ * Les tasques es poden afegir mentre les anteriors s'executen, però no un cop
+ * s'ha cridat {@link #await()}. Les claus han de ser úniques dins del lot.
+ */
+class ParallelTasks<K, V> {
+
+    private final Executor executor;
+    private final int maxWorkers;
+
+    private final Queue<Map.Entry<K, Supplier<V>>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workers = new AtomicInteger();
+    private final Map<K, V> results = new ConcurrentHashMap<>();
+    private final Map<K, RuntimeException> errors = new ConcurrentHashMap<>();
+
+    private int remaining = 0;
+
+    /**
+     * @param parallelism
+     *            nombre màxim de tasques que s'executen alhora, comptant el
+     *            fil que crida {@link #await()}. Si és 1, totes les tasques
+     *            s'executen en aquest fil.
+     */
+    ParallelTasks(Executor executor, int parallelism) {
+        Assert.notNull(executor, "l'argument executor no pot ser null");
+        Assert.isTrue(parallelism > 0, "el paral·lelisme ha de ser més gran que 0");
+        this.executor = executor;
+        this.maxWorkers = parallelism - 1;
+    }
+
+    /**
+     * Afegeix una tasca al lot. La tasca no pot retornar {@code null}.
+     */
+    void submit(K key, Supplier<V> task) {
+        synchronized (this) {
+            remaining++;
+        }
+        pending.add(new SimpleImmutableEntry<>(key, task));
+        startWorker();
+    }
+
+    /**
+     * Espera que acabin totes les tasques del lot, executant-ne també en
+     * aquest fil.
+     *
+     * @throws IllegalStateException
+     *             si el fil s'interromp mentre espera.
+     */
+    void await() {
+        runPending();
+        synchronized (this) {
+            while (remaining > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("S'ha interromput l'espera dels resultats del lot", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna el resultat de les tasques que han acabat bé.
+     */
+    Map<K, V> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Retorna l'error de les tasques que han fallat.
+     */
+    Map<K, RuntimeException> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    private void startWorker() {
+        while (true) {
+            int n = workers.get();
+            if (n >= maxWorkers) {
+                return;
+            }
+            if (workers.compareAndSet(n, n + 1)) {
+                try {
+                    executor.execute(this::work);
+                } catch (RejectedExecutionException e) {
+                    // les tasques les executarà el fil que crida await()
+                    workers.decrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            runPending();
+        } finally {
+            workers.decrementAndGet();
+        }
+        if (!pending.isEmpty()) {
+            // s'ha afegit una tasca mentre aquest fil acabava
+            startWorker();
+        }
+    }
+
+    private void runPending() {
+        Map.Entry<K, Supplier<V>> task;
+        while ((task = pending.poll()) != null) {
+            run(task.getKey(), task.getValue());
+        }
+    }
+
+    private void run(K key, Supplier<V> task) {
+        try {
+            results.put(key, task.get());
+        } catch (RuntimeException e) {
+            errors.put(key, e);
+        } finally {
+            synchronized (this) {
+                if (--remaining == 0) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+}
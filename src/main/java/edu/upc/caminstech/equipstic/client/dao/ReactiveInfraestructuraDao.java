@@ -0,0 +1,21 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.util.Optional;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interfície d'ús intern de la llibreria.
+ */
+public interface ReactiveInfraestructuraDao {
+
+    Mono<Optional<Infraestructura>> getInfraestructuraByMarcaAndNumeroDeSerie(long idMarca, String sn,
+            boolean ambDetalls);
+
+    Mono<Optional<Infraestructura>> getInfraestructuraById(long id, boolean ambDetalls);
+
+    Flux<Infraestructura> getInfraestructuresByUnitat(long idUnitat);
+
+}
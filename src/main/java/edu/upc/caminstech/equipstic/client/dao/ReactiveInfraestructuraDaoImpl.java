@@ -0,0 +1,70 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.Response;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
+import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Classe d'ús intern de la llibreria.
+ */
+@Repository
+@ConditionalOnClass(name = { "org.springframework.web.reactive.function.client.WebClient",
+        "reactor.netty.http.client.HttpClient" })
+public class ReactiveInfraestructuraDaoImpl extends ReactiveRestDao implements ReactiveInfraestructuraDao {
+
+    private static final ParameterizedTypeReference<Response<Infraestructura>> RESPONSE_INFRAESTRUCTURA_TYPEREF = //
+            new ParameterizedTypeReference<Response<Infraestructura>>() {
+            };
+
+    @Autowired
+    public ReactiveInfraestructuraDaoImpl(EquipsTicClientConfiguration config) {
+        super(config);
+    }
+
+    @Override
+    public Mono<Optional<Infraestructura>> getInfraestructuraByMarcaAndNumeroDeSerie(long idMarca, String sn,
+            boolean ambDetalls) {
+        Assert.notNull(sn, "El número de sèrie no pot ser null");
+        Mono<Optional<Infraestructura>> result = get("/infraestructura/cerca/marca/{idMarca}/sn/{sn}",
+                RESPONSE_INFRAESTRUCTURA_TYPEREF, idMarca, sn);
+        if (!ambDetalls) {
+            return result;
+        }
+        return result.flatMap(i -> i.isPresent() ? getInfraestructuraById(i.get().getIdentificador(), true)
+                : Mono.just(i));
+    }
+
+    @Override
+    public Mono<Optional<Infraestructura>> getInfraestructuraById(long id, boolean ambDetalls) {
+        String url = ambDetalls ? "/infraestructura/{id}/detall" : "/infraestructura/{id}";
+        return get(url, RESPONSE_INFRAESTRUCTURA_TYPEREF, id);
+    }
+
+    @Override
+    public Flux<Infraestructura> getInfraestructuresByUnitat(long idUnitat) {
+        return getFlux("/infraestructura/cerca/unitat/{idUnitat}", Infraestructura.class, idUnitat)
+                .onErrorMap(EquipsTicClientException.class, e -> {
+                    if (HttpStatus.BAD_REQUEST.equals(e.getStatus().orElse(null))) {
+                        String msg = String.format(
+                                "No teniu privilegis per consultar les infraestructures de la unitat [idUnitat: %s]",
+                                idUnitat);
+                        return UnauthorizedException.of(msg, e);
+                    }
+                    return e;
+                });
+    }
+
+}
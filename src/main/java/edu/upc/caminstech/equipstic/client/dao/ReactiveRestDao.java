@@ -0,0 +1,131 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.EquipsTicWebClientBuilder;
+import edu.upc.caminstech.equipstic.client.Response;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
+import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Classe d'ús intern de la llibreria.
+ * <p>
+ * Equivalent reactiu de {@link RestDao}, basat en {@link WebClient}.
+ */
+public class ReactiveRestDao {
+
+    protected final Logger logger = LoggerFactory.getLogger(ReactiveRestDao.class);
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveRestDao(EquipsTicClientConfiguration config) {
+        this.webClient = EquipsTicWebClientBuilder.getWebClient(config);
+        this.objectMapper = config.getObjectMapper();
+    }
+
+    public WebClient getWebClient() {
+        return webClient;
+    }
+
+    /**
+     * Mètode auxiliar que encapsula crides GET a la API que retornen un sol
+     * objecte.
+     *
+     * @return un {@link Mono} amb el valor de l'atribut "data" de la resposta,
+     *         o un {@link Optional} buit si la resposta no en té.
+     */
+    public <T> Mono<Optional<T>> get(String url, ParameterizedTypeReference<Response<T>> typeReference,
+            Object... urlParams) {
+        return webClient.get().uri(url, urlParams).retrieve().bodyToMono(typeReference) //
+                .map(response -> Optional.ofNullable(response.getData())) //
+                .defaultIfEmpty(Optional.empty()) //
+                .onErrorMap(WebClientResponseException.class, e -> toClientException(e, url, urlParams));
+    }
+
+    /**
+     * Mètode auxiliar que encapsula crides GET a la API que retornen una
+     * llista.
+     * <p>
+     * Els elements de la llista s'emeten a mesura que es reben i es
+     * descodifiquen, sense esperar a tenir la resposta sencera, i en el mateix
+     * ordre en què els retorna el servidor.
+     */
+    public <T> Flux<T> getFlux(String url, Class<T> elementType, Object... urlParams) {
+        JavaType type = objectMapper.constructType(elementType);
+        return Flux.defer(() -> {
+            ResponseDataTokenizer<T> tokenizer = createTokenizer(type);
+            Flux<DataBuffer> body = webClient.get().uri(url, urlParams).retrieve().bodyToFlux(DataBuffer.class);
+            return body.concatMapIterable(buffer -> feed(tokenizer, buffer))
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(endOfInput(tokenizer))));
+        }).onErrorMap(WebClientResponseException.class, e -> toClientException(e, url, urlParams));
+    }
+
+    private <T> ResponseDataTokenizer<T> createTokenizer(JavaType type) {
+        try {
+            return new ResponseDataTokenizer<>(objectMapper, type);
+        } catch (IOException e) {
+            throw new DecodingException("No s'ha pogut crear el parser JSON", e);
+        }
+    }
+
+    private static <T> List<T> feed(ResponseDataTokenizer<T> tokenizer, DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return tokenizer.feed(bytes);
+        } catch (IOException e) {
+            throw new DecodingException("Error en descodificar la resposta JSON", e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private static <T> List<T> endOfInput(ResponseDataTokenizer<T> tokenizer) {
+        try {
+            return tokenizer.endOfInput();
+        } catch (IOException e) {
+            throw new DecodingException("Error en descodificar la resposta JSON", e);
+        }
+    }
+
+    /**
+     * Converteix els errors de {@link WebClient} en les mateixes excepcions
+     * que genera {@link RestDao}.
+     */
+    private EquipsTicClientException toClientException(WebClientResponseException e, String url,
+            Object... urlParams) {
+        String msg = String.format("Error en obtenir el recurs [%s]", getResourcePath(url, urlParams));
+        RestClientResponseException cause = new RestClientResponseException(e.getMessage(), e.getRawStatusCode(),
+                e.getStatusText(), e.getHeaders(), e.getResponseBodyAsByteArray(), null);
+        if (e.getRawStatusCode() == HttpStatus.UNAUTHORIZED.value()) {
+            return new UnauthorizedException(msg, cause);
+        }
+        return new EquipsTicClientException(msg, cause);
+    }
+
+    private String getResourcePath(String url, Object... urlParams) {
+        return UriComponentsBuilder.fromPath(url).buildAndExpand(urlParams).toUri().toString();
+    }
+
+}
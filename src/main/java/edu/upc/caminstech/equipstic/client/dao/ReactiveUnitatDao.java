@@ -0,0 +1,18 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.util.Optional;
+
+import edu.upc.caminstech.equipstic.Unitat;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interfície d'ús intern de la llibreria.
+ */
+public interface ReactiveUnitatDao {
+
+    Flux<Unitat> getUnitats();
+
+    Mono<Optional<Unitat>> getUnitatById(long idUnitat);
+
+}
@@ -0,0 +1,43 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Repository;
+
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.Response;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Classe d'ús intern de la llibreria.
+ */
+@Repository
+@ConditionalOnClass(name = { "org.springframework.web.reactive.function.client.WebClient",
+        "reactor.netty.http.client.HttpClient" })
+public class ReactiveUnitatDaoImpl extends ReactiveRestDao implements ReactiveUnitatDao {
+
+    private static final ParameterizedTypeReference<Response<Unitat>> RESPONSE_UNITAT_TYPEREF = //
+            new ParameterizedTypeReference<Response<Unitat>>() {
+            };
+
+    @Autowired
+    public ReactiveUnitatDaoImpl(EquipsTicClientConfiguration config) {
+        super(config);
+    }
+
+    @Override
+    public Flux<Unitat> getUnitats() {
+        return getFlux("/unitat", Unitat.class);
+    }
+
+    @Override
+    public Mono<Optional<Unitat>> getUnitatById(long idUnitat) {
+        return get("/unitat/{id}", RESPONSE_UNITAT_TYPEREF, idUnitat);
+    }
+
+}
@@ -0,0 +1,57 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import edu.upc.caminstech.equipstic.client.Response;
+
+/**
+ * Lector en streaming dels elements de l'atribut "data" d'una
+ * {@link Response}.
+ * <p>
+ * Recorre la resposta amb un {@link JsonParser} i descodifica els elements de
+ * "data" un a un, de tal forma que només cal tenir en memòria l'element actual
+ * (i no tota la llista). Si "data" no és una llista, el seu valor es tracta
+ * com una llista d'un sol element.
+ */
+class ResponseDataReader {
+
+    private static final String DATA_FIELD = "data";
+
+    private ResponseDataReader() {
+        // constructor privat; classe no instanciable
+    }
+
+    static <T> void read(ObjectMapper mapper, InputStream in, JavaType elementType, Consumer<? super T> consumer)
+            throws IOException {
+        // tots els elements comparteixen les instàncies canòniques
+        ObjectReader reader = InterningModule.newReader(mapper, elementType);
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "La resposta no és un objecte JSON");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!DATA_FIELD.equals(field) || value == JsonToken.VALUE_NULL) {
+                    parser.skipChildren();
+                } else if (value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        consumer.accept(reader.readValue(parser));
+                    }
+                } else {
+                    consumer.accept(reader.readValue(parser));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import edu.upc.caminstech.equipstic.client.Response;
+
+/**
+ * Descodificador incremental (no bloquejant) dels elements de l'atribut
+ * "data" d'una {@link Response}.
+ * <p>
+ * Rep el cos de la resposta a trossos, a mesura que arriba del servidor, i
+ * retorna els elements de "data" tan aviat com s'han rebut sencers, sense
+ * esperar a tenir tota la resposta. Si "data" no és una llista, el seu valor
+ * es tracta com una llista d'un sol element.
+ * <p>
+ * Les instàncies no són thread-safe; cal una instància per cada resposta.
+ */
+class ResponseDataTokenizer<T> {
+
+    private static final String DATA_FIELD = "data";
+
+    private final ObjectMapper mapper;
+    private final ObjectReader reader;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private int depth = 0;
+    private boolean dataField = false;
+    private boolean dataArray = false;
+    private TokenBuffer element;
+    private int elementDepth;
+
+    ResponseDataTokenizer(ObjectMapper mapper, JavaType elementType) throws IOException {
+        this.mapper = mapper;
+        this.reader = InterningModule.newReader(mapper, elementType);
+        this.parser = mapper.getFactory().createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Processa un nou tros de la resposta.
+     *
+     * @return els elements que s'han pogut descodificar sencers amb les dades
+     *         rebudes fins ara (pot ser una llista buida).
+     */
+    List<T> feed(byte[] bytes) throws IOException {
+        feeder.feedInput(bytes, 0, bytes.length);
+        return parse();
+    }
+
+    /**
+     * Indica que ja s'ha rebut tota la resposta.
+     *
+     * @return els elements pendents de retornar (normalment cap).
+     */
+    List<T> endOfInput() throws IOException {
+        feeder.endOfInput();
+        return parse();
+    }
+
+    private List<T> parse() throws IOException {
+        List<T> result = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+                updateDepth(token);
+                addIfComplete(result);
+            } else if (isDataElementStart(token)) {
+                element = new TokenBuffer(parser).forceUseOfBigDecimal(true);
+                element.copyCurrentEvent(parser);
+                elementDepth = depth;
+                dataField = false;
+                updateDepth(token);
+                addIfComplete(result);
+            } else {
+                trackEnvelope(token);
+                updateDepth(token);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indica si el token és l'inici d'un element de "data": o bé un element
+     * de la llista, o bé el valor de "data" si no és una llista.
+     */
+    private boolean isDataElementStart(JsonToken token) {
+        if (token == JsonToken.FIELD_NAME || token.isStructEnd()) {
+            return false;
+        }
+        if (dataArray) {
+            return depth == 2;
+        }
+        return dataField && depth == 1 && token != JsonToken.START_ARRAY && token != JsonToken.VALUE_NULL;
+    }
+
+    private void trackEnvelope(JsonToken token) throws IOException {
+        if (depth == 1 && token == JsonToken.FIELD_NAME) {
+            dataField = DATA_FIELD.equals(parser.getCurrentName());
+        } else if (depth == 1 && dataField && token == JsonToken.START_ARRAY) {
+            dataField = false;
+            dataArray = true;
+        } else if (depth == 2 && dataArray && token == JsonToken.END_ARRAY) {
+            dataArray = false;
+        } else if (depth == 1) {
+            dataField = false;
+        }
+    }
+
+    private void updateDepth(JsonToken token) {
+        if (token.isStructStart()) {
+            depth++;
+        } else if (token.isStructEnd()) {
+            depth--;
+        }
+    }
+
+    private void addIfComplete(List<T> result) throws IOException {
+        if (depth == elementDepth) {
+            try (JsonParser p = element.asParser(mapper)) {
+                result.add(reader.readValue(p));
+            }
+            element = null;
+        }
+    }
+
+}
@@ -1,18 +1,45 @@
 package edu.upc.caminstech.equipstic.client.dao;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.interceptor.CacheAspectSupport;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientSettings;
 import edu.upc.caminstech.equipstic.client.Response;
 import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
 import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
@@ -22,14 +49,78 @@ import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
  */
 public class RestDao {
 
+    /**
+     * Afegeix la capçalera "Accept" a les peticions fetes directament amb
+     * {@link RestTemplate#execute} (la API de vegades respon amb
+     * "text/plain").
+     */
+    private static final RequestCallback ACCEPT_JSON = request -> request.getHeaders()
+            .setAccept(Arrays.asList(MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN));
+
     protected final Logger logger = LoggerFactory.getLogger(RestDao.class);
 
+    private final EquipsTicClientConfiguration config;
     private final URI baseUri;
     private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+
+    private CacheManager cacheManager;
+
+    /**
+     * Peticions GET en curs, indexades per URL.
+     */
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> inFlightRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Les respostes amb validadors, o {@code null} si no es fan peticions
+     * condicionals.
+     */
+    private final ConditionalGetCache conditionalGets;
 
     public RestDao(EquipsTicClientConfiguration config) {
+        this.config = config;
         this.baseUri = config.getBaseUri();
         this.restTemplate = config.getRestTemplate();
+        this.objectMapper = config.getObjectMapper();
+        EquipsTicClientSettings settings = config.getSettings();
+        this.conditionalGets = settings.isConditionalRequests()
+                ? new ConditionalGetCache(settings.getConditionalRequestsMaxEntries())
+                : null;
+    }
+
+    /**
+     * Permet als DAO consultar i actualitzar directament la cache, quan
+     * l'anotació {@link org.springframework.cache.annotation.Cacheable} no és
+     * suficient (per exemple, en operacions per lots).
+     * <p>
+     * Es fa servir el mateix {@link CacheManager} que les anotacions: el del
+     * {@link CachingConfigurer} de l'aplicació, si n'hi ha, o si no l'únic (o
+     * el principal) que s'hagi definit.
+     *
+     * @throws IllegalStateException
+     *             si l'aplicació té la cache activada (amb
+     *             {@link org.springframework.cache.annotation.EnableCaching})
+     *             però no es pot determinar quin {@link CacheManager} fa
+     *             servir: en aquest cas les altes, baixes i modificacions no
+     *             podrien invalidar les entrades afectades.
+     */
+    @Autowired
+    public void setCacheManagers(ObjectProvider<CachingConfigurer> cachingConfigurers,
+            ObjectProvider<CacheManager> cacheManagers, ObjectProvider<CacheAspectSupport> cacheAspects) {
+        CachingConfigurer configurer = cachingConfigurers.getIfUnique();
+        CacheManager configured = (configurer != null) ? configurer.cacheManager() : null;
+        this.cacheManager = (configured != null) ? configured : cacheManagers.getIfUnique();
+        if (this.cacheManager == null && cacheAspects.stream().findAny().isPresent()) {
+            throw new IllegalStateException("La cache està activada però no es pot determinar quin CacheManager "
+                    + "fa servir: definiu-ne un de principal (@Primary) o un CachingConfigurer");
+        }
+    }
+
+    /**
+     * Fixa explícitament el {@link CacheManager} que fan servir els DAO.
+     */
+    public void setCacheManager(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
     }
 
     public URI getBaseUri() {
@@ -40,21 +131,193 @@ public class RestDao {
         return restTemplate;
     }
 
+    public EquipsTicClientSettings getSettings() {
+        return config.getSettings();
+    }
+
+    protected ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Retorna la cache amb el nom donat, si n'hi ha.
+     */
+    protected Optional<Cache> getCache(String name) {
+        return Optional.ofNullable(cacheManager).map(manager -> manager.getCache(name));
+    }
+
+    /**
+     * Desa cada element de la llista a la cache amb el nom donat, amb la clau
+     * que en calcula {@code key}, perquè les consultes d'un sol element es
+     * puguin respondre sense anar al servidor. Els elements amb clau
+     * {@code null} no es desen.
+     */
+    protected <T> void putAll(String cacheName, Collection<T> elements, Function<? super T, ?> key) {
+        getCache(cacheName).ifPresent(cache -> {
+            for (T element : elements) {
+                Object k = key.apply(element);
+                if (k != null) {
+                    cache.put(k, element);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cerca un element a la llista desada a la cache amb el nom donat (la d'un
+     * mètode sense arguments, com ara {@code getMarques()}), sense carregar-la
+     * si encara no s'ha carregat.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> Optional<T> findInCachedList(String cacheName, Predicate<? super T> predicate) {
+        return getCache(cacheName) //
+                .map(cache -> cache.get(SimpleKey.EMPTY)) //
+                .map(ValueWrapper::get) //
+                .flatMap(list -> ((List<T>) list).stream().filter(predicate).findFirst());
+    }
+
+    /**
+     * Crea un lot de tasques que s'executaran en paral·lel amb l'executor i el
+     * paral·lelisme de la configuració del client.
+     */
+    protected <K, V> ParallelTasks<K, V> newParallelTasks() {
+        return new ParallelTasks<>(config.getExecutor(), config.getSettings().getParallelism());
+    }
+
     /**
      * Mètode auxiliar que encapsula crides GET a la API, via
      * {@link RestTemplate}.
+     * <p>
+     * Si la configuració del client ho indica (vegeu
+     * {@link EquipsTicClientSettings#isRequestCoalescing()}), les crides
+     * idèntiques (mateixa URL) que es fan alhora des de diversos fils
+     * comparteixen una sola petició al servidor. Tots els fils reben la
+     * mateixa excepció si la petició falla, però cadascun descodifica la
+     * resposta pel seu compte i en rep una instància pròpia.
+     * <p>
+     * Si la configuració del client ho indica (vegeu
+     * {@link EquipsTicClientSettings#isConditionalRequests()}) i la resposta
+     * anterior de la mateixa URL incloïa validadors ({@code ETag} o
+     * {@code Last-Modified}), la petició es fa condicional; si el servidor
+     * respon que no ha canviat (304), es descodifica de nou el cos de la
+     * resposta anterior, sense tornar-lo a descarregar.
      */
     public <T> T get(String url, ParameterizedTypeReference<Response<T>> typeReference, Object... urlParams) {
+        boolean coalescing = config.getSettings().isRequestCoalescing();
+        if (!coalescing && conditionalGets == null) {
+            try {
+                return restTemplate.exchange(baseUri + url, HttpMethod.GET, null, typeReference, urlParams)
+                        .getBody().getData();
+            } catch (RestClientResponseException e) {
+                throw toClientException(e, url, urlParams);
+            }
+        }
+
+        String key = restTemplate.getUriTemplateHandler().expand(baseUri + url, urlParams).toString();
+        byte[] body = coalescing ? getBodyCoalesced(key, url, urlParams) : getBody(key, url, urlParams);
+        return readResponse(body, objectMapper.constructType(typeReference.getType()), url, urlParams);
+    }
+
+    /**
+     * Retorna el cos de la resposta d'una crida GET, compartint la petició
+     * amb les crides idèntiques que ja estiguin en curs.
+     */
+    private byte[] getBodyCoalesced(String key, String url, Object... urlParams) {
+        CompletableFuture<byte[]> request = new CompletableFuture<>();
+        CompletableFuture<byte[]> inProgress = inFlightRequests.putIfAbsent(key, request);
+        if (inProgress != null) {
+            try {
+                return inProgress.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw (RuntimeException) e.getCause();
+            }
+        }
+
         try {
-            ResponseEntity<Response<T>> entity = restTemplate.exchange(baseUri + url, HttpMethod.GET, null,
-                    typeReference, urlParams);
-            return entity.getBody().getData();
-        } catch (RestClientResponseException e) {
-            String msg = String.format("Error en obtenir el recurs [%s]", getResourcePath(url, urlParams));
-            if (e.getRawStatusCode() == HttpStatus.UNAUTHORIZED.value()) {
-                throw new UnauthorizedException(msg, e);
+            byte[] body = getBody(key, url, urlParams);
+            request.complete(body);
+            return body;
+        } catch (RuntimeException | Error e) {
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(key, request);
+        }
+    }
+
+    /**
+     * Retorna el cos de la resposta d'una crida GET, sense descodificar; si
+     * es fan peticions condicionals i el servidor respon que no ha canviat,
+     * retorna el cos de la resposta anterior.
+     *
+     * @param key
+     *            la URL de la crida, amb els paràmetres ja substituïts.
+     */
+    private byte[] getBody(String key, String url, Object... urlParams) {
+        ConditionalGetCache.Entry previous = (conditionalGets != null) ? conditionalGets.get(key) : null;
+        RequestCallback callback = request -> {
+            ACCEPT_JSON.doWithRequest(request);
+            if (previous != null) {
+                previous.addConditions(request.getHeaders());
             }
-            throw new EquipsTicClientException(msg, e);
+        };
+        try {
+            return restTemplate.execute(baseUri + url, HttpMethod.GET, callback, response -> {
+                if (response.getRawStatusCode() == HttpStatus.NOT_MODIFIED.value()) {
+                    if (previous == null) {
+                        String msg = String.format("Resposta 304 inesperada d'una petició no condicional [%s]",
+                                getResourcePath(url, urlParams));
+                        throw new EquipsTicClientException(msg,
+                                new RestClientResponseException(msg, response.getRawStatusCode(),
+                                        response.getStatusText(), response.getHeaders(), null, null));
+                    }
+                    return previous.getBody();
+                }
+                byte[] body = StreamUtils.copyToByteArray(response.getBody());
+                if (conditionalGets != null) {
+                    conditionalGets.update(key, response.getHeaders(), body);
+                }
+                return body;
+            }, urlParams);
+        } catch (RestClientResponseException e) {
+            throw toClientException(e, url, urlParams);
+        }
+    }
+
+    /**
+     * Descodifica el cos d'una resposta; cada crida retorna una instància
+     * nova.
+     */
+    private <T> T readResponse(byte[] body, JavaType type, String url, Object... urlParams) {
+        try {
+            Response<T> response = objectMapper.readValue(body, type);
+            return response.getData();
+        } catch (IOException e) {
+            throw toDecodingException(e, url, urlParams);
+        }
+    }
+
+    /**
+     * Mètode auxiliar que encapsula crides GET a la API que retornen una
+     * llista, processant-ne els elements a mesura que es descodifiquen.
+     * <p>
+     * A diferència de {@link #get(String, ParameterizedTypeReference, Object...)},
+     * no es construeix mai la llista sencera: cada element es passa a
+     * {@code consumer} tan aviat com s'ha llegit de la resposta, de tal forma
+     * que només cal tenir un element en memòria cada vegada.
+     */
+    public <T> void forEach(String url, Class<T> elementType, Consumer<? super T> consumer, Object... urlParams) {
+        JavaType type = objectMapper.constructType(elementType);
+        try {
+            restTemplate.execute(baseUri + url, HttpMethod.GET, ACCEPT_JSON, response -> {
+                readData(response.getBody(), type, consumer, url, urlParams);
+                return null;
+            }, urlParams);
+        } catch (RestClientResponseException e) {
+            throw toClientException(e, url, urlParams);
         }
     }
 
@@ -71,6 +334,30 @@ public class RestDao {
         }
     }
 
+    private <T> void readData(InputStream body, JavaType type, Consumer<? super T> consumer, String url,
+            Object... urlParams) {
+        try {
+            ResponseDataReader.read(objectMapper, body, type, consumer);
+        } catch (IOException e) {
+            throw toDecodingException(e, url, urlParams);
+        }
+    }
+
+    private EquipsTicClientException toDecodingException(IOException e, String url, Object... urlParams) {
+        String msg = String.format("Error en descodificar la resposta JSON del recurs [%s]",
+                getResourcePath(url, urlParams));
+        return new EquipsTicClientException(msg, e);
+    }
+
+    private EquipsTicClientException toClientException(RestClientResponseException e, String url,
+            Object... urlParams) {
+        String msg = String.format("Error en obtenir el recurs [%s]", getResourcePath(url, urlParams));
+        if (e.getRawStatusCode() == HttpStatus.UNAUTHORIZED.value()) {
+            return new UnauthorizedException(msg, e);
+        }
+        return new EquipsTicClientException(msg, e);
+    }
+
     private String getResourcePath(String url, Object... urlParams) {
         return UriComponentsBuilder.fromPath(url).buildAndExpand(urlParams).toUri().toString();
     }
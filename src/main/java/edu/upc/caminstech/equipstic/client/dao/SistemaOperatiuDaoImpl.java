@@ -35,7 +35,7 @@ public class SistemaOperatiuDaoImpl extends RestDao implements SistemaOperatiuDa
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getSistemesOperatius")
+    @Cacheable(cacheNames = CacheUtils.PREFIX + "getSistemesOperatius", sync = true)
     public List<SistemaOperatiu> getSistemesOperatius() {
         List<SistemaOperatiu> result = get("/sistemaOperatiu", RESPONSE_LIST_SISTEMAOPERATIU_TYPEREF);
         return (result != null) ? NullSafe.sorted(result) : new ArrayList<>();
@@ -33,7 +33,7 @@ public class TipusInfraestructuraDaoImpl extends RestDao implements TipusInfraes
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getTipusInfraestructura")
+    @Cacheable(cacheNames = CacheUtils.PREFIX + "getTipusInfraestructura", sync = true)
     public List<TipusInfraestructura> getTipusInfraestructura() {
         List<TipusInfraestructura> result = get("/tipusInfraestructura", RESPONSE_LIST_TIPUSINFRAESTRUCTURA_TYPEREF);
         return NullSafe.sorted(result);
@@ -19,6 +19,9 @@ import edu.upc.caminstech.equipstic.util.NullSafe;
 @Repository
 public class UnitatDaoImpl extends RestDao implements UnitatDao {
 
+    private static final String GET_UNITATS = "getUnitats";
+    private static final String GET_UNITAT_BY_ID = "getUnitatById";
+
     private static final ParameterizedTypeReference<Response<Unitat>> RESPONSE_UNITAT_TYPEREF = //
             new ParameterizedTypeReference<Response<Unitat>>() {
             };
@@ -33,10 +36,11 @@ public class UnitatDaoImpl extends RestDao implements UnitatDao {
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getUnitats")
+    @Cacheable(cacheNames = CacheUtils.PREFIX + GET_UNITATS, sync = true)
     public List<Unitat> getUnitats() {
-        List<Unitat> result = get("/unitat", RESPONSE_LIST_UNITAT_TYPEREF);
-        return NullSafe.sorted(result);
+        List<Unitat> result = NullSafe.sorted(get("/unitat", RESPONSE_LIST_UNITAT_TYPEREF));
+        putAll(CacheUtils.PREFIX + GET_UNITAT_BY_ID, result, Unitat::getIdUnitat);
+        return result;
     }
 
     @Override
@@ -60,8 +64,13 @@ public class UnitatDaoImpl extends RestDao implements UnitatDao {
     }
 
     @Override
-    @Cacheable(CacheUtils.PREFIX + "getUnitatById")
+    @Cacheable(CacheUtils.PREFIX + GET_UNITAT_BY_ID)
     public Optional<Unitat> getUnitatById(long idUnitat) {
+        Optional<Unitat> cached = findInCachedList(CacheUtils.PREFIX + GET_UNITATS,
+                (Unitat u) -> u.getIdUnitat() == idUnitat);
+        if (cached.isPresent()) {
+            return cached;
+        }
         Unitat u = get("/unitat/{id}", RESPONSE_UNITAT_TYPEREF, idUnitat);
         return Optional.ofNullable(u);
     }
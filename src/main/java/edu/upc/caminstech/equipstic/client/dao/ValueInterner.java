@@ -0,0 +1,123 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Conjunt d'instàncies canòniques dels objectes immutables del model
+ * descodificats en una mateixa resposta.
+ * <p>
+ * Dos objectes són equivalents si són de la mateixa classe i tenen tots els
+ * atributs iguals. Noteu que no es pot fer servir {@code equals()}, perquè les
+ * classes del model només comparen l'identificador, i una mateixa resposta pot
+ * contenir versions diferents (per exemple, més o menys completes) d'un mateix
+ * element. Els atributs que són també objectes interns es comparen per
+ * identitat, perquè ja s'han substituït per la seva instància canònica.
+ * <p>
+ * Les instàncies no són thread-safe; cal una instància per cada resposta.
+ */
+class ValueInterner {
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private final Map<Key, Object> values = new HashMap<>();
+
+    /**
+     * Retorna la instància canònica d'un objecte equivalent a {@code value}, o
+     * el mateix {@code value} si és el primer.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        Object existing = values.putIfAbsent(new Key(value), value);
+        return (existing != null) ? (T) existing : value;
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Clau d'un objecte a partir de tots els seus atributs.
+     */
+    private static final class Key {
+
+        private final Class<?> type;
+        private final Object[] attributes;
+        private final int hash;
+
+        Key(Object value) {
+            type = value.getClass();
+            Field[] fields = FIELDS.get(type);
+            attributes = new Object[fields.length];
+            int h = type.hashCode();
+            for (int i = 0; i < fields.length; i++) {
+                try {
+                    attributes[i] = fields[i].get(value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+                h = 31 * h + hash(attributes[i]);
+            }
+            hash = h;
+        }
+
+        private static int hash(Object attribute) {
+            if (attribute == null) {
+                return 0;
+            }
+            return InterningModule.isInterned(attribute.getClass()) ? System.identityHashCode(attribute)
+                    : attribute.hashCode();
+        }
+
+        private static boolean same(Object a, Object b) {
+            if (a != null && InterningModule.isInterned(a.getClass())) {
+                return a == b;
+            }
+            return Objects.equals(a, b);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (type != other.type || hash != other.hash) {
+                return false;
+            }
+            for (int i = 0; i < attributes.length; i++) {
+                if (!same(attributes[i], other.attributes[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
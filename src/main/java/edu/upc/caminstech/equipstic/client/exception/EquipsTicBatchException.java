@@ -0,0 +1,47 @@
+package edu.upc.caminstech.equipstic.client.exception;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+
+/**
+ * Subclasse de {@link EquipsTicClientException} que indica que algunes de les
+ * peticions d'una operació per lots han fallat.
+ * <p>
+ * La resta de peticions del lot s'han completat igualment: els seus resultats
+ * són a {@link #getResults()}, i l'error de cada petició fallida és a
+ * {@link #getErrors()}, indexat per l'identificador corresponent. La causa de
+ * l'excepció és el primer error.
+ */
+public class EquipsTicBatchException extends EquipsTicClientException {
+
+    private static final long serialVersionUID = -3526093346618415377L;
+
+    private final transient Map<Long, Optional<Infraestructura>> results;
+    private final transient Map<Long, RuntimeException> errors;
+
+    public EquipsTicBatchException(String message, Map<Long, Optional<Infraestructura>> results,
+            Map<Long, RuntimeException> errors) {
+        super(String.format("%s [%d errors de %d peticions]", message, errors.size(),
+                results.size() + errors.size()), errors.values().stream().findFirst().orElse(null));
+        this.results = Collections.unmodifiableMap(results);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Retorna els resultats de les peticions que s'han completat correctament.
+     */
+    public Map<Long, Optional<Infraestructura>> getResults() {
+        return results;
+    }
+
+    /**
+     * Retorna l'error de cada petició fallida, indexat per identificador.
+     */
+    public Map<Long, RuntimeException> getErrors() {
+        return errors;
+    }
+
+}
@@ -0,0 +1,48 @@
+package edu.upc.caminstech.equipstic.client.exception;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+
+/**
+ * Subclasse de {@link EquipsTicClientException} que indica que algunes de les
+ * altes o modificacions d'un lot han fallat.
+ * <p>
+ * La resta d'operacions del lot s'han completat igualment: els seus resultats
+ * són a {@link #getResults()}, i l'error de cada operació fallida és a
+ * {@link #getErrors()}, indexats per la posició de la infraestructura a la
+ * llista del lot. La causa de l'excepció és el primer error.
+ */
+public class EquipsTicBatchWriteException extends EquipsTicClientException {
+
+    private static final long serialVersionUID = 6169839414787624317L;
+
+    private final transient Map<Integer, Optional<Infraestructura>> results;
+    private final transient Map<Integer, RuntimeException> errors;
+
+    public EquipsTicBatchWriteException(String message, Map<Integer, Optional<Infraestructura>> results,
+            Map<Integer, RuntimeException> errors) {
+        super(String.format("%s [%d errors de %d operacions]", message, errors.size(),
+                results.size() + errors.size()), errors.values().stream().findFirst().orElse(null));
+        this.results = Collections.unmodifiableMap(results);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Retorna els resultats de les operacions que s'han completat
+     * correctament, indexats per posició.
+     */
+    public Map<Integer, Optional<Infraestructura>> getResults() {
+        return results;
+    }
+
+    /**
+     * Retorna l'error de cada operació fallida, indexat per posició.
+     */
+    public Map<Integer, RuntimeException> getErrors() {
+        return errors;
+    }
+
+}
@@ -38,13 +38,23 @@ public class EquipsTicClientException extends RuntimeException {
     public EquipsTicClientException(ResponseEntity<?> entity) {
         super();
         Assert.notNull(entity, "Entity can not be null");
-        this.cause = null;
+        this.cause = Optional.empty();
     }
 
     public EquipsTicClientException(ResponseEntity<?> entity, String message) {
         super(message);
         Assert.notNull(entity, "Entity can not be null");
-        this.cause = null;
+        this.cause = Optional.empty();
+    }
+
+    /**
+     * Constructor per a errors que no corresponen a una única resposta del
+     * servidor, o que no es poden atribuir al seu codi d'estat (per exemple,
+     * si no es pot descodificar).
+     */
+    public EquipsTicClientException(String message, Throwable cause) {
+        super(message, cause);
+        this.cause = Optional.empty();
     }
 
     /**
@@ -70,6 +80,9 @@ public class EquipsTicClientException extends RuntimeException {
 
     @Override
     public String getMessage() {
+        if (!cause.isPresent()) {
+            return super.getMessage();
+        }
         Optional<String> msg = getResponseMessage();
 
         return String.format("%s: %s - %s", super.getMessage(), getStatus().orElse(null),
@@ -0,0 +1,134 @@
+package edu.upc.caminstech.equipstic.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import edu.upc.caminstech.equipstic.cache.EquipsTicCacheProperties.CacheSpec;
+import edu.upc.caminstech.equipstic.client.dao.CacheUtils;
+
+public class EquipsTicCacheManagerTests {
+
+    @Test
+    public void testDefaultSpecs() {
+        EquipsTicCacheManager manager = new EquipsTicCacheManager(new EquipsTicCacheProperties());
+
+        assertThat(ttlInMinutes(manager, CacheUtils.PREFIX + "getMarques"), is(12 * 60L));
+        assertThat(ttlInMinutes(manager, CacheUtils.PREFIX + "getInfraestructuraById"), is(5L));
+        assertThat(maximumSize(manager, CacheUtils.PREFIX + "getInfraestructuraById"), is(10_000L));
+        assertThat(ttlInMinutes(manager, "una-altra-cache"), is(60L));
+    }
+
+    @Test
+    public void testPropertiesOverrideDefaults() {
+        EquipsTicCacheProperties properties = new EquipsTicCacheProperties();
+        properties.getCaches().put("getMarques", new CacheSpec(Duration.ofMinutes(30), null));
+        properties.getCaches().put("getUsuariInfraestructura", new CacheSpec(null, 10L));
+        properties.setDefaults(new CacheSpec(Duration.ofMinutes(2), 100L));
+        EquipsTicCacheManager manager = new EquipsTicCacheManager(properties);
+
+        assertThat(ttlInMinutes(manager, CacheUtils.PREFIX + "getMarques"), is(30L));
+        assertThat(maximumSize(manager, CacheUtils.PREFIX + "getMarques"), is(1_000L));
+        assertThat(ttlInMinutes(manager, CacheUtils.PREFIX + "getUsuariInfraestructura"), is(2L));
+        assertThat(maximumSize(manager, CacheUtils.PREFIX + "getUsuariInfraestructura"), is(10L));
+    }
+
+    @Test
+    public void testRefreshAheadCatalogs() {
+        EquipsTicCacheManager manager = new EquipsTicCacheManager(new EquipsTicCacheProperties());
+
+        assertThat(manager.getCache(CacheUtils.PREFIX + "getUnitats"), instanceOf(RefreshAheadCache.class));
+        assertThat(ttlInMinutes(manager, CacheUtils.PREFIX + "getUnitats"), is(24 * 60L));
+        assertThat(manager.getCache(CacheUtils.PREFIX + "getEstats"), not(instanceOf(RefreshAheadCache.class)));
+    }
+
+    @Test
+    public void testDefaultRefreshAfterIsNotInherited() {
+        EquipsTicCacheProperties properties = new EquipsTicCacheProperties();
+        properties.getDefaults().setRefreshAfter(Duration.ofMinutes(1));
+        EquipsTicCacheManager manager = new EquipsTicCacheManager(properties);
+
+        assertThat(manager.getCache(CacheUtils.PREFIX + "getInfraestructuraById"),
+                not(instanceOf(RefreshAheadCache.class)));
+        assertThat(manager.getCache("una-altra-cache"), not(instanceOf(RefreshAheadCache.class)));
+        assertThat(manager.getCache(CacheUtils.PREFIX + "getUnitats"), instanceOf(RefreshAheadCache.class));
+    }
+
+    @Test
+    public void testRefreshAheadKeepsNegativeCaching() {
+        EquipsTicCacheProperties properties = new EquipsTicCacheProperties();
+        properties.getCaches().put("getInfraestructuraByMarcaAndNumeroDeSerie",
+                new CacheSpec(null, null, Duration.ofMinutes(1)));
+        EquipsTicCacheManager manager = new EquipsTicCacheManager(properties);
+        String name = CacheUtils.PREFIX + "getInfraestructuraByMarcaAndNumeroDeSerie";
+
+        org.springframework.cache.Cache cache = manager.getCache(name);
+        cache.get(1L, () -> null);
+
+        assertThat(cache, instanceOf(RefreshAheadCache.class));
+        assertThat(cache.get(1L), notNullValue());
+        assertThat(cache.get(1L).get(), nullValue());
+        assertThat(nativeCache(manager, name).estimatedSize(), is(0L));
+    }
+
+    @Test
+    public void testNegativeCaching() {
+        EquipsTicCacheProperties properties = new EquipsTicCacheProperties();
+        CacheSpec disabled = new CacheSpec();
+        disabled.setNegativeTtl(Duration.ZERO);
+        properties.getCaches().put("getUnitatById", disabled);
+        EquipsTicCacheManager manager = new EquipsTicCacheManager(properties);
+
+        org.springframework.cache.Cache byId = manager.getCache(CacheUtils.PREFIX + "getInfraestructuraById");
+        byId.put(1L, null);
+        assertThat(byId.get(1L), notNullValue());
+        assertThat(nativeCache(manager, CacheUtils.PREFIX + "getInfraestructuraById").estimatedSize(), is(0L));
+
+        org.springframework.cache.Cache unitat = manager.getCache(CacheUtils.PREFIX + "getUnitatById");
+        unitat.put(1L, null);
+        assertThat(unitat.get(1L), nullValue());
+    }
+
+    @Test
+    public void testRefreshAheadRunsOnDedicatedExecutor() throws Exception {
+        EquipsTicCacheProperties properties = new EquipsTicCacheProperties();
+        properties.getCaches().put("getUnitats", new CacheSpec(Duration.ofHours(1), null, Duration.ofMillis(1)));
+        EquipsTicCacheManager manager = new EquipsTicCacheManager(properties);
+        try {
+            org.springframework.cache.Cache unitats = manager.getCache(CacheUtils.PREFIX + "getUnitats");
+            unitats.put("key", "old");
+            Thread.sleep(10);
+            CompletableFuture<String> thread = new CompletableFuture<>();
+
+            unitats.get("key", () -> {
+                thread.complete(Thread.currentThread().getName());
+                return "new";
+            });
+
+            assertThat(thread.get(5, TimeUnit.SECONDS), startsWith("equipstic-cache-refresh-"));
+        } finally {
+            manager.destroy();
+        }
+    }
+
+    private static long ttlInMinutes(EquipsTicCacheManager manager, String name) {
+        return nativeCache(manager, name).policy().expireAfterWrite().get().getExpiresAfter(TimeUnit.MINUTES);
+    }
+
+    private static long maximumSize(EquipsTicCacheManager manager, String name) {
+        return nativeCache(manager, name).policy().eviction().get().getMaximum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<Object, Object> nativeCache(EquipsTicCacheManager manager, String name) {
+        return (Cache<Object, Object>) manager.getCache(name).getNativeCache();
+    }
+
+}
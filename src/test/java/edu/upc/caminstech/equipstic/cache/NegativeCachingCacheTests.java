@@ -0,0 +1,90 @@
+package edu.upc.caminstech.equipstic.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+public class NegativeCachingCacheTests {
+
+    private static final String KEY = "key";
+
+    private AtomicLong nanos;
+    private ConcurrentMapCache positive;
+    private NegativeCachingCache cache;
+
+    @Before
+    public void setUp() {
+        nanos = new AtomicLong();
+        positive = new ConcurrentMapCache("test");
+        cache = new NegativeCachingCache(positive, Caffeine.newBuilder().ticker(nanos::get)
+                .expireAfterWrite(1, TimeUnit.MINUTES).maximumSize(10).<Object, Boolean> build());
+    }
+
+    @Test
+    public void testEmptyResultIsStoredApart() {
+        cache.put(KEY, null);
+
+        assertThat(cache.get(KEY), notNullValue());
+        assertThat(cache.get(KEY).get(), nullValue());
+        assertThat(positive.get(KEY), nullValue());
+    }
+
+    @Test
+    public void testEmptyResultExpiresEarlier() {
+        cache.put(KEY, null);
+        cache.put("altra", "valor");
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+
+        assertThat(cache.get(KEY), nullValue());
+        assertThat(cache.get("altra").get(), is("valor"));
+    }
+
+    @Test
+    public void testValueReplacesEmptyResult() {
+        cache.put(KEY, null);
+        cache.put(KEY, "valor");
+        cache.evict(KEY);
+
+        assertThat(cache.get(KEY), nullValue());
+    }
+
+    @Test
+    public void testLoaderReturningNull() {
+        Object value = cache.get(KEY, () -> null);
+
+        assertThat(value, nullValue());
+        assertThat(positive.get(KEY), nullValue());
+        assertThat(cache.get(KEY, () -> "valor"), nullValue());
+    }
+
+    @Test
+    public void testClear() {
+        cache.put(KEY, null);
+        cache.put("altra", "valor");
+
+        cache.clear();
+
+        assertThat(cache.get(KEY), nullValue());
+        assertThat(cache.get("altra"), nullValue());
+    }
+
+    @Test
+    public void testDisabled() {
+        cache = new NegativeCachingCache(positive, null);
+
+        cache.put(KEY, null);
+
+        assertThat(cache.get(KEY), nullValue());
+        assertThat(positive.get(KEY), nullValue());
+    }
+
+}
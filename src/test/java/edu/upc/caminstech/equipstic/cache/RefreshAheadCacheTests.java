@@ -0,0 +1,134 @@
+package edu.upc.caminstech.equipstic.cache;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+public class RefreshAheadCacheTests {
+
+    private static final String KEY = "key";
+
+    private MutableClock clock;
+    private List<Runnable> pendingRefreshes;
+    private RefreshAheadCache cache;
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock();
+        pendingRefreshes = new ArrayList<>();
+        cache = new RefreshAheadCache(new ConcurrentMapCache("test"), Duration.ofMinutes(10), Duration.ofHours(1),
+                pendingRefreshes::add, clock);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void testFreshEntryIsNotRefreshed() {
+        cache.get(KEY, this::load);
+        clock.advance(Duration.ofMinutes(5));
+
+        String value = cache.get(KEY, this::load);
+
+        assertThat(value, is("valor 1"));
+        assertThat(pendingRefreshes, empty());
+    }
+
+    @Test
+    public void testStaleEntryIsServedWhileRefreshing() {
+        cache.get(KEY, this::load);
+        clock.advance(Duration.ofMinutes(15));
+
+        String stale = cache.get(KEY, this::load);
+        cache.get(KEY, this::load);
+
+        assertThat(stale, is("valor 1"));
+        assertThat(pendingRefreshes, hasSize(1));
+
+        pendingRefreshes.get(0).run();
+
+        assertThat(cache.get(KEY, this::load), is("valor 2"));
+    }
+
+    @Test
+    public void testStaleEntryIsServedIfRefreshFails() {
+        cache.get(KEY, this::load);
+        clock.advance(Duration.ofMinutes(15));
+
+        cache.get(KEY, () -> {
+            throw new IllegalStateException("error de xarxa");
+        });
+        pendingRefreshes.get(0).run();
+
+        assertThat(cache.get(KEY).get(), is("valor 1"));
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() {
+        cache.get(KEY, this::load);
+        clock.advance(Duration.ofHours(2));
+
+        assertThat(cache.get(KEY), nullValue());
+        assertThat(cache.get(KEY, this::load), is("valor 2"));
+        assertThat(pendingRefreshes, empty());
+    }
+
+    @Test
+    public void testPutAndGet() {
+        cache.put(KEY, null);
+
+        assertThat(cache.get(KEY), notNullValue());
+        assertThat(cache.get(KEY).get(), nullValue());
+    }
+
+    @Test
+    public void testEmptyResultIsNotRefreshed() {
+        cache.get(KEY, () -> null);
+        clock.advance(Duration.ofMinutes(15));
+
+        assertThat(cache.get(KEY, this::load), nullValue());
+        assertThat(pendingRefreshes, empty());
+        assertThat(loads.get(), is(0));
+    }
+
+    private String load() {
+        return "valor " + loads.incrementAndGet();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+    }
+
+}
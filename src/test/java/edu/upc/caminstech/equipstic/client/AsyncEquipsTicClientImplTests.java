@@ -0,0 +1,71 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
+
+public class AsyncEquipsTicClientImplTests {
+
+    private StubHttpServer server;
+    private AsyncEquipsTicClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/api/marca/45")) {
+                StubHttpServer.respondJson(exchange, 200,
+                        "{\"status\":\"success\",\"data\":{\"idMarca\":45,\"nom\":\"IBM\"}}");
+            } else if (path.equals("/api/estat")) {
+                StubHttpServer.respondJson(exchange, 200,
+                        "{\"status\":\"success\",\"data\":[{\"idEstat\":2,\"nom\":\"Baixa\"},{\"idEstat\":1,\"nom\":\"Alta\"}]}");
+            } else {
+                StubHttpServer.respondJson(exchange, 500, "{\"status\":\"fail\",\"message\":\"error\"}");
+            }
+        });
+        client = new AsyncEquipsTicClientImpl(
+                new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password"));
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testConcurrentLookups() {
+        CompletableFuture<Optional<Marca>> marca = client.getMarcaById(45);
+        CompletableFuture<List<Estat>> estats = client.getEstats();
+
+        CompletableFuture.allOf(marca, estats).join();
+
+        assertThat(marca.join().get().getNom(), is("IBM"));
+        assertThat(estats.join(), contains(hasProperty("nom", is("Alta")), hasProperty("nom", is("Baixa"))));
+    }
+
+    @Test
+    public void testErrorCompletesExceptionally() {
+        CompletableFuture<Optional<Marca>> marca = client.getMarcaById(1);
+
+        try {
+            marca.join();
+            fail("S'esperava una excepció");
+        } catch (CompletionException e) {
+            assertThat(e.getCause(), instanceOf(EquipsTicClientException.class));
+        }
+    }
+
+}
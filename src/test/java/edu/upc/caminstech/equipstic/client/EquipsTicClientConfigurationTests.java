@@ -0,0 +1,105 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Tests de l'executor de {@link EquipsTicClientConfiguration}.
+ */
+public class EquipsTicClientConfigurationTests {
+
+    private static final String BASE_URI = "http://127.0.0.1:1/api";
+
+    @Test
+    public void testDefaultExecutor() throws Exception {
+        EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(BASE_URI, "username", "password");
+
+        Thread thread = runOn(config);
+
+        assertThat(thread.getName(), startsWith("equipstic-client-"));
+        assertThat(thread.isDaemon(), is(true));
+        assertThat(isVirtual(thread), is(false));
+        assertThat(config.getExecutor(), sameInstance(config.getExecutor()));
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setVirtualThreads(true);
+        EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(BASE_URI, "username", "password",
+                settings);
+
+        Thread thread = runOn(config);
+
+        // amb una JVM sense fils virtuals, es fa servir el pool habitual
+        Optional<ExecutorService> virtual = VirtualThreads.newThreadPerTaskExecutor("test-");
+        virtual.ifPresent(ExecutorService::shutdown);
+        assertThat(isVirtual(thread), is(virtual.isPresent()));
+        assertThat(thread.getName(), startsWith("equipstic-client-"));
+    }
+
+    @Test
+    public void testSuppliedExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            EquipsTicClientSettings settings = new EquipsTicClientSettings();
+            settings.setVirtualThreads(true);
+            EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(BASE_URI, "username",
+                    "password", settings, executor);
+
+            assertThat(config.getExecutor(), sameInstance(executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCloseShutsDownOwnExecutor() throws Exception {
+        EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(BASE_URI, "username", "password");
+        ExecutorService executor = (ExecutorService) config.getExecutor();
+
+        config.close();
+
+        assertThat(executor.isShutdown(), is(true));
+    }
+
+    @Test
+    public void testCloseKeepsSuppliedExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(BASE_URI, "username",
+                    "password", new EquipsTicClientSettings(), executor);
+
+            config.close();
+
+            assertThat(executor.isShutdown(), is(false));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSuppliedExecutorCannotBeNull() throws Exception {
+        new EquipsTicClientConfiguration(BASE_URI, "username", "password", new EquipsTicClientSettings(), null);
+    }
+
+    private static Thread runOn(EquipsTicClientConfiguration config) throws Exception {
+        return CompletableFuture.supplyAsync(Thread::currentThread, config.getExecutor()).get();
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.client.dao.InfraestructuraDaoImpl;
+import edu.upc.caminstech.equipstic.client.dao.MarcaDaoImpl;
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
+
+/**
+ * Tests de la configuració HTTP del client contra un servidor local.
+ */
+public class EquipsTicRestTemplateBuilderTests {
+
+    private static final String MARCA_JSON = "{\"status\":\"success\",\"data\":{\"idMarca\":45,\"nom\":\"IBM\"}}";
+
+    private StubHttpServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(this::handleBasicAuth);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testAuthenticationWithChallenge() throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setPreemptiveAuthentication(false);
+
+        Optional<Marca> marca = getMarca(settings);
+
+        assertThat(marca.get().getNom(), is("IBM"));
+        assertThat(server.getRequestCount(), is(2));
+        assertThat(server.getRequests().get(0).getFirst("Authorization"), nullValue());
+    }
+
+    @Test
+    public void testPreemptiveAuthentication() throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setPreemptiveAuthentication(true);
+
+        Optional<Marca> marca = getMarca(settings);
+
+        assertThat(marca.get().getNom(), is("IBM"));
+        assertThat(server.getRequestCount(), is(1));
+        assertThat(server.getRequests().get(0).getFirst("Authorization"), startsWith("Basic "));
+    }
+
+    @Test
+    public void testPreemptiveAuthenticationOnEveryCall() throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setPreemptiveAuthentication(true);
+        MarcaDaoImpl dao = new MarcaDaoImpl(createConfiguration(settings));
+
+        dao.getMarcaById(45);
+        dao.getMarcaById(45);
+
+        assertThat(server.getRequestCount(), is(2));
+    }
+
+    @Test
+    public void testCompressedResponse() throws Exception {
+        try (StubHttpServer gzipServer = new StubHttpServer(exchange -> respondGzip(exchange, MARCA_JSON))) {
+            MarcaDaoImpl dao = new MarcaDaoImpl(new EquipsTicClientConfiguration(gzipServer.getBaseUri(),
+                    "username", "password", new EquipsTicClientSettings()));
+
+            Optional<Marca> marca = dao.getMarcaById(45);
+
+            assertThat(marca.get().getNom(), is("IBM"));
+            assertThat(gzipServer.getRequests().get(0).getFirst("Accept-Encoding"), containsString("gzip"));
+        }
+    }
+
+    @Test
+    public void testResponseCompressionDisabled() throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setResponseCompression(false);
+        settings.setPreemptiveAuthentication(true);
+
+        getMarca(settings);
+
+        assertThat(server.getRequests().get(0).getFirst("Accept-Encoding"), nullValue());
+    }
+
+    @Test
+    public void testCompressedRequest() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+        try (StubHttpServer gzipServer = new StubHttpServer(exchange -> {
+            try (InputStream in = new GZIPInputStream(exchange.getRequestBody())) {
+                received.set(readFully(in));
+            }
+            StubHttpServer.respondJson(exchange, 200,
+                    "{\"status\":\"success\",\"data\":{\"identificador\":7,\"nomDns\":\"equip7\"}}");
+        })) {
+            EquipsTicClientSettings settings = new EquipsTicClientSettings();
+            settings.setRequestCompression(true);
+            InfraestructuraDaoImpl dao = new InfraestructuraDaoImpl(
+                    new EquipsTicClientConfiguration(gzipServer.getBaseUri(), "username", "password", settings));
+            Infraestructura infraestructura = new Infraestructura();
+            infraestructura.setNomDns("equip7");
+
+            Infraestructura creada = dao.altaInfraestructura(infraestructura);
+
+            assertThat(creada.getIdentificador(), is(7L));
+            assertThat(gzipServer.getRequests().get(0).getFirst("Content-Encoding"), is("gzip"));
+            assertThat(received.get(), containsString("\"nomDns\":\"equip7\""));
+        }
+    }
+
+    private Optional<Marca> getMarca(EquipsTicClientSettings settings) throws Exception {
+        return new MarcaDaoImpl(createConfiguration(settings)).getMarcaById(45);
+    }
+
+    private EquipsTicClientConfiguration createConfiguration(EquipsTicClientSettings settings) throws Exception {
+        return new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password", settings);
+    }
+
+    /**
+     * Simula el comportament del bus SOA: sense credencials, respon amb un 401
+     * i demana autenticació Basic.
+     */
+    private void handleBasicAuth(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"equipstic\"");
+            StubHttpServer.respondEmpty(exchange, 401);
+            return;
+        }
+        StubHttpServer.respondJson(exchange, 200, MARCA_JSON);
+    }
+
+    /**
+     * Envia una resposta comprimida, si la petició ho permet.
+     */
+    private static void respondGzip(HttpExchange exchange, String json) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+            StubHttpServer.respondJson(exchange, 200, json);
+            return;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, compressed.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            compressed.writeTo(out);
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,131 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.client.dao.MarcaDaoImpl;
+import edu.upc.caminstech.equipstic.fixtures.StubHttp2Server;
+
+/**
+ * Tests dels transports HTTP contra un servidor local que accepta HTTP/1.1 i
+ * HTTP/2.
+ */
+public class Http2TransportTests {
+
+    private static final String MARCA_JSON = "{\"status\":\"success\",\"data\":{\"idMarca\":45,\"nom\":\"IBM\"}}";
+
+    private StubHttp2Server server;
+    private final List<EquipsTicClientConfiguration> configurations = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttp2Server(MARCA_JSON, 0);
+    }
+
+    @After
+    public void tearDown() {
+        configurations.forEach(EquipsTicClientConfiguration::close);
+        server.close();
+    }
+
+    @Test
+    public void testHttp2Transport() throws Exception {
+        Optional<Marca> marca = createDao(HttpTransport.HTTP_2).getMarcaById(45);
+
+        assertThat(marca.get().getNom(), is("IBM"));
+        assertThat(server.getProtocolVersions(), contains(2));
+    }
+
+    @Test
+    public void testHttp11Transport() throws Exception {
+        Optional<Marca> marca = createDao(HttpTransport.HTTP_1_1).getMarcaById(45);
+
+        assertThat(marca.get().getNom(), is("IBM"));
+        assertThat(server.getProtocolVersions(), contains(1));
+    }
+
+    @Test
+    public void testConcurrentRequestsOverHttp2() throws Exception {
+        MarcaDaoImpl dao = createDao(HttpTransport.HTTP_2);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Optional<Marca>>> results = new ArrayList<>();
+            for (long id = 0; id < 100; id++) {
+                long idMarca = id;
+                results.add(executor.submit(() -> dao.getMarcaById(idMarca)));
+            }
+            for (Future<Optional<Marca>> result : results) {
+                assertThat(result.get().get().getNom(), is("IBM"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(server.getProtocolVersions(), hasSize(100));
+        assertThat(server.getProtocolVersions(), everyItem(is(2)));
+        assertThat(server.getConnectionCount(), is(1));
+    }
+
+    @Test
+    public void testHttp2CredentialsOnlySentToBaseUri() throws Exception {
+        RestTemplate restTemplate = createConfiguration(HttpTransport.HTTP_2, new EquipsTicClientSettings())
+                .getRestTemplate();
+        URI baseUri = URI.create(server.getBaseUri());
+
+        restTemplate.getForObject(baseUri + "/marca/45", String.class);
+        restTemplate.getForObject("http://localhost:" + baseUri.getPort() + "/api/marca/45", String.class);
+
+        assertThat(server.getRequests().get(0).getFirstHeader("Authorization"), notNullValue());
+        assertThat(server.getRequests().get(1).getFirstHeader("Authorization"), nullValue());
+    }
+
+    @Test
+    public void testHttp2ResponseCompression() throws Exception {
+        createDao(HttpTransport.HTTP_2).getMarcaById(45);
+
+        assertThat(server.getRequests().get(0).getFirstHeader("Accept-Encoding").getValue(), is("gzip"));
+    }
+
+    @Test(expected = ResourceAccessException.class)
+    public void testHttp2ResponseTimeout() throws Exception {
+        try (StubHttp2Server slowServer = new StubHttp2Server(MARCA_JSON, 5000)) {
+            EquipsTicClientSettings settings = new EquipsTicClientSettings();
+            settings.setTransport(HttpTransport.HTTP_2);
+            settings.setResponseTimeout(Duration.ofMillis(200));
+            EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(slowServer.getBaseUri(),
+                    "username", "password", settings);
+            configurations.add(config);
+
+            new MarcaDaoImpl(config).getMarcaById(45);
+        }
+    }
+
+    private MarcaDaoImpl createDao(HttpTransport transport) throws Exception {
+        return new MarcaDaoImpl(createConfiguration(transport, new EquipsTicClientSettings()));
+    }
+
+    private EquipsTicClientConfiguration createConfiguration(HttpTransport transport,
+            EquipsTicClientSettings settings) throws Exception {
+        settings.setTransport(transport);
+        EquipsTicClientConfiguration config = new EquipsTicClientConfiguration(server.getBaseUri(), "username",
+                "password", settings);
+        configurations.add(config);
+        return config;
+    }
+
+}
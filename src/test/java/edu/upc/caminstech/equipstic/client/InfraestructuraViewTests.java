@@ -0,0 +1,84 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.junit.Test;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.Unitat;
+
+public class InfraestructuraViewTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Madrid");
+
+    private final InfraestructuraView.Catalog catalog = new InfraestructuraView.Catalog(ZONE);
+
+    @Test
+    public void testAttributes() {
+        Infraestructura i = infraestructura(1, "equip1");
+        i.setDataCompra(Date.from(LocalDate.of(2019, 3, 1).atStartOfDay(ZONE).toInstant()));
+        i.setImportCompra(new BigDecimal("1234.5"));
+
+        InfraestructuraView view = catalog.view(i);
+
+        assertThat(view.getIdentificador(), is(1L));
+        assertThat(view.getNomDns(), is("equip1"));
+        assertThat(view.getModel(), is("Optiplex"));
+        assertThat(view.getMarca().getNom(), is("Dell"));
+        assertThat(view.getUnitat().getIdentificador(), is("UTGAC"));
+        assertThat(view.getDataCompra(), is(LocalDate.of(2019, 3, 1)));
+        assertThat(view.getImportCompra(), is(new BigDecimal("1234.50")));
+        assertThat(view.getEstat(), nullValue());
+        assertThat(view.getDataFinalGarantia(), nullValue());
+    }
+
+    @Test
+    public void testCatalogsAndStringsAreShared() {
+        InfraestructuraView first = catalog.view(infraestructura(1, "equip1"));
+        InfraestructuraView second = catalog.view(infraestructura(2, "equip2"));
+
+        assertThat(second.getMarca(), sameInstance(first.getMarca()));
+        assertThat(second.getUnitat(), sameInstance(first.getUnitat()));
+        assertThat(second.getModel(), sameInstance(first.getModel()));
+    }
+
+    @Test
+    public void testCatalogIdsOutsideIntRange() {
+        Infraestructura gran = infraestructura(1, "equip1");
+        gran.setMarca(new Marca(Integer.MAX_VALUE + 1L, "HP"));
+        Infraestructura minim = infraestructura(2, "equip2");
+        minim.setMarca(new Marca(Integer.MIN_VALUE, "Lenovo"));
+
+        assertThat(catalog.view(gran).getMarca().getNom(), is("HP"));
+        assertThat(catalog.view(minim).getMarca().getNom(), is("Lenovo"));
+    }
+
+    @Test
+    public void testOrder() {
+        InfraestructuraView a = catalog.view(infraestructura(2, "a"));
+        InfraestructuraView b = catalog.view(infraestructura(1, "b"));
+        InfraestructuraView senseNom = catalog.view(infraestructura(3, null));
+
+        assertThat(a.compareTo(b), lessThan(0));
+        assertThat(senseNom.compareTo(a), lessThan(0));
+    }
+
+    private static Infraestructura infraestructura(long id, String nomDns) {
+        Infraestructura i = new Infraestructura();
+        i.setIdentificador(id);
+        i.setNomDns(nomDns);
+        // instàncies noves cada vegada, com si venissin de respostes diferents
+        i.setModel(new String("Optiplex"));
+        i.setMarca(new Marca(2, "Dell"));
+        i.setUnitat(new Unitat(79, null, "UTGAC", "CaminsTIC", null));
+        return i;
+    }
+
+}
@@ -0,0 +1,118 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static edu.upc.caminstech.equipstic.client.InventoryAggregation.Dimension.*;
+import static edu.upc.caminstech.equipstic.client.InventoryAggregation.Measure.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.client.InventoryAggregation.Group;
+
+public class InventoryAggregationTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Madrid");
+
+    private static final long ACTIU = 1;
+    private static final long BAIXA = 2;
+    private static final long UTGAC = 79;
+    private static final long UTGAN = 80;
+
+    private final InventorySnapshot snapshot = new InventorySnapshot(Arrays.asList( //
+            infraestructura(1, ACTIU, UTGAC, "100.50", 4), //
+            infraestructura(2, ACTIU, UTGAC, "200", null), //
+            infraestructura(3, BAIXA, UTGAC, null, 2), //
+            infraestructura(4, ACTIU, UTGAN, "50.25", 8)), ZONE);
+
+    @Test
+    public void testGroupByUnitatAndEstat() {
+        InventoryAggregation result = snapshot.query().groupBy(UNITAT, ESTAT);
+
+        assertThat(result.getDimensions(), contains(UNITAT, ESTAT));
+        assertThat(result.getGroups(), hasSize(3));
+
+        Group group = result.getGroup(UTGAC, ACTIU).get();
+        assertThat(group.getUnitat().getIdUnitat(), is(UTGAC));
+        assertThat(group.getEstat().getIdEstat(), is(ACTIU));
+        assertThat(group.getMarca(), nullValue());
+        assertThat(group.getCount(), is(2L));
+        assertThat(group.getCount(IMPORT_COMPRA), is(2L));
+        assertThat(group.getSum(IMPORT_COMPRA), is(new BigDecimal("300.50")));
+        assertThat(group.getMin(IMPORT_COMPRA), is(new BigDecimal("100.50")));
+        assertThat(group.getMax(IMPORT_COMPRA), is(new BigDecimal("200.00")));
+        assertThat(group.getCount(NUMERO_CPUS), is(1L));
+        assertThat(group.getSum(NUMERO_CPUS), is(BigDecimal.valueOf(4)));
+
+        Group baixa = result.getGroup(UTGAC, BAIXA).get();
+        assertThat(baixa.getCount(), is(1L));
+        assertThat(baixa.getSum(IMPORT_COMPRA), is(new BigDecimal("0.00")));
+        assertThat(baixa.getMin(IMPORT_COMPRA), nullValue());
+
+        assertThat(result.getGroup(UTGAN, BAIXA).isPresent(), is(false));
+    }
+
+    @Test
+    public void testGroupByWithFilter() {
+        InventoryAggregation result = snapshot.query().withEstat(ACTIU).groupBy(UNITAT);
+
+        assertThat(result.getGroups(), hasSize(2));
+        assertThat(result.getGroup(UTGAC).get().getCount(), is(2L));
+        assertThat(result.getGroup(UTGAN).get().getSum(NUMERO_CPUS), is(BigDecimal.valueOf(8)));
+    }
+
+    @Test
+    public void testWithoutDimensions() {
+        InventoryAggregation result = snapshot.query().groupBy();
+
+        assertThat(result.getGroups(), hasSize(1));
+        Group group = result.getGroup().get();
+        assertThat(group.getCount(), is(4L));
+        assertThat(group.getSum(IMPORT_COMPRA), is(new BigDecimal("350.75")));
+        assertThat(group.getMax(NUMERO_CPUS), is(BigDecimal.valueOf(8)));
+    }
+
+    @Test
+    public void testRowsWithoutElement() {
+        InventoryAggregation result = snapshot.query().groupBy(EDIFICI);
+
+        assertThat(result.getGroups(), hasSize(1));
+        assertThat(result.getGroups().get(0).getEdifici(), nullValue());
+        assertThat(result.getGroups().get(0).getCount(), is(4L));
+    }
+
+    @Test
+    public void testManyGroups() {
+        List<Infraestructura> infraestructures = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            infraestructures.add(infraestructura(i, i % 7, i % 100, "1", 1));
+        }
+        InventorySnapshot large = new InventorySnapshot(infraestructures, ZONE);
+
+        InventoryAggregation result = large.query().groupBy(ESTAT, UNITAT);
+
+        assertThat(result.getGroups(), hasSize(700));
+        assertThat(result.getGroups().stream().mapToLong(Group::getCount).sum(), is(10000L));
+        assertThat(result.getGroup(3, 10).get().getSum(IMPORT_COMPRA), is(new BigDecimal("15.00")));
+    }
+
+    private static Infraestructura infraestructura(long id, long idEstat, long idUnitat, String importCompra,
+            Integer numeroCpus) {
+        Infraestructura i = new Infraestructura();
+        i.setIdentificador(id);
+        i.setEstat(new Estat(idEstat));
+        i.setUnitat(new Unitat(idUnitat, null, null, null, null));
+        i.setImportCompra((importCompra != null) ? new BigDecimal(importCompra) : null);
+        i.setNumeroCpus(numeroCpus);
+        return i;
+    }
+
+}
@@ -0,0 +1,91 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import edu.upc.caminstech.equipstic.Estat;
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.Unitat;
+
+public class InventorySnapshotTests {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Madrid");
+
+    private static final long ACTIU = 1;
+    private static final long BAIXA = 2;
+    private static final long DELL = 10;
+    private static final long HP = 11;
+    private static final long UTGAC = 79;
+    private static final long UTGAN = 80;
+
+    private final InventorySnapshot snapshot = new InventorySnapshot(Arrays.asList( //
+            infraestructura(3, "c", ACTIU, DELL, UTGAC, LocalDate.of(2020, 1, 1)), //
+            infraestructura(1, "a", ACTIU, HP, UTGAC, LocalDate.of(2022, 6, 30)), //
+            infraestructura(2, "b", BAIXA, DELL, UTGAN, null), //
+            infraestructura(4, "d", ACTIU, DELL, UTGAN, LocalDate.of(2021, 1, 1)), //
+            infraestructura(1, "a", BAIXA, HP, UTGAN, null)), ZONE);
+
+    @Test
+    public void testRowsAreSortedAndUnique() {
+        assertThat(snapshot.size(), is(4));
+        assertThat(snapshot.getInfraestructures().stream().map(InfraestructuraView::getNomDns)
+                .collect(Collectors.toList()), contains("a", "b", "c", "d"));
+        assertThat(snapshot.getInfraestructures().get(0).getEstat().getIdEstat(), is(ACTIU));
+    }
+
+    @Test
+    public void testWithoutConditions() {
+        assertThat(snapshot.query().count(), is(4));
+        assertThat(snapshot.query().getIdentificadors(), is(new long[] { 1, 2, 3, 4 }));
+    }
+
+    @Test
+    public void testCategoricalConditions() {
+        assertThat(snapshot.query().withEstat(ACTIU).count(), is(3));
+        assertThat(snapshot.query().withEstat(ACTIU).withMarca(DELL).getIdentificadors(), is(new long[] { 3, 4 }));
+        assertThat(snapshot.query().withEstat(ACTIU).withMarca(DELL).withUnitat(UTGAN).getIdentificadors(),
+                is(new long[] { 4 }));
+        assertThat(snapshot.query().withEstat(ACTIU, BAIXA).withUnitat(UTGAN).count(), is(2));
+    }
+
+    @Test
+    public void testUnknownElement() {
+        assertThat(snapshot.query().withMarca(999).count(), is(0));
+        assertThat(snapshot.query().withEdifici(1).list(), empty());
+    }
+
+    @Test
+    public void testDataFinalGarantia() {
+        assertThat(snapshot.query().withDataFinalGarantiaBetween(null, LocalDate.of(2021, 1, 1)).getIdentificadors(),
+                is(new long[] { 3 }));
+        assertThat(snapshot.query().withDataFinalGarantiaBetween(LocalDate.of(2021, 1, 1), null).getIdentificadors(),
+                is(new long[] { 1, 4 }));
+        assertThat(snapshot.query().withDataFinalGarantiaBetween(null, null).count(), is(3));
+        assertThat(snapshot.query().withMarca(DELL).withDataFinalGarantiaBetween(null, null).list().stream()
+                .map(InfraestructuraView::getIdentificador).collect(Collectors.toList()), contains(3L, 4L));
+    }
+
+    private static Infraestructura infraestructura(long id, String nomDns, long idEstat, long idMarca,
+            long idUnitat, LocalDate dataFinalGarantia) {
+        Infraestructura i = new Infraestructura();
+        i.setIdentificador(id);
+        i.setNomDns(nomDns);
+        i.setEstat(new Estat(idEstat));
+        i.setMarca(new Marca(idMarca, null));
+        i.setUnitat(new Unitat(idUnitat, null, null, null, null));
+        if (dataFinalGarantia != null) {
+            i.setDataFinalGarantia(Date.from(dataFinalGarantia.atStartOfDay(ZONE).toInstant()));
+        }
+        return i;
+    }
+
+}
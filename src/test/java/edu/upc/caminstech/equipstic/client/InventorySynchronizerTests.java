@@ -0,0 +1,173 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
+
+/**
+ * Tests de {@link InventorySynchronizer} contra un servidor local.
+ */
+public class InventorySynchronizerTests {
+
+    private static final long ID_UNITAT = 79;
+
+    /**
+     * Les infraestructures del servidor: identificador i JSON.
+     */
+    private final Map<Long, String> infraestructures = new ConcurrentHashMap<>();
+    private final AtomicInteger detailRequests = new AtomicInteger();
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private volatile boolean unitatUnauthorized;
+    private volatile boolean unitatListed = true;
+
+    private StubHttpServer server;
+    private InventorySynchronizer synchronizer;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(this::handle);
+        EquipsTicClientImpl client = new EquipsTicClientImpl(
+                new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password"));
+        synchronizer = new InventorySynchronizer(client);
+        synchronizer.addListener(new InventorySynchronizer.Listener() {
+            @Override
+            public void added(Infraestructura infraestructura) {
+                events.add("added " + infraestructura.getIdentificador());
+            }
+
+            @Override
+            public void changed(Infraestructura previous, Infraestructura current) {
+                events.add("changed " + previous.getNomDns() + " " + current.getNomDns());
+            }
+
+            @Override
+            public void removed(Infraestructura infraestructura) {
+                events.add("removed " + infraestructura.getIdentificador());
+            }
+        });
+
+        put(1, "equip1", "2019-01-10");
+        put(2, "equip2", "2019-03-01");
+        put(3, "equip3", "2019-02-01");
+        synchronizer.synchronize();
+        detailRequests.set(0);
+        events.clear();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testFirstSynchronizationAddsEverything() {
+        assertThat(synchronizer.getInfraestructures().stream().map(Infraestructura::getIdentificador)
+                .collect(Collectors.toList()), containsInAnyOrder(1L, 2L, 3L));
+        assertThat(synchronizer.getInfraestructura(2).get().getNomDns(), is("equip2"));
+        assertThat(synchronizer.getHighWaterMark(ID_UNITAT).isPresent(), is(true));
+    }
+
+    @Test
+    public void testOnlyRecentlyModifiedAreRequested() {
+        synchronizer.synchronize();
+
+        assertThat(events, empty());
+        // només la modificada el mateix dia que la marca d'aigua
+        assertThat(detailRequests.get(), is(1));
+    }
+
+    @Test
+    public void testChangedAndAdded() {
+        put(1, "equip1-nou", "2019-04-01");
+        put(4, "equip4", "2019-01-01");
+
+        synchronizer.synchronize();
+
+        assertThat(events, containsInAnyOrder("changed equip1 equip1-nou", "added 4"));
+        assertThat(synchronizer.getInfraestructura(1).get().getNomDns(), is("equip1-nou"));
+    }
+
+    @Test
+    public void testChangedOnTheSameDay() {
+        put(2, "equip2-nou", "2019-03-01");
+
+        synchronizer.synchronize();
+
+        assertThat(events, contains("changed equip2 equip2-nou"));
+    }
+
+    @Test
+    public void testRemoved() {
+        infraestructures.remove(3L);
+
+        synchronizer.synchronize();
+
+        assertThat(events, contains("removed 3"));
+        assertThat(synchronizer.getInfraestructura(3).isPresent(), is(false));
+        assertThat(detailRequests.get(), is(1));
+    }
+
+    @Test
+    public void testSkippedUnitatKeepsInfraestructures() {
+        unitatUnauthorized = true;
+
+        synchronizer.synchronize();
+
+        assertThat(events, empty());
+        assertThat(synchronizer.getInfraestructures(), hasSize(3));
+        assertThat(synchronizer.getHighWaterMark(ID_UNITAT).isPresent(), is(true));
+    }
+
+    @Test
+    public void testMissingUnitatKeepsInfraestructures() {
+        unitatListed = false;
+
+        synchronizer.synchronize();
+
+        assertThat(events, empty());
+        assertThat(synchronizer.getInfraestructures(), hasSize(3));
+    }
+
+    private void put(long id, String nomDns, String dataDarreraModificacio) {
+        infraestructures.put(id,
+                String.format("{\"identificador\":%d,\"nomDns\":\"%s\",\"dataDarreraModificacio\":\"%s\","
+                        + "\"unitat\":{\"idUnitat\":%d}}", id, nomDns, dataDarreraModificacio, ID_UNITAT));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String data;
+        if (path.endsWith("/unitat")) {
+            data = unitatListed ? "[{\"idUnitat\":" + ID_UNITAT + ",\"identificador\":\"UTGAC\"}]" : "[]";
+        } else if (path.endsWith("/infraestructura/cerca/unitat/" + ID_UNITAT) && unitatUnauthorized) {
+            StubHttpServer.respondEmpty(exchange, 400);
+            return;
+        } else if (path.endsWith("/infraestructura/cerca/unitat/" + ID_UNITAT)) {
+            data = infraestructures.values().stream().collect(Collectors.joining(",", "[", "]"));
+        } else if (path.endsWith("/detall")) {
+            detailRequests.incrementAndGet();
+            String[] parts = path.split("/");
+            data = infraestructures.get(Long.valueOf(parts[parts.length - 2]));
+        } else {
+            data = "[]";
+        }
+        StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":" + data + "}");
+    }
+
+}
@@ -0,0 +1,53 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongIntMapTests {
+
+    @Test
+    public void testPutAndGet() {
+        LongIntMap map = new LongIntMap(0);
+
+        assertThat(map.put(1L, 10), is(LongIntMap.NO_VALUE));
+        assertThat(map.put(-1L, 20), is(LongIntMap.NO_VALUE));
+        assertThat(map.put(0L, 0), is(LongIntMap.NO_VALUE));
+        assertThat(map.put(1L, 11), is(10));
+
+        assertThat(map.get(1L), is(11));
+        assertThat(map.get(-1L), is(20));
+        assertThat(map.get(0L), is(0));
+        assertThat(map.get(2L), is(LongIntMap.NO_VALUE));
+        assertThat(map.size(), is(3));
+    }
+
+    @Test
+    public void testSameContentsAsHashMap() {
+        Random random = new Random(1);
+        Map<Long, Integer> expected = new HashMap<>();
+        LongIntMap map = new LongIntMap(4);
+        for (int i = 0; i < 10_000; i++) {
+            // claus múltiples de 1024 per provocar col·lisions
+            long key = (i % 2 == 0) ? random.nextLong() : random.nextInt(1000) * 1024L;
+            Integer previous = expected.put(key, i);
+            assertThat(map.put(key, i), is(previous == null ? LongIntMap.NO_VALUE : previous));
+        }
+
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+            assertThat(map.get(e.getKey()), is(e.getValue()));
+        }
+        assertThat(map.size(), is(expected.size()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValue() {
+        new LongIntMap(1).put(1L, -1);
+    }
+
+}
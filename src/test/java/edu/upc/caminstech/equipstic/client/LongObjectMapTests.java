@@ -0,0 +1,52 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongObjectMapTests {
+
+    @Test
+    public void testPutAndGet() {
+        LongObjectMap<String> map = new LongObjectMap<>(0);
+
+        assertThat(map.put(1L, "u"), nullValue());
+        assertThat(map.put(-1L, "menys u"), nullValue());
+        assertThat(map.put(0L, "zero"), nullValue());
+        assertThat(map.put(1L, "un"), is("u"));
+
+        assertThat(map.get(1L), is("un"));
+        assertThat(map.get(-1L), is("menys u"));
+        assertThat(map.get(0L), is("zero"));
+        assertThat(map.get(2L), nullValue());
+        assertThat(map.size(), is(3));
+    }
+
+    @Test
+    public void testSameContentsAsHashMap() {
+        Random random = new Random(1);
+        Map<Long, String> expected = new HashMap<>();
+        LongObjectMap<String> map = new LongObjectMap<>(4);
+        for (int i = 0; i < 10_000; i++) {
+            // claus múltiples de 1024 per provocar col·lisions
+            long key = (i % 2 == 0) ? random.nextLong() : random.nextInt(1000) * 1024L;
+            assertThat(map.put(key, "v" + i), is(expected.put(key, "v" + i)));
+        }
+
+        for (Map.Entry<Long, String> e : expected.entrySet()) {
+            assertThat(map.get(e.getKey()), is(e.getValue()));
+        }
+        assertThat(map.size(), is(expected.size()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValue() {
+        new LongObjectMap<String>(1).put(1L, null);
+    }
+
+}
@@ -0,0 +1,293 @@
+package edu.upc.caminstech.equipstic.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
+
+/**
+ * Tests de {@link ReferenceDataIndex} i del seu ús des de
+ * {@link EquipsTicClientImpl}, contra un servidor local.
+ */
+public class ReferenceDataIndexTests {
+
+    /**
+     * Nombre de catàlegs que es carreguen a l'índex.
+     */
+    private static final int CATALOGS = 11;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubHttpServer server;
+    private EquipsTicClientImpl client;
+
+    /**
+     * El catàleg que el servidor no pot retornar, si n'hi ha.
+     */
+    private volatile String failingCatalog;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(this::handle);
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setReferenceDataIndex(true);
+        client = new EquipsTicClientImpl(
+                new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password", settings));
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testLookupsAreAnsweredLocally() {
+        assertThat(client.getMarcaById(2).get().getNom(), is("Dell"));
+        assertThat(client.getMarcaById(1).get().getNom(), is("HP"));
+        assertThat(client.getEdificiByCodiAndCodiCampus("C1", "NORD").get().getIdEdifici(), is(1L));
+        assertThat(client.getEdificiById(2).get().getCodi(), is("C2"));
+
+        assertThat(server.getRequestCount(), is(CATALOGS));
+    }
+
+    @Test
+    public void testMissingElementGoesToServer() {
+        assertThat(client.getMarcaById(3).get().getNom(), is("Nova"));
+
+        assertThat(server.getRequestCount(), is(CATALOGS + 1));
+    }
+
+    @Test
+    public void testSearchByNom() {
+        ReferenceDataIndex index = client.getReferenceDataIndex().get();
+
+        assertThat(index.getMarquesByNom("HP"), contains(hasProperty("idMarca", is(1L))));
+        assertThat(index.getMarquesByNom("hp"), empty());
+    }
+
+    @Test
+    public void testRefreshReplacesIndex() {
+        ReferenceDataIndex index = client.getReferenceDataIndex().get();
+        index.getMarcaById(1);
+
+        index.refresh();
+
+        assertThat(index.getMarcaById(1).isPresent(), is(true));
+        assertThat(server.getRequestCount(), is(2 * CATALOGS));
+    }
+
+    @Test
+    public void testCatalogsAreLoadedOnClientExecutor() throws Exception {
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                tasks.incrementAndGet();
+                super.execute(command);
+            }
+        };
+        try {
+            EquipsTicClientSettings settings = new EquipsTicClientSettings();
+            settings.setReferenceDataIndex(true);
+            EquipsTicClientImpl other = new EquipsTicClientImpl(new EquipsTicClientConfiguration(
+                    server.getBaseUri(), "username", "password", settings, executor));
+
+            assertThat(other.getMarcaById(2).get().getNom(), is("Dell"));
+            assertThat(tasks.get(), is(CATALOGS));
+            assertThat(server.getRequestCount(), is(CATALOGS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        EquipsTicClientImpl other = new EquipsTicClientImpl(
+                new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password"));
+
+        assertThat(other.getReferenceDataIndex().isPresent(), is(false));
+        assertThat(other.getMarcaById(1).get().getNom(), is("Marca 1"));
+        assertThat(server.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void testSnapshotFileIsUsedOnStartup() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("reference-data.bin");
+        newClientWithSnapshotFile(server.getBaseUri(), file).getMarcaById(1);
+        assertThat(Files.exists(file), is(true));
+
+        // el servidor no respon: l'índex es carrega del fitxer
+        EquipsTicClientImpl restarted = newClientWithSnapshotFile("http://127.0.0.1:1/api", file);
+
+        assertThat(restarted.getMarcaById(2).get().getNom(), is("Dell"));
+        assertThat(restarted.getEdificiById(2).get().getCampus().getCodi(), is("NORD"));
+        assertThat(server.getRequestCount(), is(CATALOGS));
+    }
+
+    @Test
+    public void testInvalidSnapshotFileIsIgnored() throws Exception {
+        Path file = folder.newFile("reference-data.bin").toPath();
+        Files.write(file, "no és un fitxer de dades de referència".getBytes(StandardCharsets.UTF_8));
+
+        EquipsTicClientImpl other = newClientWithSnapshotFile(server.getBaseUri(), file);
+
+        assertThat(other.getMarcaById(1).get().getNom(), is("HP"));
+        assertThat(server.getRequestCount(), is(CATALOGS));
+    }
+
+    @Test
+    public void testFailedLoadFallsBackToServer() {
+        failingCatalog = "unitat";
+
+        assertThat(client.getMarcaById(1).get().getNom(), is("Marca 1"));
+        int requests = server.getRequestCount();
+
+        // no es torna a intentar la càrrega fins que ha passat el temps d'espera
+        assertThat(client.getMarcaById(2).get().getNom(), is("Marca 2"));
+        assertThat(server.getRequestCount(), is(requests + 1));
+    }
+
+    @Test
+    public void testFailedRefreshKeepsIndex() throws Exception {
+        MutableClock clock = new MutableClock();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ReferenceDataIndex index = new ReferenceDataIndex(client, Duration.ofMinutes(1), null, executor, clock);
+            index.getMarcaById(1);
+            int requests = server.getRequestCount();
+
+            failingCatalog = "unitat";
+            clock.advance(Duration.ofMinutes(2));
+            assertThat(index.getMarcaById(1).get().getNom(), is("HP"));
+            awaitTasks(executor);
+            int afterFailure = server.getRequestCount();
+            assertThat(afterFailure, is(requests + CATALOGS));
+
+            // la recàrrega no es torna a intentar fins que ha passat el temps d'espera
+            assertThat(index.getMarcaById(2).get().getNom(), is("Dell"));
+            assertThat(server.getRequestCount(), is(afterFailure));
+
+            failingCatalog = null;
+            clock.advance(Duration.ofSeconds(1));
+            index.getMarcaById(1);
+            awaitTasks(executor);
+            assertThat(server.getRequestCount(), is(afterFailure + CATALOGS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStaleIndexIsRefreshedInBackground() {
+        MutableClock clock = new MutableClock();
+        List<Runnable> tasks = new ArrayList<>();
+        ReferenceDataIndex index = new ReferenceDataIndex(client, Duration.ofMinutes(1), null, tasks::add, clock);
+        index.getMarcaById(1);
+        int requests = server.getRequestCount();
+        tasks.clear();
+
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(index.getMarcaById(1).get().getNom(), is("HP"));
+        index.getMarcaById(2);
+
+        // la consulta no espera la recàrrega, i només se'n programa una
+        assertThat(server.getRequestCount(), is(requests));
+        assertThat(tasks.size(), is(1));
+
+        tasks.remove(0).run();
+        assertThat(server.getRequestCount(), is(requests + CATALOGS));
+    }
+
+    /**
+     * Espera que l'executor (d'un sol fil) acabi les tasques que ja té.
+     */
+    private static void awaitTasks(ExecutorService executor) throws Exception {
+        executor.submit(() -> {
+        }).get();
+    }
+
+    private static EquipsTicClientImpl newClientWithSnapshotFile(String baseUri, Path file) throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setReferenceDataIndex(true);
+        settings.setReferenceDataSnapshotFile(file);
+        return new EquipsTicClientImpl(new EquipsTicClientConfiguration(baseUri, "username", "password", settings));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        String data;
+        if (path.length == 3 && path[2].equals(failingCatalog)) {
+            StubHttpServer.respondEmpty(exchange, 500);
+            return;
+        }
+        if (path.length > 3) {
+            data = "{\"idMarca\":" + path[3] + ",\"nom\":\"" + ("3".equals(path[3]) ? "Nova" : "Marca " + path[3])
+                    + "\"}";
+        } else if ("marca".equals(path[2])) {
+            data = "[{\"idMarca\":1,\"nom\":\"HP\"},{\"idMarca\":2,\"nom\":\"Dell\"}]";
+        } else if ("edifici".equals(path[2])) {
+            data = "[{\"idEdifici\":1,\"codi\":\"C1\",\"campus\":{\"idCampus\":1,\"codi\":\"NORD\"}},"
+                    + "{\"idEdifici\":2,\"codi\":\"C2\",\"campus\":{\"idCampus\":1,\"codi\":\"NORD\"}}]";
+        } else {
+            data = "[]";
+        }
+        StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":" + data + "}");
+    }
+
+    /**
+     * Un rellotge que només avança quan es demana.
+     */
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.upc.caminstech.equipstic.Edifici;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
+
+/**
+ * Tests de {@link EdificiDaoImpl} contra un servidor local.
+ */
+public class EdificiDaoImplTests {
+
+    private static final String EDIFICIS = "[{\"idEdifici\":1,\"codi\":\"C1\",\"campus\":{\"idCampus\":1,\"codi\":\"NORD\"}},"
+            + "{\"idEdifici\":2,\"codi\":\"C2\",\"campus\":{\"idCampus\":1,\"codi\":\"NORD\"}}]";
+
+    private StubHttpServer server;
+    private EdificiDaoImpl dao;
+    private ConcurrentMapCacheManager cacheManager;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(this::handleEdifici);
+        dao = new EdificiDaoImpl(new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password"));
+        cacheManager = new ConcurrentMapCacheManager();
+        dao.setCacheManager(cacheManager);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testGetEdificisPopulatesLookupCaches() {
+        dao.getEdificis();
+
+        assertThat(cacheManager.getCache(CacheUtils.PREFIX + "getEdificiById").get(2L).get(),
+                hasProperty("codi", is("C2")));
+        assertThat(cacheManager.getCache(CacheUtils.PREFIX + "getEdificiByCodiAndCodiCampus")
+                .get(SimpleKeyGenerator.generateKey("C1", "NORD")).get(), hasProperty("idEdifici", is(1L)));
+    }
+
+    @Test
+    public void testLookupsAreAnsweredFromCachedList() {
+        cacheManager.getCache(CacheUtils.PREFIX + "getEdificis").put(SimpleKey.EMPTY, dao.getEdificis());
+
+        Optional<Edifici> byId = dao.getEdificiById(2);
+        Optional<Edifici> byCodi = dao.getEdificiByCodiAndCodiCampus("C1", "NORD");
+
+        assertThat(byId.get().getCodi(), is("C2"));
+        assertThat(byCodi.get().getIdEdifici(), is(1L));
+        assertThat(server.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void testLookupNotInCachedListGoesToServer() {
+        cacheManager.getCache(CacheUtils.PREFIX + "getEdificis").put(SimpleKey.EMPTY, dao.getEdificis());
+
+        Optional<Edifici> result = dao.getEdificiById(3);
+
+        assertThat(result.get().getCodi(), is("C3"));
+        assertThat(server.getRequestCount(), is(2));
+    }
+
+    private void handleEdifici(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        String data = (path.length > 3) ? "{\"idEdifici\":" + path[3] + ",\"codi\":\"C" + path[3] + "\"}" : EDIFICIS;
+        StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":" + data + "}");
+    }
+
+}
@@ -0,0 +1,376 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientSettings;
+import edu.upc.caminstech.equipstic.client.InfraestructuraView;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicBatchException;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicBatchWriteException;
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
+
+/**
+ * Tests de {@link InfraestructuraDaoImpl} contra un servidor local.
+ */
+public class InfraestructuraDaoImplTests {
+
+    private static final long ID_ERROR = 13;
+    private static final long ID_UNITAT = 79;
+    private static final long ID_UNITAT_AMB_ERROR = 80;
+    private static final long ID_UNITAT_NOVA = 81;
+    private static final long ID_MARCA = 2;
+
+    private static final Pattern NOM_DNS = Pattern.compile("\"nomDns\":\"([^\"]*)\"");
+
+    private final AtomicLong nextId = new AtomicLong(100);
+
+    private StubHttpServer server;
+    private InfraestructuraDaoImpl dao;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(this::handleInfraestructura);
+        dao = new InfraestructuraDaoImpl(new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password"));
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testGetInfraestructuresByIds() {
+        Map<Long, Optional<Infraestructura>> result = dao.getInfraestructuresByIds(Arrays.asList(3L, 1L, 2L, 1L),
+                false);
+
+        assertThat(result.keySet(), contains(3L, 1L, 2L));
+        assertThat(result.get(2L).get().getNomDns(), is("equip2"));
+        assertThat(server.getRequestCount(), is(3));
+    }
+
+    @Test
+    public void testGetInfraestructuresByIdsWithErrors() {
+        try {
+            dao.getInfraestructuresByIds(Arrays.asList(1L, ID_ERROR, 2L), false);
+            fail("s'esperava una excepció");
+        } catch (EquipsTicBatchException e) {
+            assertThat(e.getResults().keySet(), contains(1L, 2L));
+            assertThat(e.getErrors().keySet(), contains(ID_ERROR));
+        }
+    }
+
+    @Test
+    public void testGetInfraestructuresByIdsUsesCache() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        dao.setCacheManager(cacheManager);
+        Infraestructura cached = new Infraestructura();
+        cached.setNomDns("cached");
+        cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuraById")
+                .put(SimpleKeyGenerator.generateKey(1L, true), cached);
+
+        Map<Long, Optional<Infraestructura>> result = dao.getInfraestructuresByIds(Arrays.asList(1L, 2L), true);
+
+        assertThat(result.get(1L).get().getNomDns(), is("cached"));
+        assertThat(server.getRequestCount(), is(1));
+        assertThat(cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuraById")
+                .get(SimpleKeyGenerator.generateKey(2L, true)), notNullValue());
+    }
+
+    @Test
+    public void testGetInfraestructuraViewsByUnitat() {
+        List<InfraestructuraView> result = dao.getInfraestructuraViewsByUnitat(ID_UNITAT);
+
+        assertThat(result, contains(hasProperty("nomDns", is("equip1")), hasProperty("nomDns", is("equip2")),
+                hasProperty("nomDns", is("equip3"))));
+        assertThat(server.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void testGetInfraestructuresByUnitatAmbDetalls() {
+        List<Infraestructura> result = dao.getInfraestructuresByUnitat(ID_UNITAT, true);
+
+        assertThat(result, contains(hasProperty("nomDns", is("equip1")), hasProperty("nomDns", is("equip2")),
+                hasProperty("nomDns", is("equip3"))));
+        assertThat(result, everyItem(hasProperty("numeroSerie", is("detall"))));
+        assertThat(server.getRequestCount(), is(4));
+    }
+
+    @Test
+    public void testGetInfraestructuresByUnitatAmbDetallsWithErrors() {
+        try {
+            dao.getInfraestructuresByUnitat(ID_UNITAT_AMB_ERROR, true);
+            fail("s'esperava una excepció");
+        } catch (EquipsTicBatchException e) {
+            assertThat(e.getResults().keySet(), containsInAnyOrder(1L, 2L));
+            assertThat(e.getErrors().keySet(), contains(ID_ERROR));
+        }
+    }
+
+    @Test
+    public void testModificaInfraestructuraEvictsOnlyAffectedEntries() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        dao.setCacheManager(cacheManager);
+        Cache byId = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuraById");
+        Cache byMarca = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuraByMarcaAndNumeroDeSerie");
+        Cache byUnitat = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuresByUnitat");
+        byId.put(SimpleKeyGenerator.generateKey(5L, false), infraestructura(5, ID_UNITAT));
+        byId.put(SimpleKeyGenerator.generateKey(5L, true), infraestructura(5, ID_UNITAT));
+        byId.put(SimpleKeyGenerator.generateKey(6L, false), infraestructura(6, ID_UNITAT));
+        byMarca.put(SimpleKeyGenerator.generateKey(ID_MARCA, "SN5", false), infraestructura(5, ID_UNITAT));
+        byMarca.put(SimpleKeyGenerator.generateKey(ID_MARCA, "SN6", false), infraestructura(6, ID_UNITAT));
+        byUnitat.put(ID_UNITAT, Arrays.asList(infraestructura(5, ID_UNITAT)));
+        byUnitat.put(SimpleKeyGenerator.generateKey(ID_UNITAT, true), Arrays.asList(infraestructura(5, ID_UNITAT)));
+        byUnitat.put(ID_UNITAT_NOVA, Arrays.asList());
+        byUnitat.put(ID_UNITAT_AMB_ERROR, Arrays.asList());
+
+        dao.modificaInfraestructura(infraestructura(5, ID_UNITAT_NOVA));
+
+        assertThat(byId.get(SimpleKeyGenerator.generateKey(5L, false)), nullValue());
+        assertThat(byId.get(SimpleKeyGenerator.generateKey(5L, true)), nullValue());
+        assertThat(byId.get(SimpleKeyGenerator.generateKey(6L, false)), notNullValue());
+        assertThat(byMarca.get(SimpleKeyGenerator.generateKey(ID_MARCA, "SN5", false)), nullValue());
+        assertThat(byMarca.get(SimpleKeyGenerator.generateKey(ID_MARCA, "SN6", false)), notNullValue());
+        assertThat(byUnitat.get(ID_UNITAT), nullValue());
+        assertThat(byUnitat.get(SimpleKeyGenerator.generateKey(ID_UNITAT, true)), nullValue());
+        assertThat(byUnitat.get(ID_UNITAT_NOVA), nullValue());
+        assertThat(byUnitat.get(ID_UNITAT_AMB_ERROR), notNullValue());
+    }
+
+    @Test
+    public void testModificaInfraestructuraWithWriteThrough() throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setCacheWriteThrough(true);
+        dao = new InfraestructuraDaoImpl(
+                new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password", settings));
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        dao.setCacheManager(cacheManager);
+
+        dao.modificaInfraestructura(infraestructura(5, ID_UNITAT_NOVA));
+
+        Cache.ValueWrapper value = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuraById")
+                .get(SimpleKeyGenerator.generateKey(5L, false));
+        assertThat(value.get(), hasProperty("unitat", hasProperty("idUnitat", is(ID_UNITAT_NOVA))));
+    }
+
+    @Test
+    public void testBaixaInfraestructuraNotCachedClearsSearches() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        dao.setCacheManager(cacheManager);
+        Cache byId = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuraById");
+        Cache byUnitat = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuresByUnitat");
+        byId.put(SimpleKeyGenerator.generateKey(6L, false), infraestructura(6, ID_UNITAT));
+        byUnitat.put(ID_UNITAT_NOVA, Arrays.asList());
+
+        dao.baixaInfraestructura(5);
+
+        assertThat(byId.get(SimpleKeyGenerator.generateKey(6L, false)), notNullValue());
+        assertThat(byUnitat.get(ID_UNITAT_NOVA), nullValue());
+    }
+
+    @Test
+    public void testAltaInfraestructuraWithoutResultEvictsSearches() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        dao.setCacheManager(cacheManager);
+        Cache byUnitat = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuresByUnitat");
+        byUnitat.put(ID_UNITAT, Arrays.asList(infraestructura(5, ID_UNITAT)));
+        Infraestructura nova = infraestructura(0, ID_UNITAT);
+        nova.setNomDns("buit");
+
+        assertThat(dao.altaInfraestructura(nova), nullValue());
+
+        assertThat(byUnitat.get(ID_UNITAT), nullValue());
+    }
+
+    @Test
+    public void testAltaInfraestructures() {
+        List<Infraestructura> result = dao.altaInfraestructures(
+                Arrays.asList(nova("equip-a"), nova("equip-b"), nova("equip-c")));
+
+        assertThat(result, hasSize(3));
+        assertThat(result.get(0).getNomDns(), is("equip-a"));
+        assertThat(result.get(2).getNomDns(), is("equip-c"));
+        assertThat(result.get(1).getIdentificador(), greaterThanOrEqualTo(100L));
+        assertThat(server.getRequestCount(), is(3));
+    }
+
+    @Test
+    public void testAltaInfraestructuresWithErrors() {
+        try {
+            dao.altaInfraestructures(Arrays.asList(nova("equip-a"), nova("error"), nova("equip-c")));
+            fail("s'esperava una excepció");
+        } catch (EquipsTicBatchWriteException e) {
+            assertThat(e.getResults().keySet(), contains(0, 2));
+            assertThat(e.getResults().get(2).get().getNomDns(), is("equip-c"));
+            assertThat(e.getErrors().keySet(), contains(1));
+        }
+        assertThat(server.getRequestCount(), is(3));
+    }
+
+    @Test
+    public void testAltaInfraestructuresEmpty() {
+        assertThat(dao.altaInfraestructures(Arrays.asList()), empty());
+        assertThat(server.getRequestCount(), is(0));
+    }
+
+    @Test
+    public void testModificaInfraestructuresEvictsAffectedEntries() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        dao.setCacheManager(cacheManager);
+        Cache byId = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuraById");
+        Cache byMarca = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuraByMarcaAndNumeroDeSerie");
+        Cache byUnitat = cacheManager.getCache(CacheUtils.PREFIX + "getInfraestructuresByUnitat");
+        byId.put(SimpleKeyGenerator.generateKey(5L, false), infraestructura(5, ID_UNITAT));
+        byId.put(SimpleKeyGenerator.generateKey(6L, false), infraestructura(6, ID_UNITAT));
+        byId.put(SimpleKeyGenerator.generateKey(7L, false), infraestructura(7, ID_UNITAT));
+        byMarca.put(SimpleKeyGenerator.generateKey(ID_MARCA, "SN5", false), infraestructura(5, ID_UNITAT));
+        byMarca.put(SimpleKeyGenerator.generateKey(ID_MARCA, "SN7", false), infraestructura(7, ID_UNITAT));
+        byUnitat.put(ID_UNITAT, Arrays.asList(infraestructura(5, ID_UNITAT)));
+        byUnitat.put(ID_UNITAT_NOVA, Arrays.asList());
+        byUnitat.put(ID_UNITAT_AMB_ERROR, Arrays.asList());
+
+        List<Infraestructura> result = dao.modificaInfraestructures(
+                Arrays.asList(infraestructura(5, ID_UNITAT_NOVA), infraestructura(6, ID_UNITAT_NOVA)));
+
+        assertThat(result.get(0).getIdentificador(), is(5L));
+        assertThat(result.get(1).getIdentificador(), is(6L));
+        assertThat(byId.get(SimpleKeyGenerator.generateKey(5L, false)), nullValue());
+        assertThat(byId.get(SimpleKeyGenerator.generateKey(6L, false)), nullValue());
+        assertThat(byId.get(SimpleKeyGenerator.generateKey(7L, false)), notNullValue());
+        assertThat(byMarca.get(SimpleKeyGenerator.generateKey(ID_MARCA, "SN5", false)), nullValue());
+        assertThat(byMarca.get(SimpleKeyGenerator.generateKey(ID_MARCA, "SN7", false)), notNullValue());
+        assertThat(byUnitat.get(ID_UNITAT), nullValue());
+        assertThat(byUnitat.get(ID_UNITAT_NOVA), nullValue());
+        assertThat(byUnitat.get(ID_UNITAT_AMB_ERROR), notNullValue());
+    }
+
+    @Test
+    public void testModificaInfraestructuresWithErrors() {
+        try {
+            dao.modificaInfraestructures(Arrays.asList(infraestructura(ID_ERROR, ID_UNITAT_NOVA),
+                    infraestructura(5, ID_UNITAT_NOVA)));
+            fail("s'esperava una excepció");
+        } catch (EquipsTicBatchWriteException e) {
+            assertThat(e.getResults().keySet(), contains(1));
+            assertThat(e.getErrors().keySet(), contains(0));
+        }
+    }
+
+    private static Infraestructura nova(String nomDns) {
+        Infraestructura i = new Infraestructura();
+        i.setNomDns(nomDns);
+        return i;
+    }
+
+    private static Infraestructura infraestructura(long id, long idUnitat) {
+        Infraestructura i = new Infraestructura();
+        i.setIdentificador(id);
+        i.setMarca(new Marca(ID_MARCA));
+        i.setNumeroSerie("SN" + id);
+        i.setUnitat(new Unitat(idUnitat));
+        return i;
+    }
+
+    /**
+     * Simula les crides de la API: les unitats {@link #ID_UNITAT} i
+     * {@link #ID_UNITAT_AMB_ERROR} contenen les infraestructures 3, 1 i 2 (i
+     * la segona també {@link #ID_ERROR}); les crides a
+     * {@link #ID_ERROR} sempre fallen. Les modificacions retornen la
+     * infraestructura a la unitat {@link #ID_UNITAT_NOVA}. Les altes
+     * retornen la infraestructura amb un identificador nou (a partir de 100) a
+     * la unitat {@link #ID_UNITAT_NOVA}, fallen si el nom DNS és "error" i no
+     * retornen res si és "buit".
+     */
+    private void handleInfraestructura(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if ("POST".equals(exchange.getRequestMethod())) {
+            Matcher nomDns = NOM_DNS.matcher(readBody(exchange));
+            if (!nomDns.find() || "error".equals(nomDns.group(1))) {
+                StubHttpServer.respondEmpty(exchange, 500);
+                return;
+            }
+            if ("buit".equals(nomDns.group(1))) {
+                StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":null}");
+                return;
+            }
+            StubHttpServer.respondJson(exchange, 200, String.format("{\"status\":\"success\",\"data\":"
+                    + "{\"identificador\":%d,\"nomDns\":\"%s\",\"unitat\":{\"idUnitat\":%d}}}",
+                    nextId.getAndIncrement(), nomDns.group(1), ID_UNITAT_NOVA));
+            return;
+        }
+        if ("PUT".equals(exchange.getRequestMethod()) && Long.parseLong(path[3]) == ID_ERROR) {
+            StubHttpServer.respondEmpty(exchange, 500);
+            return;
+        }
+        if ("PUT".equals(exchange.getRequestMethod())) {
+            StubHttpServer.respondJson(exchange, 200, String.format("{\"status\":\"success\",\"data\":"
+                    + "{\"identificador\":%s,\"numeroSerie\":\"SN%s\",\"marca\":{\"idMarca\":%d},"
+                    + "\"unitat\":{\"idUnitat\":%d}}}", path[3], path[3], ID_MARCA, ID_UNITAT_NOVA));
+            return;
+        }
+        if ("DELETE".equals(exchange.getRequestMethod())) {
+            StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":null}");
+            return;
+        }
+        if ("cerca".equals(path[3])) {
+            long idUnitat = Long.parseLong(path[5]);
+            String data = infraestructuraJson(3, false) + "," + infraestructuraJson(1, false) + ","
+                    + infraestructuraJson(2, false);
+            if (idUnitat == ID_UNITAT_AMB_ERROR) {
+                data += "," + infraestructuraJson(ID_ERROR, false);
+            }
+            StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":[" + data + "]}");
+            return;
+        }
+        long id = Long.parseLong(path[3]);
+        if (id == ID_ERROR) {
+            StubHttpServer.respondEmpty(exchange, 500);
+            return;
+        }
+        boolean detall = path.length > 4;
+        StubHttpServer.respondJson(exchange, 200,
+                "{\"status\":\"success\",\"data\":" + infraestructuraJson(id, detall) + "}");
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        try (InputStream in = exchange.getRequestBody()) {
+            while ((n = in.read(buffer)) != -1) {
+                body.write(buffer, 0, n);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String infraestructuraJson(long id, boolean detall) {
+        return String.format("{\"identificador\":%d,\"nomDns\":\"equip%d\",\"numeroSerie\":%s}", id, id,
+                detall ? "\"detall\"" : "null");
+    }
+
+}
@@ -0,0 +1,71 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+
+public class InterningModuleTests {
+
+    private static final String UNITAT = "{\"idUnitat\":79,\"nom\":\"CaminsTIC\",\"identificador\":\"UTGAC\"}";
+    private static final String EDIFICI = "{\"idEdifici\":1,\"campus\":{\"idCampus\":1,\"codi\":\"NORD\"}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new InterningModule());
+
+    @Test
+    public void testEqualValuesAreShared() throws IOException {
+        List<Infraestructura> result = objectMapper.readValue(
+                "[" + infraestructura(1, UNITAT, UNITAT) + "," + infraestructura(2, UNITAT, UNITAT) + "]",
+                new TypeReference<List<Infraestructura>>() {
+                });
+
+        assertThat(result.get(1).getUnitat(), sameInstance(result.get(0).getUnitat()));
+        assertThat(result.get(0).getUnitatGestora(), sameInstance(result.get(0).getUnitat()));
+        assertThat(result.get(1).getEdifici(), sameInstance(result.get(0).getEdifici()));
+        assertThat(result.get(1).getEdifici().getCampus(), sameInstance(result.get(0).getEdifici().getCampus()));
+    }
+
+    @Test
+    public void testDifferentVersionsOfTheSameElementAreKept() throws IOException {
+        Infraestructura result = objectMapper.readValue(infraestructura(1, UNITAT, "{\"idUnitat\":79}"),
+                Infraestructura.class);
+
+        assertThat(result.getUnitatGestora(), not(sameInstance(result.getUnitat())));
+        assertThat(result.getUnitat().getNom(), is("CaminsTIC"));
+        assertThat(result.getUnitatGestora().getNom(), nullValue());
+    }
+
+    @Test
+    public void testSeparateReadsAreNotShared() throws IOException {
+        Infraestructura first = objectMapper.readValue(infraestructura(1, UNITAT, UNITAT), Infraestructura.class);
+        Infraestructura second = objectMapper.readValue(infraestructura(2, UNITAT, UNITAT), Infraestructura.class);
+
+        assertThat(second.getUnitat(), not(sameInstance(first.getUnitat())));
+    }
+
+    @Test
+    public void testReadsWithTheSameReaderAreShared() throws IOException {
+        ObjectReader reader = InterningModule.newReader(objectMapper,
+                objectMapper.constructType(Infraestructura.class));
+
+        Infraestructura first = reader.readValue(infraestructura(1, UNITAT, UNITAT));
+        Infraestructura second = reader.readValue(infraestructura(2, UNITAT, UNITAT));
+
+        assertThat(second.getUnitat(), sameInstance(first.getUnitat()));
+    }
+
+    private static String infraestructura(long id, String unitat, String unitatGestora) {
+        return String.format("{\"identificador\":%d,\"unitat\":%s,\"unitatGestora\":%s,\"edifici\":%s}", id, unitat,
+                unitatGestora, EDIFICI);
+    }
+
+}
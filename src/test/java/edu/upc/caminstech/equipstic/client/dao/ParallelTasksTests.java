@@ -0,0 +1,96 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelTasksTests {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testResultsAndErrors() {
+        ParallelTasks<Integer, String> tasks = new ParallelTasks<>(executor, 4);
+
+        for (int i = 0; i < 20; i++) {
+            int n = i;
+            tasks.submit(n, () -> {
+                if (n % 5 == 0) {
+                    throw new IllegalStateException("error " + n);
+                }
+                return "ok " + n;
+            });
+        }
+        tasks.await();
+
+        assertThat(tasks.getResults().size(), is(16));
+        assertThat(tasks.getResults().get(7), is("ok 7"));
+        assertThat(tasks.getErrors().keySet(), containsInAnyOrder(0, 5, 10, 15));
+        assertThat(tasks.getErrors().get(10).getMessage(), is("error 10"));
+    }
+
+    @Test
+    public void testParallelismIsBounded() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ParallelTasks<Integer, Integer> tasks = new ParallelTasks<>(executor, 3);
+
+        for (int i = 0; i < 30; i++) {
+            tasks.submit(i, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                running.decrementAndGet();
+                return 0;
+            });
+        }
+        tasks.await();
+
+        assertThat(tasks.getResults().size(), is(30));
+        assertThat(maxRunning.get(), lessThanOrEqualTo(3));
+    }
+
+    @Test
+    public void testProgressWithBusyExecutor() {
+        ExecutorService busy = Executors.newSingleThreadExecutor();
+        try {
+            busy.execute(() -> sleep(60_000));
+            ParallelTasks<Integer, Integer> tasks = new ParallelTasks<>(busy, 4);
+
+            for (int i = 0; i < 5; i++) {
+                int n = i;
+                tasks.submit(n, () -> n * 2);
+            }
+            tasks.await();
+
+            assertThat(tasks.getResults().get(4), is(8));
+        } finally {
+            busy.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
+import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
+
+/**
+ * Tests de {@link ReactiveInfraestructuraDaoImpl} contra un servidor local.
+ */
+public class ReactiveInfraestructuraDaoImplTests {
+
+    private static final long ID_ERROR = 13;
+    private static final long ID_UNITAT = 79;
+    private static final long ID_UNITAT_BUIDA = 80;
+    private static final long ID_UNITAT_NO_AUTORITZADA = 81;
+    private static final long ID_MARCA = 2;
+
+    private StubHttpServer server;
+    private EquipsTicClientConfiguration config;
+    private ReactiveInfraestructuraDaoImpl dao;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(this::handleInfraestructura);
+        config = new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password");
+        dao = new ReactiveInfraestructuraDaoImpl(config);
+    }
+
+    @After
+    public void tearDown() {
+        config.close();
+        server.close();
+    }
+
+    @Test
+    public void testGetInfraestructuraById() {
+        Optional<Infraestructura> result = dao.getInfraestructuraById(1, true).block();
+
+        assertThat(result.get().getNomDns(), is("equip1"));
+        assertThat(result.get().getNumeroSerie(), is("detall"));
+    }
+
+    @Test
+    public void testGetInfraestructuraByIdError() {
+        try {
+            dao.getInfraestructuraById(ID_ERROR, false).block();
+            fail("s'esperava una excepció");
+        } catch (EquipsTicClientException e) {
+            assertThat(e.getStatus(), is(Optional.of(HttpStatus.INTERNAL_SERVER_ERROR)));
+        }
+    }
+
+    @Test
+    public void testGetInfraestructuraByMarcaAndNumeroDeSerieAmbDetalls() {
+        Optional<Infraestructura> result = dao.getInfraestructuraByMarcaAndNumeroDeSerie(ID_MARCA, "SN1", true)
+                .block();
+
+        assertThat(result.get().getNumeroSerie(), is("detall"));
+        assertThat(server.getRequestCount(), is(2));
+    }
+
+    @Test
+    public void testGetInfraestructuraByMarcaAndNumeroDeSerieNotFound() {
+        Optional<Infraestructura> result = dao.getInfraestructuraByMarcaAndNumeroDeSerie(ID_MARCA, "cap", true)
+                .block();
+
+        assertThat(result, is(Optional.empty()));
+        assertThat(server.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void testGetInfraestructuresByUnitat() {
+        List<Infraestructura> result = dao.getInfraestructuresByUnitat(ID_UNITAT).collectList().block();
+
+        assertThat(result, contains(hasProperty("nomDns", is("equip3")), hasProperty("nomDns", is("equip1")),
+                hasProperty("nomDns", is("equip2"))));
+    }
+
+    @Test
+    public void testGetInfraestructuresByUnitatEmptyData() {
+        assertThat(dao.getInfraestructuresByUnitat(ID_UNITAT_BUIDA).collectList().block(), empty());
+    }
+
+    @Test(expected = UnauthorizedException.class)
+    public void testGetInfraestructuresByUnitatNoAutoritzada() {
+        dao.getInfraestructuresByUnitat(ID_UNITAT_NO_AUTORITZADA).collectList().block();
+    }
+
+    /**
+     * Simula les crides de la API: la unitat {@link #ID_UNITAT} conté les
+     * infraestructures 3, 1 i 2, la {@link #ID_UNITAT_BUIDA} cap, i la
+     * {@link #ID_UNITAT_NO_AUTORITZADA} respon amb l'estat 400 (com fa la API
+     * quan no es tenen privilegis). La cerca per número de sèrie només troba
+     * "SN1", i les crides a {@link #ID_ERROR} sempre fallen.
+     */
+    private void handleInfraestructura(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if ("cerca".equals(path[3]) && "unitat".equals(path[4])) {
+            long idUnitat = Long.parseLong(path[5]);
+            if (idUnitat == ID_UNITAT_NO_AUTORITZADA) {
+                StubHttpServer.respondEmpty(exchange, 400);
+                return;
+            }
+            String data = idUnitat == ID_UNITAT_BUIDA ? ""
+                    : infraestructuraJson(3, false) + "," + infraestructuraJson(1, false) + ","
+                            + infraestructuraJson(2, false);
+            StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":[" + data + "]}");
+            return;
+        }
+        if ("cerca".equals(path[3])) {
+            String data = "SN1".equals(path[7]) ? infraestructuraJson(1, false) : "null";
+            StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":" + data + "}");
+            return;
+        }
+        long id = Long.parseLong(path[3]);
+        if (id == ID_ERROR) {
+            StubHttpServer.respondEmpty(exchange, 500);
+            return;
+        }
+        boolean detall = path.length > 4;
+        StubHttpServer.respondJson(exchange, 200,
+                "{\"status\":\"success\",\"data\":" + infraestructuraJson(id, detall) + "}");
+    }
+
+    private static String infraestructuraJson(long id, boolean detall) {
+        return String.format("{\"identificador\":%d,\"nomDns\":\"equip%d\",\"numeroSerie\":%s}", id, id,
+                detall ? "\"detall\"" : "null");
+    }
+
+}
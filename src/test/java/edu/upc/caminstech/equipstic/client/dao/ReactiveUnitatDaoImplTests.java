@@ -0,0 +1,192 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import edu.upc.caminstech.equipstic.Unitat;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
+import edu.upc.caminstech.equipstic.client.exception.UnauthorizedException;
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
+
+/**
+ * Tests de {@link ReactiveUnitatDaoImpl} (i de {@link ReactiveRestDao}) contra
+ * un servidor local.
+ */
+public class ReactiveUnitatDaoImplTests {
+
+    private static final long ID_UNITAT = 79;
+    private static final long ID_BUIDA = 80;
+    private static final long ID_TEXT_PLAIN = 81;
+    private static final long ID_ERROR = 82;
+    private static final long ID_NO_AUTORITZADA = 83;
+
+    private StubHttpServer server;
+    private EquipsTicClientConfiguration config;
+    private ReactiveUnitatDaoImpl dao;
+    private volatile String unitatsJson = "{\"status\":\"success\",\"data\":[" + unitatJson(1) + ","
+            + unitatJson(2) + "," + unitatJson(3) + "]}";
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(this::handleUnitat);
+        config = new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password");
+        dao = new ReactiveUnitatDaoImpl(config);
+    }
+
+    @After
+    public void tearDown() {
+        config.close();
+        server.close();
+    }
+
+    @Test
+    public void testDaosShareWebClient() {
+        ReactiveInfraestructuraDaoImpl other = new ReactiveInfraestructuraDaoImpl(config);
+
+        assertThat(other.getWebClient(), sameInstance(dao.getWebClient()));
+    }
+
+    @Test
+    public void testGetUnitatById() {
+        Optional<Unitat> result = dao.getUnitatById(ID_UNITAT).block();
+
+        assertThat(result.get().getIdUnitat(), is(ID_UNITAT));
+        assertThat(result.get().getNom(), is("unitat" + ID_UNITAT));
+    }
+
+    @Test
+    public void testSendsCredentials() {
+        dao.getUnitatById(ID_UNITAT).block();
+        dao.getUnitats().collectList().block();
+
+        String expected = "Basic "
+                + Base64.getEncoder().encodeToString("username:password".getBytes(StandardCharsets.UTF_8));
+        assertThat(server.getRequestCount(), is(2));
+        assertThat(server.getRequests().get(0).getFirst("Authorization"), is(expected));
+        assertThat(server.getRequests().get(1).getFirst("Authorization"), is(expected));
+    }
+
+    @Test
+    public void testGetUnitatByIdTextPlain() {
+        Optional<Unitat> result = dao.getUnitatById(ID_TEXT_PLAIN).block();
+
+        assertThat(result.get().getIdUnitat(), is(ID_TEXT_PLAIN));
+    }
+
+    @Test
+    public void testGetUnitatByIdEmptyData() {
+        Optional<Unitat> result = dao.getUnitatById(ID_BUIDA).block();
+
+        assertThat(result, is(Optional.empty()));
+    }
+
+    @Test
+    public void testGetUnitatByIdError() {
+        try {
+            dao.getUnitatById(ID_ERROR).block();
+            fail("s'esperava una excepció");
+        } catch (EquipsTicClientException e) {
+            assertThat(e, not(instanceOf(UnauthorizedException.class)));
+            assertThat(e.getStatus(), is(Optional.of(HttpStatus.INTERNAL_SERVER_ERROR)));
+            assertThat(e.getMessage(), containsString("/unitat/" + ID_ERROR));
+        }
+    }
+
+    @Test(expected = UnauthorizedException.class)
+    public void testGetUnitatByIdUnauthorized() {
+        dao.getUnitatById(ID_NO_AUTORITZADA).block();
+    }
+
+    @Test
+    public void testGetUnitats() {
+        List<Unitat> result = dao.getUnitats().collectList().block();
+
+        assertThat(result, contains(hasProperty("idUnitat", is(1L)), hasProperty("idUnitat", is(2L)),
+                hasProperty("idUnitat", is(3L))));
+    }
+
+    @Test
+    public void testGetUnitatsEmptyData() {
+        unitatsJson = "{\"status\":\"success\",\"data\":[]}";
+
+        assertThat(dao.getUnitats().collectList().block(), empty());
+
+        unitatsJson = "{\"status\":\"success\",\"data\":null}";
+
+        assertThat(dao.getUnitats().collectList().block(), empty());
+    }
+
+    @Test
+    public void testGetUnitatsError() {
+        unitatsJson = null;
+        try {
+            dao.getUnitats().collectList().block();
+            fail("s'esperava una excepció");
+        } catch (EquipsTicClientException e) {
+            assertThat(e.getStatus(), is(Optional.of(HttpStatus.INTERNAL_SERVER_ERROR)));
+        }
+    }
+
+    /**
+     * Simula les crides de la API: la llista d'unitats és
+     * {@link #unitatsJson} (o un error si és {@code null}); la unitat
+     * {@link #ID_BUIDA} no té "data", la {@link #ID_TEXT_PLAIN} es retorna
+     * amb tipus "text/plain", i les crides a {@link #ID_ERROR} i
+     * {@link #ID_NO_AUTORITZADA} fallen amb els estats 500 i 401.
+     */
+    private void handleUnitat(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length == 3) {
+            if (unitatsJson == null) {
+                StubHttpServer.respondEmpty(exchange, 500);
+            } else {
+                StubHttpServer.respondJson(exchange, 200, unitatsJson);
+            }
+            return;
+        }
+        long id = Long.parseLong(path[3]);
+        if (id == ID_ERROR) {
+            StubHttpServer.respondEmpty(exchange, 500);
+        } else if (id == ID_NO_AUTORITZADA) {
+            StubHttpServer.respondEmpty(exchange, 401);
+        } else if (id == ID_BUIDA) {
+            StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":null}");
+        } else if (id == ID_TEXT_PLAIN) {
+            respondTextPlain(exchange, "{\"status\":\"success\",\"data\":" + unitatJson(id) + "}");
+        } else {
+            StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":" + unitatJson(id) + "}");
+        }
+    }
+
+    /**
+     * Envia el JSON amb tipus "text/plain", com fa la API en algunes crides.
+     */
+    private static void respondTextPlain(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String unitatJson(long id) {
+        return String.format("{\"idUnitat\":%d,\"nom\":\"unitat%d\"}", id, id);
+    }
+
+}
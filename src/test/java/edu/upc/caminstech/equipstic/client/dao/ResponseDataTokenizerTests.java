@@ -0,0 +1,80 @@
+package edu.upc.caminstech.equipstic.client.dao;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.upc.caminstech.equipstic.Marca;
+
+public class ResponseDataTokenizerTests {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String LIST_JSON = "{\"status\":\"success\",\"extra\":{\"data\":[1,2]},"
+            + "\"data\":[{\"idMarca\":1,\"nom\":\"IBM\"},{\"idMarca\":2,\"nom\":\"DELL\"},{\"idMarca\":3,\"nom\":\"HP\"}],"
+            + "\"message\":null}";
+
+    @Test
+    public void testDecodeList() throws Exception {
+        List<Marca> marques = decode(LIST_JSON, LIST_JSON.length());
+
+        assertThat(marques, contains(hasProperty("nom", is("IBM")), hasProperty("nom", is("DELL")),
+                hasProperty("nom", is("HP"))));
+    }
+
+    @Test
+    public void testDecodeListInSmallChunks() throws Exception {
+        List<Marca> marques = decode(LIST_JSON, 3);
+
+        assertThat(marques, contains(hasProperty("idMarca", is(1L)), hasProperty("idMarca", is(2L)),
+                hasProperty("idMarca", is(3L))));
+    }
+
+    @Test
+    public void testElementsAreEmittedBeforeEndOfResponse() throws Exception {
+        ResponseDataTokenizer<Marca> tokenizer = createTokenizer();
+        String firstChunk = "{\"status\":\"success\",\"data\":[{\"idMarca\":1,\"nom\":\"IBM\"},{\"idMar";
+
+        List<Marca> marques = tokenizer.feed(firstChunk.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(marques, contains(hasProperty("nom", is("IBM"))));
+    }
+
+    @Test
+    public void testDecodeSingleObject() throws Exception {
+        List<Marca> marques = decode("{\"status\":\"success\",\"data\":{\"idMarca\":1,\"nom\":\"IBM\"}}", 5);
+
+        assertThat(marques, contains(hasProperty("nom", is("IBM"))));
+    }
+
+    @Test
+    public void testDecodeNullData() throws Exception {
+        List<Marca> marques = decode("{\"status\":\"success\",\"data\":null}", 5);
+
+        assertThat(marques, empty());
+    }
+
+    private List<Marca> decode(String json, int chunkSize) throws Exception {
+        ResponseDataTokenizer<Marca> tokenizer = createTokenizer();
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<Marca> result = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            result.addAll(tokenizer.feed(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + chunkSize))));
+        }
+        result.addAll(tokenizer.endOfInput());
+        return result;
+    }
+
+    private ResponseDataTokenizer<Marca> createTokenizer() throws Exception {
+        return new ResponseDataTokenizer<>(objectMapper, objectMapper.constructType(Marca.class));
+    }
+
+}
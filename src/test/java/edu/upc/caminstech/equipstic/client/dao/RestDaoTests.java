@@ -1,20 +1,61 @@
 package edu.upc.caminstech.equipstic.client.dao;
 
+import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.interceptor.CacheAspectSupport;
+import org.springframework.cache.interceptor.CacheInterceptor;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.client.RestTemplate;
 
+import edu.upc.caminstech.equipstic.Infraestructura;
+import edu.upc.caminstech.equipstic.Marca;
 import edu.upc.caminstech.equipstic.client.EquipsTicClientConfiguration;
+import edu.upc.caminstech.equipstic.client.EquipsTicClientSettings;
+import edu.upc.caminstech.equipstic.client.Response;
+import edu.upc.caminstech.equipstic.client.exception.EquipsTicClientException;
+import edu.upc.caminstech.equipstic.fixtures.StubHttpServer;
 
 public class RestDaoTests {
 
     private static final String BASE_URI_STR = "https://example.com/api";
 
+    private static final ParameterizedTypeReference<Response<Marca>> RESPONSE_MARCA_TYPEREF = //
+            new ParameterizedTypeReference<Response<Marca>>() {
+            };
+
+    private static final String MARCA_JSON = "{\"status\":\"success\",\"data\":{\"idMarca\":45,\"nom\":\"IBM\"}}";
+
+    private static final ParameterizedTypeReference<Response<Infraestructura>> RESPONSE_INFRAESTRUCTURA_TYPEREF = //
+            new ParameterizedTypeReference<Response<Infraestructura>>() {
+            };
+
+    private static final String INFRAESTRUCTURA_JSON = "{\"status\":\"success\","
+            + "\"data\":{\"identificador\":1,\"nomDns\":\"servidor.upc.edu\"}}";
+
     private RestDao restDao;
     private EquipsTicClientConfiguration cfg;
 
@@ -42,6 +83,283 @@ public class RestDaoTests {
         assertNotNull(rt);
     }
 
+    @Test
+    public void testForEach() throws Exception {
+        String json = "{\"status\":\"success\",\"data\":[{\"idMarca\":1,\"nom\":\"IBM\"},"
+                + "{\"idMarca\":2,\"nom\":\"DELL\"}],\"message\":null}";
+        List<Marca> marques = new ArrayList<>();
+
+        try (StubHttpServer server = new StubHttpServer(
+                exchange -> StubHttpServer.respondJson(exchange, 200, json))) {
+            RestDao dao = new RestDao(createConfigurationFixture(server.getBaseUri()));
+            dao.forEach("/marca", Marca.class, marques::add);
+        }
+
+        assertThat(marques, contains(hasProperty("nom", is("IBM")), hasProperty("nom", is("DELL"))));
+    }
+
+    @Test
+    public void testForEachWithError() throws Exception {
+        try (StubHttpServer server = new StubHttpServer(exchange -> StubHttpServer.respondEmpty(exchange, 500))) {
+            RestDao dao = new RestDao(createConfigurationFixture(server.getBaseUri()));
+            dao.forEach("/marca", Marca.class, marca -> fail());
+            fail("s'esperava una excepció");
+        } catch (EquipsTicClientException e) {
+            assertThat(e.getMessage(), containsString("/marca"));
+        }
+    }
+
+    @Test
+    public void testForEachWithInvalidJson() throws Exception {
+        try (StubHttpServer server = new StubHttpServer(
+                exchange -> StubHttpServer.respondJson(exchange, 200, "{\"status\":\"success\",\"data\":[{"))) {
+            RestDao dao = new RestDao(createConfigurationFixture(server.getBaseUri()));
+            dao.forEach("/marca", Marca.class, marca -> fail());
+            fail("s'esperava una excepció");
+        } catch (EquipsTicClientException e) {
+            assertThat(e.getMessage(), containsString("/marca"));
+        }
+    }
+
+    @Test
+    public void testConcurrentGetsAreCoalesced() throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setRequestCoalescing(true);
+
+        assertThat(concurrentGets(settings, 10), is(1));
+    }
+
+    @Test
+    public void testConcurrentGetsWithoutCoalescing() throws Exception {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setRequestCoalescing(false);
+
+        assertThat(concurrentGets(settings, 10), is(10));
+    }
+
+    @Test
+    public void testRequestCoalescingDisabledByDefault() throws Exception {
+        assertThat(concurrentGets(new EquipsTicClientSettings(), 10), is(10));
+    }
+
+    @Test
+    public void testConditionalGetWithETag() throws Exception {
+        try (StubHttpServer server = new StubHttpServer(exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                StubHttpServer.respondEmpty(exchange, 304);
+            } else {
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                StubHttpServer.respondJson(exchange, 200, MARCA_JSON);
+            }
+        })) {
+            RestDao dao = createConditionalDao(server.getBaseUri());
+
+            Marca first = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+            Marca second = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+
+            assertThat(second, not(sameInstance(first)));
+            assertThat(second.getNom(), is("IBM"));
+            assertThat(server.getRequestCount(), is(2));
+            assertThat(server.getRequests().get(0).getFirst("If-None-Match"), nullValue());
+            assertThat(server.getRequests().get(1).getFirst("If-None-Match"), is("\"v1\""));
+        }
+    }
+
+    @Test
+    public void testConditionalGetWithLastModified() throws Exception {
+        String lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+        try (StubHttpServer server = new StubHttpServer(exchange -> {
+            if (lastModified.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+                StubHttpServer.respondEmpty(exchange, 304);
+            } else {
+                exchange.getResponseHeaders().set("Last-Modified", lastModified);
+                StubHttpServer.respondJson(exchange, 200, MARCA_JSON);
+            }
+        })) {
+            RestDao dao = createConditionalDao(server.getBaseUri());
+
+            Marca first = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+            Marca second = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+
+            assertThat(second, not(sameInstance(first)));
+            assertThat(second.getNom(), is("IBM"));
+            assertThat(server.getRequests().get(1).getFirst("If-Modified-Since"), is(lastModified));
+        }
+    }
+
+    @Test
+    public void testGetWithoutValidators() throws Exception {
+        try (StubHttpServer server = new StubHttpServer(
+                exchange -> StubHttpServer.respondJson(exchange, 200, MARCA_JSON))) {
+            RestDao dao = createConditionalDao(server.getBaseUri());
+
+            Marca first = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+            Marca second = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+
+            assertThat(second, not(sameInstance(first)));
+            assertThat(second.getNom(), is("IBM"));
+            assertThat(server.getRequests().get(1).getFirst("If-None-Match"), nullValue());
+            assertThat(server.getRequests().get(1).getFirst("If-Modified-Since"), nullValue());
+        }
+    }
+
+    @Test
+    public void testConditionalGetWhenChanged() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        try (StubHttpServer server = new StubHttpServer(exchange -> {
+            exchange.getResponseHeaders().set("ETag", "\"v" + version.incrementAndGet() + "\"");
+            StubHttpServer.respondJson(exchange, 200, MARCA_JSON);
+        })) {
+            RestDao dao = createConditionalDao(server.getBaseUri());
+
+            Marca first = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+            Marca second = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+            dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+
+            assertThat(second, not(sameInstance(first)));
+            assertThat(server.getRequests().get(1).getFirst("If-None-Match"), is("\"v1\""));
+            assertThat(server.getRequests().get(2).getFirst("If-None-Match"), is("\"v2\""));
+        }
+    }
+
+    @Test
+    public void testConditionalGetReturnsCopies() throws Exception {
+        try (StubHttpServer server = new StubHttpServer(exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                StubHttpServer.respondEmpty(exchange, 304);
+            } else {
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                StubHttpServer.respondJson(exchange, 200, INFRAESTRUCTURA_JSON);
+            }
+        })) {
+            RestDao dao = createConditionalDao(server.getBaseUri());
+
+            Infraestructura first = dao.get("/infraestructura/{id}", RESPONSE_INFRAESTRUCTURA_TYPEREF, 1);
+            first.setNomDns("modificada.upc.edu");
+            Infraestructura second = dao.get("/infraestructura/{id}", RESPONSE_INFRAESTRUCTURA_TYPEREF, 1);
+
+            assertThat(server.getRequests().get(1).getFirst("If-None-Match"), is("\"v1\""));
+            assertThat(second.getNomDns(), is("servidor.upc.edu"));
+        }
+    }
+
+    @Test
+    public void testNotModifiedWithoutPreviousResponse() throws Exception {
+        try (StubHttpServer server = new StubHttpServer(exchange -> StubHttpServer.respondEmpty(exchange, 304))) {
+            RestDao dao = createConditionalDao(server.getBaseUri());
+            dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+            fail("s'esperava una excepció");
+        } catch (EquipsTicClientException e) {
+            assertThat(e.getStatus(), is(Optional.of(HttpStatus.NOT_MODIFIED)));
+            assertThat(e.getMessage(), containsString("/marca/45"));
+        }
+    }
+
+    @Test
+    public void testConditionalRequestsDisabledByDefault() throws Exception {
+        try (StubHttpServer server = new StubHttpServer(exchange -> {
+            exchange.getResponseHeaders().set("ETag", "\"v1\"");
+            StubHttpServer.respondJson(exchange, 200, MARCA_JSON);
+        })) {
+            RestDao dao = new RestDao(createConfigurationFixture(server.getBaseUri()));
+
+            dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+            dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+
+            assertThat(server.getRequests().get(1).getFirst("If-None-Match"), nullValue());
+        }
+    }
+
+    @Test
+    public void testSetCacheManagersWithSingleCacheManager() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("cacheManager", new ConcurrentMapCacheManager("test"));
+
+        restDao.setCacheManagers(beanFactory.getBeanProvider(CachingConfigurer.class),
+                beanFactory.getBeanProvider(CacheManager.class), beanFactory.getBeanProvider(CacheAspectSupport.class));
+
+        assertThat(restDao.getCache("test").isPresent(), is(true));
+    }
+
+    @Test
+    public void testSetCacheManagersWithSeveralCacheManagers() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("cacheManager1", new ConcurrentMapCacheManager("test"));
+        beanFactory.addBean("cacheManager2", new ConcurrentMapCacheManager("test"));
+
+        restDao.setCacheManagers(beanFactory.getBeanProvider(CachingConfigurer.class),
+                beanFactory.getBeanProvider(CacheManager.class), beanFactory.getBeanProvider(CacheAspectSupport.class));
+
+        assertThat(restDao.getCache("test").isPresent(), is(false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSetCacheManagersWithCachingEnabledAndSeveralCacheManagers() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("cacheManager1", new ConcurrentMapCacheManager("test"));
+        beanFactory.addBean("cacheManager2", new ConcurrentMapCacheManager("test"));
+        beanFactory.addBean("cacheInterceptor", new CacheInterceptor());
+
+        restDao.setCacheManagers(beanFactory.getBeanProvider(CachingConfigurer.class),
+                beanFactory.getBeanProvider(CacheManager.class), beanFactory.getBeanProvider(CacheAspectSupport.class));
+    }
+
+    private RestDao createConditionalDao(String baseUri) {
+        EquipsTicClientSettings settings = new EquipsTicClientSettings();
+        settings.setConditionalRequests(true);
+        return new RestDao(new EquipsTicClientConfiguration(baseUri, "username", "password", settings));
+    }
+
+    /**
+     * Fa {@code n} crides idèntiques alhora contra un servidor lent, comprova
+     * que cada crida rep una instància diferent del resultat, i retorna el
+     * nombre de peticions que ha rebut el servidor.
+     */
+    private int concurrentGets(EquipsTicClientSettings settings, int n) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(n);
+        try (StubHttpServer server = new StubHttpServer(exchange -> {
+            sleep(300);
+            StubHttpServer.respondJson(exchange, 200, MARCA_JSON);
+        })) {
+            RestDao dao = new RestDao(
+                    new EquipsTicClientConfiguration(server.getBaseUri(), "username", "password", settings));
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Marca>> results = IntStream.range(0, n)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                        await(start);
+                        Marca marca = dao.get("/marca/{id}", RESPONSE_MARCA_TYPEREF, 45);
+                        return marca;
+                    }, executor)).collect(Collectors.toList());
+            start.countDown();
+
+            Set<Marca> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (CompletableFuture<Marca> result : results) {
+                assertThat(result.get().getNom(), is("IBM"));
+                instances.add(result.get());
+            }
+            assertThat(instances.size(), is(n));
+            return server.getRequestCount();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private EquipsTicClientConfiguration createConfigurationFixture(String baseUri) {
         try {
             return new EquipsTicClientConfiguration(baseUri, "username", "password");
@@ -0,0 +1,130 @@
+package edu.upc.caminstech.equipstic.fixtures;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+
+/**
+ * Servidor HTTP local que accepta peticions HTTP/1.1 i HTTP/2 (h2c) a la
+ * mateixa adreça, per als tests dels transports del client.
+ * <p>
+ * Respon totes les peticions amb el mateix JSON, opcionalment amb un retard
+ * per simular la latència de la xarxa, i registra les peticions, la versió
+ * del protocol de cadascuna i les connexions per on han arribat.
+ */
+public class StubHttp2Server implements AutoCloseable {
+
+    private final HttpAsyncServer server;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<HttpRequest> requests = new CopyOnWriteArrayList<>();
+    private final List<Integer> protocolVersions = new CopyOnWriteArrayList<>();
+    private final Set<SocketAddress> remoteAddresses = ConcurrentHashMap.newKeySet();
+    private final int port;
+
+    /**
+     * @param json
+     *            el cos de totes les respostes.
+     * @param latencyMillis
+     *            el temps que s'espera el servidor abans de respondre cada
+     *            petició.
+     */
+    public StubHttp2Server(String json, long latencyMillis) throws Exception {
+        server = H2ServerBootstrap.bootstrap() //
+                .setVersionPolicy(HttpVersionPolicy.NEGOTIATE) //
+                .register("*", new AsyncServerRequestHandler<Message<HttpRequest, Void>>() {
+
+                    @Override
+                    public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(HttpRequest request,
+                            EntityDetails entityDetails, HttpContext context) {
+                        return new BasicRequestConsumer<>(new DiscardingEntityConsumer<>());
+                    }
+
+                    @Override
+                    public void handle(Message<HttpRequest, Void> message, ResponseTrigger responseTrigger,
+                            HttpContext context) {
+                        requests.add(message.getHead());
+                        protocolVersions.add(context.getProtocolVersion().getMajor());
+                        remoteAddresses.add(HttpCoreContext.adapt(context).getEndpointDetails().getRemoteAddress());
+                        scheduler.schedule(() -> {
+                            try {
+                                responseTrigger.submitResponse(AsyncResponseBuilder.create(200)
+                                        .setEntity(AsyncEntityProducers.create(json, ContentType.APPLICATION_JSON))
+                                        .build(), context);
+                            } catch (HttpException | IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }, latencyMillis, TimeUnit.MILLISECONDS);
+                    }
+
+                }) //
+                .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).get();
+        port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+    }
+
+    /**
+     * Retorna la URL base de la API publicada pel servidor.
+     */
+    public String getBaseUri() {
+        return String.format("http://127.0.0.1:%d/api", port);
+    }
+
+    /**
+     * Retorna les capçaleres de totes les peticions rebudes, per ordre
+     * d'arribada.
+     */
+    public List<HttpRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * Retorna la versió principal del protocol (1 o 2) de totes les peticions
+     * rebudes, per ordre d'arribada.
+     */
+    public List<Integer> getProtocolVersions() {
+        return protocolVersions;
+    }
+
+    /**
+     * Retorna el nombre de connexions diferents per on han arribat les
+     * peticions.
+     */
+    public int getConnectionCount() {
+        return remoteAddresses.size();
+    }
+
+    @Override
+    public void close() {
+        server.close(CloseMode.IMMEDIATE);
+        scheduler.shutdownNow();
+    }
+
+}
@@ -0,0 +1,84 @@
+package edu.upc.caminstech.equipstic.fixtures;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor HTTP local per als tests que necessiten parlar amb un servidor
+ * "real" sense accedir a la xarxa.
+ * <p>
+ * Registra les capçaleres de totes les peticions rebudes, de tal forma que els
+ * tests poden comprovar quantes peticions s'han fet i amb quines capçaleres.
+ */
+public class StubHttpServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final List<Headers> requests = new CopyOnWriteArrayList<>();
+
+    public StubHttpServer(HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.add(exchange.getRequestHeaders());
+            handler.handle(exchange);
+        });
+        server.start();
+    }
+
+    /**
+     * Retorna la URL base de la API publicada pel servidor.
+     */
+    public String getBaseUri() {
+        return String.format("http://127.0.0.1:%d/api", server.getAddress().getPort());
+    }
+
+    /**
+     * Retorna el nombre de peticions rebudes fins ara.
+     */
+    public int getRequestCount() {
+        return requests.size();
+    }
+
+    /**
+     * Retorna les capçaleres de totes les peticions rebudes, per ordre
+     * d'arribada.
+     */
+    public List<Headers> getRequests() {
+        return requests;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Envia una resposta amb el JSON donat com a cos.
+     */
+    public static void respondJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Envia una resposta sense cos.
+     */
+    public static void respondEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+}